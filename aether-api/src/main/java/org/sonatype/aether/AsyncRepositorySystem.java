@@ -0,0 +1,108 @@
+package org.sonatype.aether;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * An asynchronous companion to the {@link RepositorySystem}. Each operation is submitted to a pool of worker threads
+ * and immediately returns a future for its result such that a few client threads can drive many operations at once.
+ * The result of an operation can either be awaited via the future or be consumed by an optional callback. If an
+ * operation fails, the future raises an {@link java.util.concurrent.ExecutionException} whose cause is the exception
+ * documented for the corresponding method of the {@link RepositorySystem}. The asynchronous repository system is
+ * provided as a service of its own, i.e. clients should look up this interface rather than cast a repository system.
+ */
+public interface AsyncRepositorySystem
+{
+
+    /**
+     * Asynchronously collects the transitive dependencies of an artifact and builds a dependency graph.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param request The collection request, must not be {@code null}
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future collection result, never {@code null}.
+     * @see RepositorySystem#collectDependencies(RepositorySystemSession, CollectRequest)
+     */
+    Future<CollectResult> collectDependencies( RepositorySystemSession session, CollectRequest request,
+                                               RepositoryCallback<CollectResult> callback );
+
+    /**
+     * Asynchronously collects and resolves the transitive dependencies of an artifact.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param request The collection request, must not be {@code null}
+     * @param filter The dependency filter to exclude dependencies from resolution, may be {@code null} to resolve all
+     *            dependencies.
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future resolution results, never {@code null}.
+     * @see RepositorySystem#resolveDependencies(RepositorySystemSession, CollectRequest, DependencyFilter)
+     */
+    Future<List<ArtifactResult>> resolveDependencies( RepositorySystemSession session, CollectRequest request,
+                                                      DependencyFilter filter,
+                                                      RepositoryCallback<List<ArtifactResult>> callback );
+
+    /**
+     * Asynchronously resolves the paths for a collection of artifacts.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param requests The resolution requests, must not be {@code null}
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future resolution results (in request order), never {@code null}.
+     * @see RepositorySystem#resolveArtifacts(RepositorySystemSession, Collection)
+     */
+    Future<List<ArtifactResult>> resolveArtifacts( RepositorySystemSession session,
+                                                   Collection<? extends ArtifactRequest> requests,
+                                                   RepositoryCallback<List<ArtifactResult>> callback );
+
+    /**
+     * Asynchronously resolves the paths for a collection of metadata.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param requests The resolution requests, must not be {@code null}
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future metadata results (in request order), never {@code null}.
+     * @see RepositorySystem#resolveMetadata(RepositorySystemSession, Collection)
+     */
+    Future<List<MetadataResult>> resolveMetadata( RepositorySystemSession session,
+                                                  Collection<? extends MetadataRequest> requests,
+                                                  RepositoryCallback<List<MetadataResult>> callback );
+
+    /**
+     * Asynchronously installs a collection of artifacts and their accompanying metadata to the local repository.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param request The installation request, must not be {@code null}.
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future installation result, never {@code null}.
+     * @see RepositorySystem#install(RepositorySystemSession, InstallRequest)
+     */
+    Future<InstallResult> install( RepositorySystemSession session, InstallRequest request,
+                                   RepositoryCallback<InstallResult> callback );
+
+    /**
+     * Asynchronously uploads a collection of artifacts and their accompanying metadata to a remote repository.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param request The deployment request, must not be {@code null}.
+     * @param callback The callback to notify about the outcome, may be {@code null}.
+     * @return The future deployment result, never {@code null}.
+     * @see RepositorySystem#deploy(RepositorySystemSession, DeployRequest)
+     */
+    Future<DeployResult> deploy( RepositorySystemSession session, DeployRequest request,
+                                 RepositoryCallback<DeployResult> callback );
+
+}
@@ -66,6 +66,21 @@ public final class ConfigurationProperties
      */
     public static final int DEFAULT_REQUEST_TIMEOUT = 60 * 1000;
 
+    /**
+     * The time (in milliseconds) a repository connector may stay idle before it is closed. Until then, the connector
+     * will be reused for further transfers to the same repository. Non-positive values disable the reuse of
+     * connectors, which is the default. Idle connectors keep their network connections and worker threads alive, so
+     * applications that enable the reuse should close the remote repository manager when they are done.
+     * 
+     * @see #DEFAULT_CONNECTOR_IDLE_TIMEOUT
+     */
+    public static final String CONNECTOR_IDLE_TIMEOUT = PREFIX_CONNECTOR + "idleTimeout";
+
+    /**
+     * The default connector idle timeout to use if {@link #CONNECTOR_IDLE_TIMEOUT} isn't set.
+     */
+    public static final int DEFAULT_CONNECTOR_IDLE_TIMEOUT = 0;
+
     private ConfigurationProperties()
     {
         // hide constructor
@@ -0,0 +1,42 @@
+package org.sonatype.aether;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+/**
+ * A callback to be notified about the outcome of an asynchronous repository operation. The callback is invoked by the
+ * thread that performed the operation, so implementations should return quickly and must not block on other
+ * operations of the same repository system. Runtime exceptions thrown by the callback are logged and otherwise ignored.
+ * 
+ * @param <T> The type of the operation's result.
+ * @see AsyncRepositorySystem
+ */
+public interface RepositoryCallback<T>
+{
+
+    /**
+     * Notifies the callback about the successful completion of the operation.
+     * 
+     * @param result The result of the operation, may be {@code null} if the operation has no result.
+     */
+    void completed( T result );
+
+    /**
+     * Notifies the callback about the failure of the operation.
+     * 
+     * @param exception The exception that caused the operation to fail, never {@code null}. An {@link Error} raised by
+     *            the operation is reported wrapped in a {@link java.util.concurrent.ExecutionException}.
+     */
+    void failed( Exception exception );
+
+}
@@ -0,0 +1,177 @@
+package org.sonatype.aether.connector.wagon;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithm;
+import org.sonatype.aether.spi.connector.ChecksumCalculator;
+
+/**
+ * A wagon transfer listener that calculates the checksums of the transferred bytes for several algorithms at once.
+ */
+class ChecksumObserver
+    implements TransferListener
+{
+
+    private final Map<String, ChecksumCalculator> calculators = new LinkedHashMap<String, ChecksumCalculator>();
+
+    private Map<String, String> checksums;
+
+    private long length;
+
+    public ChecksumObserver( List<ChecksumAlgorithm> algorithms )
+    {
+        for ( ChecksumAlgorithm algorithm : algorithms )
+        {
+            calculators.put( algorithm.getName(), algorithm.newCalculator() );
+        }
+    }
+
+    /**
+     * Calculates the checksums of the specified file by reading it.
+     * 
+     * @param file The file to checksum, must not be {@code null}.
+     * @param algorithms The checksum algorithms to use, must not be {@code null}.
+     * @return The checksums keyed by algorithm name, never {@code null}.
+     * @throws IOException If the file could not be read.
+     */
+    public static Map<String, String> calc( File file, List<ChecksumAlgorithm> algorithms )
+        throws IOException
+    {
+        ChecksumObserver observer = new ChecksumObserver( algorithms );
+
+        FileInputStream fis = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[32 * 1024];
+            for ( int read = fis.read( buffer ); read >= 0; read = fis.read( buffer ) )
+            {
+                observer.update( buffer, read );
+            }
+        }
+        finally
+        {
+            try
+            {
+                fis.close();
+            }
+            catch ( IOException e )
+            {
+                // ignored
+            }
+        }
+
+        observer.complete();
+
+        return observer.getChecksums();
+    }
+
+    /**
+     * Gets the checksums of the last completed transfer.
+     * 
+     * @return The checksums keyed by algorithm name or {@code null} if no transfer has been completed.
+     */
+    public Map<String, String> getChecksums()
+    {
+        return checksums;
+    }
+
+    /**
+     * Gets the number of bytes that were checksummed during the last transfer. Comparing this number with the size of
+     * the transferred file reveals wagons which did not report all bytes via progress events.
+     * 
+     * @return The number of checksummed bytes.
+     */
+    public long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Gets the checksum of the last completed transfer for the specified algorithm.
+     * 
+     * @param algorithm The name of the checksum algorithm, must not be {@code null}.
+     * @return The checksum or {@code null} if no transfer has been completed or the algorithm is unknown.
+     */
+    public String getChecksum( String algorithm )
+    {
+        return ( checksums != null ) ? checksums.get( algorithm ) : null;
+    }
+
+    private void reset()
+    {
+        checksums = null;
+        length = 0;
+        for ( ChecksumCalculator calculator : calculators.values() )
+        {
+            calculator.reset();
+        }
+    }
+
+    private void update( byte[] buffer, int length )
+    {
+        this.length += length;
+        for ( ChecksumCalculator calculator : calculators.values() )
+        {
+            calculator.update( buffer, 0, length );
+        }
+    }
+
+    private void complete()
+    {
+        checksums = new LinkedHashMap<String, String>();
+        for ( Map.Entry<String, ChecksumCalculator> entry : calculators.entrySet() )
+        {
+            checksums.put( entry.getKey(), entry.getValue().getChecksum() );
+        }
+    }
+
+    public void transferInitiated( TransferEvent event )
+    {
+        reset();
+    }
+
+    public void transferStarted( TransferEvent event )
+    {
+        reset();
+    }
+
+    public void transferProgress( TransferEvent event, byte[] buffer, int length )
+    {
+        update( buffer, length );
+    }
+
+    public void transferCompleted( TransferEvent event )
+    {
+        complete();
+    }
+
+    public void transferError( TransferEvent event )
+    {
+        reset();
+    }
+
+    public void debug( String message )
+    {
+    }
+
+}
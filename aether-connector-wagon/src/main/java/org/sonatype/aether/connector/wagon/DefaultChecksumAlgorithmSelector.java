@@ -0,0 +1,247 @@
+package org.sonatype.aether.connector.wagon;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithm;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithmSelector;
+import org.sonatype.aether.spi.connector.ChecksumCalculator;
+import org.sonatype.aether.spi.locator.Service;
+import org.sonatype.aether.spi.locator.ServiceLocator;
+import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
+
+/**
+ * A checksum algorithm selector that picks the algorithms named by the configuration property
+ * {@link #CONFIG_PROP_ALGORITHMS}. Besides the algorithms supported by {@link MessageDigest}, e.g. "SHA-512",
+ * "SHA-256", "SHA-1" and "MD5", the non-cryptographic "CRC32" is supported which is considerably faster to calculate
+ * but only suitable to detect accidental corruption. The file extension for an algorithm is its lower case name without
+ * dashes, e.g. "sha256".
+ */
+@Component( role = ChecksumAlgorithmSelector.class )
+public class DefaultChecksumAlgorithmSelector
+    implements ChecksumAlgorithmSelector, Service
+{
+
+    /**
+     * The configuration property holding the comma-separated names of the checksum algorithms in order of preference.
+     */
+    public static final String CONFIG_PROP_ALGORITHMS = "aether.connector.checksums.algorithms";
+
+    static final String DEFAULT_ALGORITHMS = "SHA-1,MD5";
+
+    @Requirement
+    private Logger logger = NullLogger.INSTANCE;
+
+    public void initService( ServiceLocator locator )
+    {
+        setLogger( locator.getService( Logger.class ) );
+    }
+
+    /**
+     * Sets the logger to use for this component.
+     * 
+     * @param logger The logger to use, may be {@code null} to disable logging.
+     * @return This component for chaining, never {@code null}.
+     */
+    public DefaultChecksumAlgorithmSelector setLogger( Logger logger )
+    {
+        this.logger = ( logger != null ) ? logger : NullLogger.INSTANCE;
+        return this;
+    }
+
+    public List<ChecksumAlgorithm> getChecksumAlgorithms( RepositorySystemSession session, RemoteRepository repository )
+    {
+        String names =
+            ConfigurationProperties.get( session.getConfigProperties(), CONFIG_PROP_ALGORITHMS, DEFAULT_ALGORITHMS );
+
+        List<ChecksumAlgorithm> algorithms = new ArrayList<ChecksumAlgorithm>();
+
+        for ( String name : names.split( "," ) )
+        {
+            name = name.trim();
+            if ( name.length() <= 0 )
+            {
+                continue;
+            }
+
+            if ( "CRC32".equalsIgnoreCase( name ) )
+            {
+                algorithms.add( new Crc32Algorithm() );
+            }
+            else
+            {
+                try
+                {
+                    MessageDigest.getInstance( name );
+                    algorithms.add( new DigestAlgorithm( name ) );
+                }
+                catch ( NoSuchAlgorithmException e )
+                {
+                    logger.debug( "Ignoring unsupported checksum algorithm " + name + " for " + repository.getId() );
+                }
+            }
+        }
+
+        return algorithms;
+    }
+
+    static final class DigestAlgorithm
+        implements ChecksumAlgorithm
+    {
+
+        private final String name;
+
+        private final String extension;
+
+        public DigestAlgorithm( String name )
+        {
+            this.name = name;
+            this.extension = name.replace( "-", "" ).toLowerCase( Locale.ENGLISH );
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getFileExtension()
+        {
+            return extension;
+        }
+
+        public ChecksumCalculator newCalculator()
+        {
+            final MessageDigest digest;
+            try
+            {
+                digest = MessageDigest.getInstance( name );
+            }
+            catch ( NoSuchAlgorithmException e )
+            {
+                throw new IllegalStateException( "checksum algorithm " + name + " is not supported", e );
+            }
+
+            return new ChecksumCalculator()
+            {
+
+                public void reset()
+                {
+                    digest.reset();
+                }
+
+                public void update( byte[] buffer, int offset, int length )
+                {
+                    digest.update( buffer, offset, length );
+                }
+
+                public String getChecksum()
+                {
+                    return toHex( digest.digest() );
+                }
+
+            };
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+
+    }
+
+    static final class Crc32Algorithm
+        implements ChecksumAlgorithm
+    {
+
+        public String getName()
+        {
+            return "CRC32";
+        }
+
+        public String getFileExtension()
+        {
+            return "crc32";
+        }
+
+        public ChecksumCalculator newCalculator()
+        {
+            final CRC32 crc = new CRC32();
+
+            return new ChecksumCalculator()
+            {
+
+                public void reset()
+                {
+                    crc.reset();
+                }
+
+                public void update( byte[] buffer, int offset, int length )
+                {
+                    crc.update( buffer, offset, length );
+                }
+
+                public String getChecksum()
+                {
+                    long value = crc.getValue();
+                    crc.reset();
+                    byte[] bytes = new byte[4];
+                    for ( int i = bytes.length - 1; i >= 0; i--, value >>>= 8 )
+                    {
+                        bytes[i] = (byte) value;
+                    }
+                    return toHex( bytes );
+                }
+
+            };
+        }
+
+        @Override
+        public String toString()
+        {
+            return getName();
+        }
+
+    }
+
+    static String toHex( byte[] bytes )
+    {
+        StringBuilder buffer = new StringBuilder( bytes.length * 2 );
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            int b = bytes[i] & 0xFF;
+            if ( b < 0x10 )
+            {
+                buffer.append( '0' );
+            }
+            buffer.append( Integer.toHexString( b ) );
+        }
+
+        return buffer.toString();
+    }
+
+}
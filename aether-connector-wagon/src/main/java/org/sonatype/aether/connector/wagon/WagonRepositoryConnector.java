@@ -13,30 +13,39 @@ package org.sonatype.aether.connector.wagon;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.StreamingWagon;
 import org.apache.maven.wagon.Wagon;
 import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
-import org.apache.maven.wagon.observers.ChecksumObserver;
+import org.apache.maven.wagon.observers.AbstractTransferListener;
 import org.apache.maven.wagon.proxy.ProxyInfo;
 import org.apache.maven.wagon.proxy.ProxyInfoProvider;
 import org.apache.maven.wagon.repository.Repository;
@@ -61,6 +70,8 @@ import org.sonatype.aether.TransferListener;
 import org.sonatype.aether.spi.connector.ArtifactDownload;
 import org.sonatype.aether.spi.connector.ArtifactTransfer;
 import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithm;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithmSelector;
 import org.sonatype.aether.spi.connector.MetadataDownload;
 import org.sonatype.aether.spi.connector.MetadataTransfer;
 import org.sonatype.aether.spi.connector.MetadataUpload;
@@ -68,6 +79,7 @@ import org.sonatype.aether.spi.connector.RepositoryConnector;
 import org.sonatype.aether.spi.connector.Transfer;
 import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.util.ChecksumUtils;
+import org.sonatype.aether.util.FileCopyUtils;
 import org.sonatype.aether.util.layout.MavenDefaultLayout;
 import org.sonatype.aether.util.layout.RepositoryLayout;
 import org.sonatype.aether.util.listener.DefaultTransferEvent;
@@ -81,6 +93,8 @@ class WagonRepositoryConnector
     implements RepositoryConnector
 {
 
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
     private final Logger logger;
 
     private final RemoteRepository repository;
@@ -105,12 +119,15 @@ class WagonRepositoryConnector
 
     private final Executor executor;
 
+    private final ExecutorService checksumExecutor;
+
     private boolean closed;
 
-    private Map<String, String> checksumAlgos;
+    private final List<ChecksumAlgorithm> checksumAlgos;
 
     public WagonRepositoryConnector( WagonProvider wagonProvider, RemoteRepository repository,
-                                     RepositorySystemSession session, Logger logger )
+                                     RepositorySystemSession session,
+                                     ChecksumAlgorithmSelector checksumAlgorithmSelector, Logger logger )
         throws NoRepositoryConnectorException
     {
         this.logger = logger;
@@ -154,16 +171,32 @@ class WagonRepositoryConnector
                     command.run();
                 }
             };
+            checksumExecutor = null;
         }
         else
         {
-            executor =
-                new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+            executor = newExecutor( threads );
+            // checksums are fetched by a separate pool so they are not queued behind the downloads that wait for them
+            checksumExecutor = newExecutor( Math.max( threads / 2, 1 ) );
         }
 
-        checksumAlgos = new LinkedHashMap<String, String>();
-        checksumAlgos.put( "SHA-1", ".sha1" );
-        checksumAlgos.put( "MD5", ".md5" );
+        checksumAlgos = checksumAlgorithmSelector.getChecksumAlgorithms( session, repository );
+    }
+
+    private static ExecutorService newExecutor( int threads )
+    {
+        // daemon threads as idle connectors might be kept open for reuse and must not prevent the JVM from exiting
+        ThreadFactory factory = new ThreadFactory()
+        {
+            public Thread newThread( Runnable r )
+            {
+                Thread thread = new Thread( r, "aether-connector-" + THREAD_COUNTER.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        };
+        return new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                       factory );
     }
 
     private AuthenticationInfo getAuthenticationInfo( RemoteRepository repository, AuthenticationSelector selector )
@@ -376,22 +409,69 @@ class WagonRepositoryConnector
         artifactUploads = safe( artifactUploads );
         metadataUploads = safe( metadataUploads );
 
+        CountDownLatch latch = new CountDownLatch( artifactUploads.size() );
+
+        Collection<PutTask<?>> tasks = new ArrayList<PutTask<?>>();
+
         for ( ArtifactUpload upload : artifactUploads )
         {
             String path = layout.getPath( upload.getArtifact() ).getPath();
 
-            PutTask<?> task = new PutTask<ArtifactTransfer>( path, upload.getFile(), upload, ARTIFACT );
-            task.run();
-            task.flush();
+            PutTask<?> task = new PutTask<ArtifactTransfer>( path, upload.getFile(), latch, upload, ARTIFACT );
+            tasks.add( task );
+            executor.execute( task );
         }
 
+        // metadata refers to the artifacts so it must not become visible before the artifacts have been uploaded
+        InterruptedException interrupted = await( latch, tasks );
+
+        latch = new CountDownLatch( metadataUploads.size() );
+
+        tasks.clear();
+
         for ( MetadataUpload upload : metadataUploads )
         {
             String path = layout.getPath( upload.getMetadata() ).getPath();
 
-            PutTask<?> task = new PutTask<MetadataTransfer>( path, upload.getFile(), upload, METADATA );
-            task.run();
-            task.flush();
+            PutTask<?> task = new PutTask<MetadataTransfer>( path, upload.getFile(), latch, upload, METADATA );
+            tasks.add( task );
+            if ( interrupted == null )
+            {
+                executor.execute( task );
+            }
+            else
+            {
+                task.flush( interrupted );
+            }
+        }
+
+        if ( interrupted == null )
+        {
+            await( latch, tasks );
+        }
+    }
+
+    private InterruptedException await( CountDownLatch latch, Collection<PutTask<?>> tasks )
+    {
+        try
+        {
+            latch.await();
+
+            for ( PutTask<?> task : tasks )
+            {
+                task.flush();
+            }
+
+            return null;
+        }
+        catch ( InterruptedException e )
+        {
+            for ( PutTask<?> task : tasks )
+            {
+                task.flush( e );
+            }
+
+            return e;
         }
     }
 
@@ -409,6 +489,10 @@ class WagonRepositoryConnector
         {
             ( (ExecutorService) executor ).shutdown();
         }
+        if ( checksumExecutor != null )
+        {
+            checksumExecutor.shutdown();
+        }
     }
 
     class GetTask<T extends Transfer>
@@ -486,65 +570,7 @@ class WagonRepositoryConnector
                     }
                     else
                     {
-                        for ( int trial = 1; trial >= 0; trial-- )
-                        {
-                            ChecksumObserver sha1 = new ChecksumObserver( "SHA-1" );
-                            ChecksumObserver md5 = new ChecksumObserver( "MD5" );
-                            try
-                            {
-                                wagon.addTransferListener( wagonListener );
-                                wagon.addTransferListener( md5 );
-                                wagon.addTransferListener( sha1 );
-
-                                /*
-                                 * NOTE: AbstractWagon.createParentDirectories() seems to occasionally fail when
-                                 * executed concurrently, so we try a little harder.
-                                 */
-                                File dir = tmp.getParentFile();
-                                for ( int i = 0; i < 5 && !dir.exists(); i++ )
-                                {
-                                    dir.mkdirs();
-                                }
-
-                                wagon.get( path, tmp );
-                            }
-                            finally
-                            {
-                                wagon.removeTransferListener( wagonListener );
-                                wagon.removeTransferListener( md5 );
-                                wagon.removeTransferListener( sha1 );
-                            }
-
-                            if ( !RepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals( checksumPolicy ) )
-                            {
-                                try
-                                {
-                                    if ( !verifyChecksum( wagon, sha1.getActualChecksum(), ".sha1" )
-                                        && !verifyChecksum( wagon, md5.getActualChecksum(), ".md5" ) )
-                                    {
-                                        trial = 0;
-                                        throw new ChecksumFailureException( "Checksum validation failed"
-                                            + ", no checksums available from the repository" );
-                                    }
-                                    break;
-                                }
-                                catch ( ChecksumFailureException e )
-                                {
-                                    if ( trial <= 0 && RepositoryPolicy.CHECKSUM_POLICY_FAIL.equals( checksumPolicy ) )
-                                    {
-                                        throw e;
-                                    }
-                                    if ( listener != null )
-                                    {
-                                        DefaultTransferEvent event = wagonListener.newEvent();
-                                        event.setRequestType( TransferEvent.RequestType.GET );
-                                        event.setType( TransferEvent.EventType.CORRUPTED );
-                                        event.setException( e );
-                                        listener.transferCorrupted( event );
-                                    }
-                                }
-                            }
-                        }
+                        download( wagon, tmp, wagonListener );
 
                         rename( tmp, file );
                     }
@@ -597,68 +623,253 @@ class WagonRepositoryConnector
             download.setState( Transfer.State.DONE );
         }
 
-        private boolean verifyChecksum( Wagon wagon, String actual, String ext )
-            throws ChecksumFailureException
+        private void download( Wagon wagon, File tmp, WagonTransferListenerAdapter wagonListener )
+            throws Exception
         {
-            File tmp = new File( file.getPath() + ext + ".tmp" + System.currentTimeMillis() );
+            // without any selected algorithm there is nothing to verify, regardless of the checksum policy
+            boolean verify =
+                !RepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals( checksumPolicy ) && !checksumAlgos.isEmpty();
 
+            FutureTask<Checksum> checksum = null;
             try
             {
-                try
+                for ( int trial = 1; trial >= 0; trial-- )
                 {
-                    wagon.get( path + ext, tmp );
+                    AbstractTransferListener starter = null;
+                    if ( verify )
+                    {
+                        // fetch the remote checksum while the artifact itself is being downloaded
+                        checksum = newChecksumTask();
+                        starter = newChecksumStarter( checksum );
+                    }
+
+                    ChecksumObserver checksums = new ChecksumObserver( verify ? checksumAlgos : NO_CHECKSUMS );
+                    try
+                    {
+                        wagon.addTransferListener( wagonListener );
+                        wagon.addTransferListener( checksums );
+                        if ( starter != null )
+                        {
+                            wagon.addTransferListener( starter );
+                        }
+
+                        /*
+                         * NOTE: AbstractWagon.createParentDirectories() seems to occasionally fail when
+                         * executed concurrently, so we try a little harder.
+                         */
+                        File dir = tmp.getParentFile();
+                        for ( int i = 0; i < 5 && !dir.exists(); i++ )
+                        {
+                            dir.mkdirs();
+                        }
+
+                        wagon.get( path, tmp );
+                    }
+                    finally
+                    {
+                        wagon.removeTransferListener( wagonListener );
+                        wagon.removeTransferListener( checksums );
+                        if ( starter != null )
+                        {
+                            wagon.removeTransferListener( starter );
+                        }
+                    }
+
+                    if ( verify )
+                    {
+                        try
+                        {
+                            Checksum expected = getChecksum( checksum );
+                            if ( expected == null )
+                            {
+                                trial = 0;
+                                throw new ChecksumFailureException( "Checksum validation failed"
+                                    + ", no checksums available from the repository" );
+                            }
+                            verifyChecksum( expected, checksums.getChecksum( expected.algo ) );
+                            break;
+                        }
+                        catch ( ChecksumFailureException e )
+                        {
+                            if ( trial <= 0 && RepositoryPolicy.CHECKSUM_POLICY_FAIL.equals( checksumPolicy ) )
+                            {
+                                throw e;
+                            }
+                            if ( listener != null )
+                            {
+                                DefaultTransferEvent event = wagonListener.newEvent();
+                                event.setRequestType( TransferEvent.RequestType.GET );
+                                event.setType( TransferEvent.EventType.CORRUPTED );
+                                event.setException( e );
+                                listener.transferCorrupted( event );
+                            }
+                        }
+                    }
                 }
-                catch ( ResourceDoesNotExistException e )
+            }
+            finally
+            {
+                if ( checksum != null )
                 {
-                    return false;
+                    checksum.cancel( false );
                 }
-                catch ( WagonException e )
+            }
+        }
+
+        /**
+         * Creates a task fetching the checksum of the resource. Each download attempt uses a fresh task such that a
+         * retry after a checksum mismatch picks up a checksum that was fixed on the remote side meanwhile.
+         */
+        private FutureTask<Checksum> newChecksumTask()
+        {
+            return new FutureTask<Checksum>( new Callable<Checksum>()
+            {
+                public Checksum call()
+                    throws Exception
                 {
-                    throw new ChecksumFailureException( e );
+                    return fetchChecksum();
                 }
+            } );
+        }
 
-                String expected;
-
-                try
+        /**
+         * Creates a wagon listener that schedules the specified checksum task on the checksum pool (if any) once the
+         * transfer of the resource has actually started. A missing resource hence causes no checksum requests.
+         */
+        private AbstractTransferListener newChecksumStarter( final FutureTask<Checksum> task )
+        {
+            return new AbstractTransferListener()
+            {
+                @Override
+                public void transferStarted( org.apache.maven.wagon.events.TransferEvent event )
                 {
-                    expected = ChecksumUtils.read( tmp );
+                    if ( checksumExecutor != null )
+                    {
+                        try
+                        {
+                            checksumExecutor.execute( task );
+                        }
+                        catch ( RejectedExecutionException e )
+                        {
+                            // connector is being closed, the task will be run by the downloading thread
+                        }
+                    }
                 }
-                catch ( IOException e )
+            };
+        }
+
+        private Checksum getChecksum( FutureTask<Checksum> checksum )
+            throws ChecksumFailureException
+        {
+            // if no worker picked up the task yet, do the work ourselves rather than blocking the worker pool
+            checksum.run();
+
+            try
+            {
+                return checksum.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new ChecksumFailureException( e );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof ChecksumFailureException )
                 {
-                    throw new ChecksumFailureException( e );
+                    throw (ChecksumFailureException) cause;
                 }
+                throw new ChecksumFailureException( cause );
+            }
+        }
 
-                if ( expected.equalsIgnoreCase( actual ) )
+        private Checksum fetchChecksum()
+            throws Exception
+        {
+            Wagon wagon = pollWagon();
+
+            try
+            {
+                for ( ChecksumAlgorithm algo : checksumAlgos )
                 {
+                    String ext = '.' + algo.getFileExtension();
+
+                    String expected;
                     try
                     {
-                        rename( tmp, new File( file.getPath() + ext ) );
+                        expected = fetchChecksum( wagon, path + ext );
+                    }
+                    catch ( ResourceDoesNotExistException e )
+                    {
+                        continue;
+                    }
+                    catch ( WagonException e )
+                    {
+                        throw new ChecksumFailureException( e );
                     }
                     catch ( IOException e )
                     {
-                        // ignored, non-critical
+                        throw new ChecksumFailureException( e );
                     }
-                }
-                else
-                {
-                    throw new ChecksumFailureException( expected, actual );
+
+                    return new Checksum( algo.getName(), ext, expected );
                 }
             }
             finally
+            {
+                wagons.add( wagon );
+            }
+
+            return null;
+        }
+
+        private String fetchChecksum( Wagon wagon, String resource )
+            throws WagonException, IOException
+        {
+            if ( wagon instanceof StreamingWagon )
+            {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream( 128 );
+                ( (StreamingWagon) wagon ).getToStream( resource, stream );
+                return ChecksumUtils.read( new ByteArrayInputStream( stream.toByteArray() ) );
+            }
+
+            String ext = resource.substring( path.length() );
+            File tmp = new File( file.getPath() + ext + ".tmp" + System.currentTimeMillis() );
+            try
+            {
+                wagon.get( resource, tmp );
+                return ChecksumUtils.read( tmp );
+            }
+            finally
             {
                 tmp.delete();
             }
+        }
+
+        private void verifyChecksum( Checksum expected, String actual )
+            throws ChecksumFailureException
+        {
 
-            return true;
+            if ( !expected.value.equalsIgnoreCase( actual ) )
+            {
+                throw new ChecksumFailureException( expected.value, actual );
+            }
+
+            try
+            {
+                FileUtils.fileWrite( file.getPath() + expected.ext, "UTF-8", expected.value );
+            }
+            catch ( IOException e )
+            {
+                // ignored, non-critical
+            }
         }
 
         private void rename( File from, File to )
             throws IOException
         {
-            if ( !from.renameTo( to ) )
-            {
-                FileUtils.copyFile( from, to );
-            }
+            FileCopyUtils.move( from, to );
         }
 
     }
@@ -675,12 +886,15 @@ class WagonRepositoryConnector
 
         private final File file;
 
+        private final CountDownLatch latch;
+
         private volatile Exception exception;
 
-        public PutTask( String path, File file, T upload, ExceptionWrapper<T> wrapper )
+        public PutTask( String path, File file, CountDownLatch latch, T upload, ExceptionWrapper<T> wrapper )
         {
             this.path = path;
             this.file = file;
+            this.latch = latch;
             this.upload = upload;
             this.wrapper = wrapper;
         }
@@ -709,18 +923,22 @@ class WagonRepositoryConnector
 
                 try
                 {
+                    ChecksumObserver checksums = new ChecksumObserver( checksumAlgos );
+
                     try
                     {
                         wagon.addTransferListener( wagonListener );
+                        wagon.addTransferListener( checksums );
 
                         wagon.put( file, path );
                     }
                     finally
                     {
                         wagon.removeTransferListener( wagonListener );
+                        wagon.removeTransferListener( checksums );
                     }
 
-                    uploadChecksums( wagon, file, path );
+                    uploadChecksums( wagon, file, path, checksums );
 
                     if ( listener != null )
                     {
@@ -748,22 +966,37 @@ class WagonRepositoryConnector
                     listener.transferFailed( event );
                 }
             }
+            finally
+            {
+                latch.countDown();
+            }
         }
 
         public void flush()
         {
-            wrapper.wrap( upload, exception, repository );
+            flush( null );
+        }
+
+        public void flush( Exception exception )
+        {
+            Exception e = this.exception;
+            wrapper.wrap( upload, ( e != null ) ? e : exception, repository );
             upload.setState( Transfer.State.DONE );
         }
 
-        private void uploadChecksums( Wagon wagon, File file, String path )
+        private void uploadChecksums( Wagon wagon, File file, String path, ChecksumObserver observer )
         {
             try
             {
-                Map<String, Object> checksums = ChecksumUtils.calc( file, checksumAlgos.keySet() );
-                for ( Map.Entry<String, Object> entry : checksums.entrySet() )
+                Map<String, String> checksums = observer.getChecksums();
+                if ( checksums == null || observer.getLength() != file.length() )
                 {
-                    uploadChecksum( wagon, file, path, entry.getKey(), entry.getValue() );
+                    // the wagon did not report all transferred bytes, fall back to reading the file again
+                    checksums = ChecksumObserver.calc( file, checksumAlgos );
+                }
+                for ( ChecksumAlgorithm algo : checksumAlgos )
+                {
+                    uploadChecksum( wagon, file, path, algo, checksums.get( algo.getName() ) );
                 }
             }
             catch ( IOException e )
@@ -772,26 +1005,30 @@ class WagonRepositoryConnector
             }
         }
 
-        private void uploadChecksum( Wagon wagon, File file, String path, String algo, Object checksum )
+        private void uploadChecksum( Wagon wagon, File file, String path, ChecksumAlgorithm algo, String checksum )
         {
             try
             {
-                if ( checksum instanceof Exception )
-                {
-                    throw (Exception) checksum;
-                }
+                String ext = '.' + algo.getFileExtension();
 
-                String ext = checksumAlgos.get( algo );
-
-                File tmpFile = File.createTempFile( "checksum", ext );
-                try
+                if ( wagon instanceof StreamingWagon )
                 {
-                    FileUtils.fileWrite( tmpFile.getAbsolutePath(), "UTF-8", String.valueOf( checksum ) );
-                    wagon.put( tmpFile, path + ext );
+                    byte[] bytes = checksum.getBytes( "UTF-8" );
+                    ( (StreamingWagon) wagon ).putFromStream( new ByteArrayInputStream( bytes ), path + ext,
+                                                              bytes.length, System.currentTimeMillis() );
                 }
-                finally
+                else
                 {
-                    tmpFile.delete();
+                    File tmpFile = File.createTempFile( "checksum", ext );
+                    try
+                    {
+                        FileUtils.fileWrite( tmpFile.getAbsolutePath(), "UTF-8", checksum );
+                        wagon.put( tmpFile, path + ext );
+                    }
+                    finally
+                    {
+                        tmpFile.delete();
+                    }
                 }
             }
             catch ( Exception e )
@@ -802,6 +1039,26 @@ class WagonRepositoryConnector
 
     }
 
+    private static final List<ChecksumAlgorithm> NO_CHECKSUMS = Collections.emptyList();
+
+    static final class Checksum
+    {
+
+        final String algo;
+
+        final String ext;
+
+        final String value;
+
+        public Checksum( String algo, String ext, String value )
+        {
+            this.algo = algo;
+            this.ext = ext;
+            this.value = value;
+        }
+
+    }
+
     static interface ExceptionWrapper<T>
     {
 
@@ -18,6 +18,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.aether.NoRepositoryConnectorException;
 import org.sonatype.aether.RemoteRepository;
 import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithmSelector;
 import org.sonatype.aether.spi.connector.RepositoryConnector;
 import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
 import org.sonatype.aether.spi.locator.Service;
@@ -41,12 +42,16 @@ public class WagonRepositoryConnectorFactory
     @Requirement
     private WagonProvider wagonProvider;
 
+    @Requirement
+    private ChecksumAlgorithmSelector checksumAlgorithmSelector = new DefaultChecksumAlgorithmSelector();
+
     private int priority;
 
     public void initService( ServiceLocator locator )
     {
         setLogger( locator.getService( Logger.class ) );
         setWagonProvider( locator.getService( WagonProvider.class ) );
+        setChecksumAlgorithmSelector( locator.getService( ChecksumAlgorithmSelector.class ) );
     }
 
     /**
@@ -73,6 +78,18 @@ public class WagonRepositoryConnectorFactory
         return this;
     }
 
+    /**
+     * Sets the selector for the checksum algorithms used to verify downloads and to accompany uploads.
+     * 
+     * @param selector The checksum algorithm selector to use, may be {@code null} to use the default selector.
+     * @return This factory for chaining, never {@code null}.
+     */
+    public WagonRepositoryConnectorFactory setChecksumAlgorithmSelector( ChecksumAlgorithmSelector selector )
+    {
+        this.checksumAlgorithmSelector = ( selector != null ) ? selector : new DefaultChecksumAlgorithmSelector();
+        return this;
+    }
+
     public int getPriority()
     {
         return priority;
@@ -93,7 +110,7 @@ public class WagonRepositoryConnectorFactory
     public RepositoryConnector newInstance( RepositorySystemSession session, RemoteRepository repository )
         throws NoRepositoryConnectorException
     {
-        return new WagonRepositoryConnector( wagonProvider, repository, session, logger );
+        return new WagonRepositoryConnector( wagonProvider, repository, session, checksumAlgorithmSelector, logger );
     }
 
 }
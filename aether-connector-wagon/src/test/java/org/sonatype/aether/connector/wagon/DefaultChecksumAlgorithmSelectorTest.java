@@ -0,0 +1,96 @@
+package org.sonatype.aether.connector.wagon;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.spi.connector.ChecksumAlgorithm;
+import org.sonatype.aether.spi.connector.ChecksumCalculator;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DefaultChecksumAlgorithmSelectorTest
+{
+
+    private List<ChecksumAlgorithm> select( String algorithms )
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        if ( algorithms != null )
+        {
+            session.setConfigProperty( DefaultChecksumAlgorithmSelector.CONFIG_PROP_ALGORITHMS, algorithms );
+        }
+        RemoteRepository repository = new RemoteRepository( "test", "default", "file:///tmp/repo" );
+        return new DefaultChecksumAlgorithmSelector().getChecksumAlgorithms( session, repository );
+    }
+
+    @Test
+    public void testDefaultAlgorithms()
+    {
+        List<ChecksumAlgorithm> algorithms = select( null );
+        assertEquals( 2, algorithms.size() );
+        assertEquals( "SHA-1", algorithms.get( 0 ).getName() );
+        assertEquals( "sha1", algorithms.get( 0 ).getFileExtension() );
+        assertEquals( "MD5", algorithms.get( 1 ).getName() );
+        assertEquals( "md5", algorithms.get( 1 ).getFileExtension() );
+    }
+
+    @Test
+    public void testUnsupportedAlgorithmsAreIgnored()
+    {
+        List<ChecksumAlgorithm> algorithms = select( "SHA-512, NO-SUCH-ALGO,,crc32" );
+        assertEquals( 2, algorithms.size() );
+        assertEquals( "sha512", algorithms.get( 0 ).getFileExtension() );
+        assertEquals( "crc32", algorithms.get( 1 ).getFileExtension() );
+
+        assertTrue( select( "" ).isEmpty() );
+    }
+
+    @Test
+    public void testCalculators()
+        throws Exception
+    {
+        byte[] data = "checksummed content".getBytes( "UTF-8" );
+
+        for ( ChecksumAlgorithm algorithm : select( "SHA-1,CRC32" ) )
+        {
+            ChecksumCalculator calculator = algorithm.newCalculator();
+            calculator.update( data, 0, 4 );
+            calculator.reset();
+            calculator.update( data, 0, 4 );
+            calculator.update( data, 4, data.length - 4 );
+            String checksum = calculator.getChecksum();
+
+            calculator.update( data, 0, data.length );
+            assertEquals( checksum, calculator.getChecksum() );
+
+            if ( "CRC32".equals( algorithm.getName() ) )
+            {
+                CRC32 crc = new CRC32();
+                crc.update( data );
+                assertEquals( Long.parseLong( checksum, 16 ), crc.getValue() );
+            }
+            else
+            {
+                assertEquals( 40, checksum.length() );
+            }
+        }
+
+        assertEquals( "000fff", DefaultChecksumAlgorithmSelector.toHex( new byte[] { 0, 15, -1 } ) );
+    }
+
+}
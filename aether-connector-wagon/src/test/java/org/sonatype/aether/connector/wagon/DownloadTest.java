@@ -0,0 +1,300 @@
+package org.sonatype.aether.connector.wagon;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.providers.file.FileWagon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.ArtifactNotFoundException;
+import org.sonatype.aether.ChecksumFailureException;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositoryPolicy;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.test.util.FileUtil;
+import org.sonatype.aether.util.ChecksumUtils;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DownloadTest
+{
+
+    private File repoDir;
+
+    private File localDir;
+
+    private File artifactFile;
+
+    private RemoteRepository repository;
+
+    private DefaultRepositorySystemSession session;
+
+    private WagonRepositoryConnectorFactory factory;
+
+    private final List<String> streams = Collections.synchronizedList( new ArrayList<String>() );
+
+    private final List<String> requests = Collections.synchronizedList( new ArrayList<String>() );
+
+    private volatile String repairedChecksum;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        repoDir = new File( "target/test-download-repo" );
+        FileUtil.deleteDir( repoDir );
+        localDir = new File( "target/test-download-local" );
+        FileUtil.deleteDir( localDir );
+
+        artifactFile = new File( repoDir, "gid/aid/1/aid-1.jar" );
+        artifactFile.getParentFile().mkdirs();
+        FileUtil.copy( FileUtil.createTempFile( "artifact" ), artifactFile );
+
+        repository = new RemoteRepository( "test", "default", repoDir.toURI().toURL().toString() );
+
+        session = new DefaultRepositorySystemSession();
+        session.setConfigProperty( "aether.connector.wagon.threads", "2" );
+
+        factory = new WagonRepositoryConnectorFactory();
+        factory.setWagonProvider( new WagonProvider()
+        {
+
+            public void release( Wagon wagon )
+            {
+            }
+
+            public Wagon lookup( String roleHint )
+                throws Exception
+            {
+                return new RecordingWagon();
+            }
+
+        } );
+    }
+
+    @After
+    public void teardown()
+    {
+        FileUtil.deleteDir( repoDir );
+        FileUtil.deleteDir( localDir );
+    }
+
+    private ArtifactDownload download( String checksumPolicy )
+        throws Exception
+    {
+        File file = new File( localDir, "aid-1.jar" );
+        ArtifactDownload download =
+            new ArtifactDownload( new DefaultArtifact( "gid", "aid", "jar", "1" ), null, file, checksumPolicy );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.get( Arrays.asList( download ), null );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        return download;
+    }
+
+    private void writeChecksum( String ext, String checksum )
+        throws Exception
+    {
+        FileUtil.copy( FileUtil.createTempFile( checksum ), new File( artifactFile.getPath() + ext ) );
+    }
+
+    @Test
+    public void testChecksumIsFetchedIntoMemory()
+        throws Exception
+    {
+        String sha1 = ChecksumUtils.calc( artifactFile, Arrays.asList( "SHA-1" ) ).get( "SHA-1" ).toString();
+        writeChecksum( ".sha1", sha1 + "  aid-1.jar" );
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNull( download.getException() );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar.sha1" ), streams );
+        assertEquals( sha1, ChecksumUtils.read( new File( localDir, "aid-1.jar.sha1" ) ) );
+        assertTrue( new File( localDir, "aid-1.jar" ).isFile() );
+    }
+
+    @Test
+    public void testFallbackToMd5()
+        throws Exception
+    {
+        String md5 = ChecksumUtils.calc( artifactFile, Arrays.asList( "MD5" ) ).get( "MD5" ).toString();
+        writeChecksum( ".md5", md5 );
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNull( download.getException() );
+        assertEquals( md5, ChecksumUtils.read( new File( localDir, "aid-1.jar.md5" ) ) );
+    }
+
+    @Test
+    public void testChecksumMismatch()
+        throws Exception
+    {
+        writeChecksum( ".sha1", "0123456789012345678901234567890123456789" );
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNotNull( download.getException() );
+        assertTrue( download.getException().getCause() instanceof ChecksumFailureException );
+        assertFalse( new File( localDir, "aid-1.jar" ).exists() );
+
+        download = download( RepositoryPolicy.CHECKSUM_POLICY_WARN );
+
+        assertNull( download.getException() );
+        assertTrue( new File( localDir, "aid-1.jar" ).isFile() );
+        assertFalse( new File( localDir, "aid-1.jar.sha1" ).exists() );
+    }
+
+    @Test
+    public void testMissingChecksums()
+        throws Exception
+    {
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNotNull( download.getException() );
+        assertTrue( download.getException().getCause() instanceof ChecksumFailureException );
+
+        download = download( RepositoryPolicy.CHECKSUM_POLICY_IGNORE );
+
+        assertNull( download.getException() );
+        assertTrue( streams.isEmpty() );
+    }
+
+    @Test
+    public void testConfiguredChecksumAlgorithmsAreTriedInOrder()
+        throws Exception
+    {
+        session.setConfigProperty( DefaultChecksumAlgorithmSelector.CONFIG_PROP_ALGORITHMS, "SHA-512,SHA-256,SHA-1" );
+
+        String sha256 = ChecksumUtils.calc( artifactFile, Arrays.asList( "SHA-256" ) ).get( "SHA-256" ).toString();
+        writeChecksum( ".sha256", sha256 );
+        writeChecksum( ".sha1", "0123456789012345678901234567890123456789" );
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNull( download.getException() );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar.sha256" ), streams );
+        assertEquals( sha256, ChecksumUtils.read( new File( localDir, "aid-1.jar.sha256" ) ) );
+    }
+
+    @Test
+    public void testEmptyChecksumAlgorithmSelectionSkipsVerification()
+        throws Exception
+    {
+        session.setConfigProperty( DefaultChecksumAlgorithmSelector.CONFIG_PROP_ALGORITHMS, "" );
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNull( download.getException() );
+        assertTrue( streams.isEmpty() );
+        assertTrue( new File( localDir, "aid-1.jar" ).isFile() );
+    }
+
+    @Test
+    public void testChecksumIsFetchedAgainAfterMismatch()
+        throws Exception
+    {
+        writeChecksum( ".sha1", "0123456789012345678901234567890123456789" );
+        repairedChecksum = ChecksumUtils.calc( artifactFile, Arrays.asList( "SHA-1" ) ).get( "SHA-1" ).toString();
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertNull( download.getException() );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar.sha1", "gid/aid/1/aid-1.jar.sha1" ), streams );
+        assertEquals( repairedChecksum, ChecksumUtils.read( new File( localDir, "aid-1.jar.sha1" ) ) );
+    }
+
+    @Test
+    public void testMissingArtifactCausesNoChecksumRequests()
+        throws Exception
+    {
+        writeChecksum( ".sha1", "0123456789012345678901234567890123456789" );
+        artifactFile.delete();
+
+        ArtifactDownload download = download( RepositoryPolicy.CHECKSUM_POLICY_FAIL );
+
+        assertTrue( download.getException() instanceof ArtifactNotFoundException );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar" ), requests );
+    }
+
+    class RecordingWagon
+        extends FileWagon
+    {
+
+        @Override
+        public void get( String resourceName, File destination )
+            throws ResourceDoesNotExistException, TransferFailedException, AuthorizationException
+        {
+            requests.add( resourceName );
+            if ( !new File( repoDir, resourceName ).exists() )
+            {
+                // give a checksum fetch that was started prematurely the chance to show up
+                try
+                {
+                    Thread.sleep( 200 );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.get( resourceName, destination );
+        }
+
+        @Override
+        public void getToStream( String resourceName, OutputStream stream )
+            throws ResourceDoesNotExistException, TransferFailedException, AuthorizationException
+        {
+            requests.add( resourceName );
+            super.getToStream( resourceName, stream );
+            streams.add( resourceName );
+
+            if ( repairedChecksum != null )
+            {
+                // simulates a remote repository whose broken checksum gets fixed after the first request
+                try
+                {
+                    writeChecksum( ".sha1", repairedChecksum );
+                }
+                catch ( Exception e )
+                {
+                    throw new TransferFailedException( "could not repair checksum", e );
+                }
+            }
+        }
+
+    }
+
+}
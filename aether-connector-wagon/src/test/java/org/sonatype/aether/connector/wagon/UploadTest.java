@@ -0,0 +1,304 @@
+package org.sonatype.aether.connector.wagon;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.providers.file.FileWagon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.DefaultMetadata;
+import org.sonatype.aether.Metadata;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.test.util.FileUtil;
+import org.sonatype.aether.util.ChecksumUtils;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class UploadTest
+{
+
+    private File repoDir;
+
+    private RemoteRepository repository;
+
+    private DefaultRepositorySystemSession session;
+
+    private WagonRepositoryConnectorFactory factory;
+
+    private final List<String> puts = Collections.synchronizedList( new ArrayList<String>() );
+
+    private final List<String> streams = Collections.synchronizedList( new ArrayList<String>() );
+
+    private int active;
+
+    private int maxActive;
+
+    private boolean partialProgress;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        repoDir = new File( "target/test-upload-repo" );
+        FileUtil.deleteDir( repoDir );
+        repoDir.mkdirs();
+
+        repository = new RemoteRepository( "test", "default", repoDir.toURI().toURL().toString() );
+
+        session = new DefaultRepositorySystemSession();
+        session.setConfigProperty( "aether.connector.wagon.threads", "4" );
+
+        factory = new WagonRepositoryConnectorFactory();
+        factory.setWagonProvider( new WagonProvider()
+        {
+
+            public void release( Wagon wagon )
+            {
+            }
+
+            public Wagon lookup( String roleHint )
+                throws Exception
+            {
+                return new RecordingWagon();
+            }
+
+        } );
+    }
+
+    @After
+    public void teardown()
+    {
+        FileUtil.deleteDir( repoDir );
+    }
+
+    @Test
+    public void testArtifactsAreUploadedConcurrentlyAndBeforeMetadata()
+        throws Exception
+    {
+        File file = FileUtil.createTempFile( "test" );
+
+        List<ArtifactUpload> artifactUploads = new ArrayList<ArtifactUpload>();
+        for ( int i = 0; i < 4; i++ )
+        {
+            artifactUploads.add( new ArtifactUpload( new DefaultArtifact( "gid", "aid-" + i, "jar", "1" ), file ) );
+        }
+        MetadataUpload metadataUpload =
+            new MetadataUpload( new DefaultMetadata( "gid", "aid-0", "maven-metadata.xml",
+                                                     Metadata.Nature.RELEASE_OR_SNAPSHOT ), file );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.put( artifactUploads, Arrays.asList( metadataUpload ) );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        for ( ArtifactUpload upload : artifactUploads )
+        {
+            assertNull( upload.getException() );
+        }
+        assertNull( metadataUpload.getException() );
+
+        assertTrue( "uploads were not concurrent: " + maxActive, maxActive > 1 );
+
+        int metadataIndex = puts.indexOf( "gid/aid-0/maven-metadata.xml" );
+        assertTrue( puts.toString(), metadataIndex >= 0 );
+        for ( int i = metadataIndex; i < puts.size(); i++ )
+        {
+            assertTrue( puts.toString(), puts.get( i ).startsWith( "gid/aid-0/maven-metadata.xml" ) );
+        }
+
+        assertTrue( new File( repoDir, "gid/aid-3/1/aid-3-1.jar" ).isFile() );
+        assertTrue( new File( repoDir, "gid/aid-0/maven-metadata.xml" ).isFile() );
+    }
+
+    @Test
+    public void testFailuresAreReportedPerUpload()
+        throws Exception
+    {
+        File file = FileUtil.createTempFile( "test" );
+        File missing = new File( file.getPath() + ".missing" );
+
+        ArtifactUpload good = new ArtifactUpload( new DefaultArtifact( "gid", "good", "jar", "1" ), file );
+        ArtifactUpload bad = new ArtifactUpload( new DefaultArtifact( "gid", "bad", "jar", "1" ), missing );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.put( Arrays.asList( good, bad ), null );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        assertNull( good.getException() );
+        assertNotNull( bad.getException() );
+        assertSame( bad.getArtifact(), bad.getException().getArtifact() );
+    }
+
+    @Test
+    public void testChecksumsAreUploadedFromMemory()
+        throws Exception
+    {
+        File file = FileUtil.createTempFile( "checksummed content" );
+
+        ArtifactUpload upload = new ArtifactUpload( new DefaultArtifact( "gid", "aid", "jar", "1" ), file );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.put( Arrays.asList( upload ), null );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        assertNull( upload.getException() );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar" ), puts );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar.sha1", "gid/aid/1/aid-1.jar.md5" ), streams );
+
+        Map<String, Object> expected = ChecksumUtils.calc( file, Arrays.asList( "SHA-1", "MD5" ) );
+        assertEquals( expected.get( "SHA-1" ), ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.sha1" ) ) );
+        assertEquals( expected.get( "MD5" ), ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.md5" ) ) );
+    }
+
+    @Test
+    public void testConfiguredChecksumAlgorithms()
+        throws Exception
+    {
+        session.setConfigProperty( DefaultChecksumAlgorithmSelector.CONFIG_PROP_ALGORITHMS, "SHA-256, CRC32" );
+
+        File file = FileUtil.createTempFile( "checksummed content" );
+
+        ArtifactUpload upload = new ArtifactUpload( new DefaultArtifact( "gid", "aid", "jar", "1" ), file );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.put( Arrays.asList( upload ), null );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        assertNull( upload.getException() );
+        assertEquals( Arrays.asList( "gid/aid/1/aid-1.jar.sha256", "gid/aid/1/aid-1.jar.crc32" ), streams );
+
+        Map<String, Object> expected = ChecksumUtils.calc( file, Arrays.asList( "SHA-256" ) );
+        assertEquals( expected.get( "SHA-256" ),
+                      ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.sha256" ) ) );
+        assertEquals( 8, ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.crc32" ) ).length() );
+        assertFalse( new File( repoDir, "gid/aid/1/aid-1.jar.sha1" ).exists() );
+    }
+
+    @Test
+    public void testChecksumsAreCalculatedFromFileIfProgressIsIncomplete()
+        throws Exception
+    {
+        partialProgress = true;
+
+        File file = FileUtil.createTempFile( "checksummed content" );
+
+        ArtifactUpload upload = new ArtifactUpload( new DefaultArtifact( "gid", "aid", "jar", "1" ), file );
+
+        RepositoryConnector connector = factory.newInstance( session, repository );
+        try
+        {
+            connector.put( Arrays.asList( upload ), null );
+        }
+        finally
+        {
+            connector.close();
+        }
+
+        assertNull( upload.getException() );
+
+        Map<String, Object> expected = ChecksumUtils.calc( file, Arrays.asList( "SHA-1", "MD5" ) );
+        assertEquals( expected.get( "SHA-1" ), ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.sha1" ) ) );
+        assertEquals( expected.get( "MD5" ), ChecksumUtils.read( new File( repoDir, "gid/aid/1/aid-1.jar.md5" ) ) );
+    }
+
+    class RecordingWagon
+        extends FileWagon
+    {
+
+        @Override
+        public void put( File source, String destination )
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+        {
+            synchronized ( UploadTest.this )
+            {
+                active++;
+                maxActive = Math.max( maxActive, active );
+            }
+            try
+            {
+                Thread.sleep( 50 );
+                super.put( source, destination );
+                puts.add( destination );
+            }
+            catch ( InterruptedException e )
+            {
+                throw new TransferFailedException( "interrupted", e );
+            }
+            finally
+            {
+                synchronized ( UploadTest.this )
+                {
+                    active--;
+                }
+            }
+        }
+
+        @Override
+        public void putFromStream( InputStream stream, String destination, long contentLength, long lastModified )
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+        {
+            super.putFromStream( stream, destination, contentLength, lastModified );
+            streams.add( destination );
+        }
+
+        @Override
+        protected void fireTransferProgress( TransferEvent transferEvent, byte[] buffer, int n )
+        {
+            super.fireTransferProgress( transferEvent, buffer, partialProgress ? n / 2 : n );
+        }
+
+    }
+
+}
@@ -0,0 +1,293 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.aether.ArtifactDescriptorException;
+import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.VersionRangeResolutionException;
+import org.sonatype.aether.VersionRangeResult;
+
+/**
+ * Retrieves artifact descriptors and version ranges on a bounded thread pool such that the dependency collector can
+ * request the data for dependencies ahead of processing them. The tasks are expected to put their results into the data
+ * pool, pending results and failures are handed out at most once. Additionally, the fetcher keeps track of how
+ * many of the descriptors it retrieved were actually used by the collector.
+ */
+final class DataFetcher
+{
+
+    private final ExecutorService executor;
+
+    private final int depth;
+
+    private final int width;
+
+    private final ConcurrentMap<Object, Future<ArtifactDescriptorResult>> descriptors =
+        new ConcurrentHashMap<Object, Future<ArtifactDescriptorResult>>( 256 );
+
+    private final ConcurrentMap<Object, Future<VersionRangeResult>> constraints =
+        new ConcurrentHashMap<Object, Future<VersionRangeResult>>( 256 );
+
+    private final ConcurrentMap<Object, Boolean> expanded = new ConcurrentHashMap<Object, Boolean>( 256 );
+
+    private final ConcurrentMap<Object, Boolean> prefetched = new ConcurrentHashMap<Object, Boolean>( 256 );
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private int lookups;
+
+    private int hits;
+
+    public DataFetcher( int threads, int depth, int width )
+    {
+        this.depth = depth;
+        this.width = width;
+        executor = new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+    }
+
+    /**
+     * Gets the number of dependency levels below a node whose descriptors should be speculatively fetched.
+     * 
+     * @return The prefetch depth, non-positive if speculative fetching is disabled.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Gets the maximum number of dependencies per descriptor whose descriptors should be speculatively fetched.
+     * 
+     * @return The prefetch width.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Marks the dependencies of the specified descriptor as being speculatively fetched.
+     * 
+     * @param key The descriptor key, must not be {@code null}.
+     * @return {@code true} if the dependencies of the descriptor have not been fetched before, {@code false} otherwise.
+     */
+    public boolean expand( Object key )
+    {
+        return expanded.putIfAbsent( key, Boolean.TRUE ) == null;
+    }
+
+    public void fetchDescriptor( final Object key, final Callable<ArtifactDescriptorResult> task )
+    {
+        fetch( descriptors, key, new Callable<ArtifactDescriptorResult>()
+        {
+            public ArtifactDescriptorResult call()
+                throws Exception
+            {
+                ArtifactDescriptorResult result = task.call();
+                if ( result != null )
+                {
+                    prefetched.put( key, Boolean.TRUE );
+                    fetches.incrementAndGet();
+                }
+                return result;
+            }
+        } );
+    }
+
+    public ArtifactDescriptorResult getDescriptor( Object key )
+        throws ArtifactDescriptorException
+    {
+        try
+        {
+            return get( descriptors, key );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof ArtifactDescriptorException )
+            {
+                throw (ArtifactDescriptorException) cause;
+            }
+            throw unchecked( cause );
+        }
+    }
+
+    /**
+     * Records a lookup of the specified descriptor by the collector.
+     * 
+     * @param key The descriptor key, must not be {@code null}.
+     */
+    public void touchDescriptor( Object key )
+    {
+        lookups++;
+        if ( prefetched.remove( key ) != null )
+        {
+            hits++;
+        }
+    }
+
+    /**
+     * Gets the number of descriptor lookups performed by the collector.
+     */
+    public int getLookups()
+    {
+        return lookups;
+    }
+
+    /**
+     * Gets the number of descriptor lookups that were served by a descriptor fetched in the background.
+     */
+    public int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of descriptors which were fetched in the background.
+     */
+    public int getFetches()
+    {
+        return fetches.get();
+    }
+
+    /**
+     * Gets the number of descriptors which were fetched in the background but not used by the collector (yet).
+     */
+    public int getWasted()
+    {
+        return prefetched.size();
+    }
+
+    public void fetchConstraint( Object key, Callable<VersionRangeResult> task )
+    {
+        fetch( constraints, key, task );
+    }
+
+    public VersionRangeResult getConstraint( Object key )
+        throws VersionRangeResolutionException
+    {
+        try
+        {
+            return get( constraints, key );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof VersionRangeResolutionException )
+            {
+                throw (VersionRangeResolutionException) cause;
+            }
+            throw unchecked( cause );
+        }
+    }
+
+    /**
+     * Stops the fetcher. Pending tasks are cancelled and running tasks are interrupted, the method only returns once
+     * all running tasks have finished such that no more data is put into the data pool and the statistics of this
+     * fetcher are final.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+
+        cancel( descriptors );
+        cancel( constraints );
+
+        try
+        {
+            while ( !executor.awaitTermination( 1, TimeUnit.SECONDS ) )
+            {
+                // keep waiting for running tasks
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void cancel( ConcurrentMap<Object, ? extends Future<?>> futures )
+    {
+        for ( Future<?> future : futures.values() )
+        {
+            future.cancel( true );
+        }
+        futures.clear();
+    }
+
+    private <T> void fetch( ConcurrentMap<Object, Future<T>> futures, Object key, Callable<T> task )
+    {
+        FutureTask<T> future = new FutureTask<T>( task );
+        if ( futures.putIfAbsent( key, future ) == null )
+        {
+            try
+            {
+                executor.execute( future );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // fetcher has been closed, let the caller do the work itself
+                futures.remove( key, future );
+            }
+        }
+    }
+
+    private <T> T get( ConcurrentMap<Object, Future<T>> futures, Object key )
+        throws ExecutionException
+    {
+        Future<T> future = futures.remove( key );
+        if ( future == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            // let the caller do the work itself
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static RuntimeException unchecked( Throwable cause )
+    {
+        if ( cause instanceof RuntimeException )
+        {
+            return (RuntimeException) cause;
+        }
+        if ( cause instanceof Error )
+        {
+            throw (Error) cause;
+        }
+        return new IllegalStateException( cause );
+    }
+
+}
@@ -13,17 +13,21 @@ package org.sonatype.aether.impl.internal;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 import org.sonatype.aether.Artifact;
+import org.sonatype.aether.ArtifactDescriptorException;
 import org.sonatype.aether.ArtifactDescriptorRequest;
 import org.sonatype.aether.ArtifactDescriptorResult;
 import org.sonatype.aether.ArtifactRepository;
@@ -37,9 +41,16 @@ import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.Version;
 import org.sonatype.aether.VersionConstraint;
 import org.sonatype.aether.VersionRangeRequest;
+import org.sonatype.aether.VersionRangeResolutionException;
 import org.sonatype.aether.VersionRangeResult;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.util.BoundedRepositoryCache;
 
 /**
+ * Caches the data gathered during dependency collection. The pool is thread-safe, descriptors and version constraints
+ * are shared via the session's repository cache and are only resolved by one thread at a time.
+ * 
  * @author Benjamin Bentmann
  */
 final class DataPool
@@ -51,26 +62,38 @@ final class DataPool
 
     private static final String DESCRIPTORS = DataPool.class.getName() + "$Descriptors";
 
+    private static final String CONSTRAINTS = DataPool.class.getName() + "$Constraints";
+
     private ObjectPool<Artifact> artifacts;
 
     private ObjectPool<Dependency> dependencies;
 
-    private Map<Object, Descriptor> descriptors;
+    private Store<Descriptor> descriptors;
 
-    private Map<Object, Constraint> constraints = new WeakHashMap<Object, Constraint>();
+    private Store<Constraint> constraints;
 
-    private Map<Object, GraphNode> nodes = new HashMap<Object, GraphNode>();
+    private ConcurrentMap<Object, GraphNode> nodes = new ConcurrentHashMap<Object, GraphNode>( 256 );
+
+    private final DescriptorStore store;
 
-    @SuppressWarnings( "unchecked" )
     public DataPool( RepositorySystemSession session )
     {
+        this( session, null );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public DataPool( RepositorySystemSession session, DescriptorStore store )
+    {
+        this.store = store;
+
         RepositoryCache cache = session.getCache();
 
         if ( cache != null )
         {
             artifacts = (ObjectPool<Artifact>) cache.get( session, ARTIFACT_POOL );
             dependencies = (ObjectPool<Dependency>) cache.get( session, DEPENDENCY_POOL );
-            descriptors = (Map<Object, Descriptor>) cache.get( session, DESCRIPTORS );
+            descriptors = (Store<Descriptor>) cache.get( session, DESCRIPTORS );
+            constraints = (Store<Constraint>) cache.get( session, CONSTRAINTS );
         }
 
         if ( artifacts == null )
@@ -93,12 +116,21 @@ final class DataPool
 
         if ( descriptors == null )
         {
-            descriptors = Collections.synchronizedMap( new WeakHashMap<Object, Descriptor>( 256 ) );
+            descriptors = new Store<Descriptor>();
             if ( cache != null )
             {
                 cache.put( session, DESCRIPTORS, descriptors );
             }
         }
+
+        if ( constraints == null )
+        {
+            constraints = new Store<Constraint>();
+            if ( cache != null )
+            {
+                cache.put( session, CONSTRAINTS, constraints );
+            }
+        }
     }
 
     public Artifact intern( Artifact artifact )
@@ -131,6 +163,68 @@ final class DataPool
         descriptors.put( key, new Descriptor( result ) );
     }
 
+    /**
+     * Gets the specified descriptor from the pool or reads it if not yet pooled. If another thread is already reading
+     * the same descriptor, this method waits for the other thread and uses its result.
+     * 
+     * @param key The descriptor key, must not be {@code null}.
+     * @param request The descriptor request, must not be {@code null}.
+     * @param reader The reader to read the descriptor with, must not be {@code null}.
+     * @param session The repository system session to read the descriptor with, must not be {@code null}.
+     * @return The descriptor, never {@code null}.
+     * @throws ArtifactDescriptorException If the descriptor could not be read.
+     */
+    public ArtifactDescriptorResult readDescriptor( Object key, ArtifactDescriptorRequest request,
+                                                    ArtifactDescriptorReader reader, RepositorySystemSession session )
+        throws ArtifactDescriptorException
+    {
+        while ( true )
+        {
+            ArtifactDescriptorResult result = getDescriptor( key, request );
+            if ( result != null )
+            {
+                return result;
+            }
+
+            CountDownLatch latch = descriptors.lock( key );
+            if ( latch == null )
+            {
+                try
+                {
+                    result = read( request, reader, session );
+                    putDescriptor( key, result );
+                    return result;
+                }
+                finally
+                {
+                    descriptors.unlock( key );
+                }
+            }
+            else if ( !Store.await( latch ) )
+            {
+                result = read( request, reader, session );
+                putDescriptor( key, result );
+                return result;
+            }
+        }
+    }
+
+    private ArtifactDescriptorResult read( ArtifactDescriptorRequest request, ArtifactDescriptorReader reader,
+                                           RepositorySystemSession session )
+        throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorResult result = ( store != null ) ? store.load( request ) : null;
+        if ( result == null )
+        {
+            result = reader.readArtifactDescriptor( session, request );
+            if ( store != null )
+            {
+                store.save( result );
+            }
+        }
+        return result;
+    }
+
     public Object toKey( VersionRangeRequest request )
     {
         return new ConstraintKey( request );
@@ -151,6 +245,52 @@ final class DataPool
         constraints.put( key, new Constraint( result ) );
     }
 
+    /**
+     * Gets the specified version constraint from the pool or resolves it if not yet pooled. If another thread is
+     * already resolving the same constraint, this method waits for the other thread and uses its result.
+     * 
+     * @param key The constraint key, must not be {@code null}.
+     * @param request The version range request, must not be {@code null}.
+     * @param resolver The resolver to resolve the version range with, must not be {@code null}.
+     * @param session The repository system session to resolve the version range with, must not be {@code null}.
+     * @return The version range result, never {@code null}.
+     * @throws VersionRangeResolutionException If the version range could not be resolved.
+     */
+    public VersionRangeResult resolveConstraint( Object key, VersionRangeRequest request,
+                                                 VersionRangeResolver resolver, RepositorySystemSession session )
+        throws VersionRangeResolutionException
+    {
+        while ( true )
+        {
+            VersionRangeResult result = getConstraint( key, request );
+            if ( result != null )
+            {
+                return result;
+            }
+
+            CountDownLatch latch = constraints.lock( key );
+            if ( latch == null )
+            {
+                try
+                {
+                    result = resolver.resolveVersionRange( session, request );
+                    putConstraint( key, result );
+                    return result;
+                }
+                finally
+                {
+                    constraints.unlock( key );
+                }
+            }
+            else if ( !Store.await( latch ) )
+            {
+                result = resolver.resolveVersionRange( session, request );
+                putConstraint( key, result );
+                return result;
+            }
+        }
+    }
+
     public Object toKey( Artifact artifact, List<RemoteRepository> repositories )
     {
         return new NodeKey( artifact, repositories );
@@ -172,6 +312,108 @@ final class DataPool
         nodes.put( key, node );
     }
 
+    /**
+     * Holds the pooled values along with the keys of the values currently being computed. Values are softly referenced
+     * so the garbage collector can reclaim them when memory runs short in long-lived sessions.
+     */
+    static class Store<V>
+        implements BoundedRepositoryCache.Weighable
+    {
+
+        final ConcurrentMap<Object, Ref<V>> values = new ConcurrentHashMap<Object, Ref<V>>( 256 );
+
+        private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+        private final ConcurrentMap<Object, CountDownLatch> latches = new ConcurrentHashMap<Object, CountDownLatch>();
+
+        public V get( Object key )
+        {
+            expunge();
+
+            Ref<V> ref = values.get( key );
+            return ( ref != null ) ? ref.get() : null;
+        }
+
+        public void put( Object key, V value )
+        {
+            expunge();
+
+            values.put( key, new Ref<V>( key, value, queue ) );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private void expunge()
+        {
+            for ( Reference<? extends V> ref = queue.poll(); ref != null; ref = queue.poll() )
+            {
+                values.remove( ( (Ref<V>) ref ).key, ref );
+            }
+        }
+
+        /**
+         * Gets the number of values in the store, including those which have been garbage collected but not yet
+         * purged.
+         * 
+         * @return The number of values in the store.
+         */
+        int size()
+        {
+            return values.size();
+        }
+
+        public int getWeight()
+        {
+            return Math.max( values.size(), 1 );
+        }
+
+        /**
+         * Marks the value for the specified key as being computed by the current thread.
+         * 
+         * @return {@code null} if the current thread may compute the value, otherwise the latch to await completion of
+         *         the thread that is already computing the value.
+         */
+        CountDownLatch lock( Object key )
+        {
+            CountDownLatch latch = new CountDownLatch( 1 );
+            return latches.putIfAbsent( key, latch );
+        }
+
+        void unlock( Object key )
+        {
+            latches.remove( key ).countDown();
+        }
+
+        static boolean await( CountDownLatch latch )
+        {
+            try
+            {
+                latch.await();
+                return true;
+            }
+            catch ( InterruptedException e )
+            {
+                // compute the value without further ado
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        static final class Ref<V>
+            extends SoftReference<V>
+        {
+
+            final Object key;
+
+            public Ref( Object key, V value, ReferenceQueue<V> queue )
+            {
+                super( value, queue );
+                this.key = key;
+            }
+
+        }
+
+    }
+
     static class Descriptor
     {
 
@@ -204,7 +446,7 @@ final class DataPool
             result.setProperties( properties );
             result.setRelocations( relocations );
             result.setDependencies( dependencies );
-            result.setManagedDependencies( dependencies );
+            result.setManagedDependencies( managedDependencies );
             result.setRepositories( clone( repositories ) );
             return result;
         }
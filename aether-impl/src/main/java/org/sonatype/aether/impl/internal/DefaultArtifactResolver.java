@@ -24,7 +24,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.util.FileUtils;
 import org.sonatype.aether.Artifact;
 import org.sonatype.aether.ArtifactNotFoundException;
 import org.sonatype.aether.ArtifactRepository;
@@ -51,6 +50,7 @@ import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.UpdateCheck;
 import org.sonatype.aether.impl.UpdateCheckManager;
 import org.sonatype.aether.impl.VersionResolver;
+import org.sonatype.aether.util.FileCopyUtils;
 import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
 import org.sonatype.aether.spi.connector.ArtifactDownload;
 import org.sonatype.aether.spi.connector.RepositoryConnector;
@@ -67,6 +67,8 @@ public class DefaultArtifactResolver
     implements ArtifactResolver, Service
 {
 
+    private static final DownloadFlights FLIGHTS = new DownloadFlights();
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -284,122 +286,88 @@ public class DefaultArtifactResolver
 
         for ( ResolutionGroup group : groups )
         {
-            List<ArtifactDownload> downloads = new ArrayList<ArtifactDownload>();
-            for ( ResolutionItem item : group.items )
+            List<ResolutionItem> leaders = new ArrayList<ResolutionItem>();
+            List<ResolutionItem> followers = new ArrayList<ResolutionItem>();
+            try
             {
-                Artifact artifact = item.artifact;
-
-                if ( item.resolved.get() )
-                {
-                    // resolved in previous resolution group
-                    continue;
-                }
-
-                ArtifactDownload download = new ArtifactDownload();
-                download.setArtifact( artifact );
-                download.setRequestContext( item.request.getRequestContext() );
-                if ( item.local.getFile() != null )
-                {
-                    download.setFile( item.local.getFile() );
-                    download.setExistenceCheck( true );
-                }
-                else
-                {
-                    String path =
-                        lrm.getPathForRemoteArtifact( artifact, group.repository, item.request.getRequestContext() );
-                    download.setFile( new File( lrm.getRepository().getBasedir(), path ) );
-                }
-
-                boolean snapshot = artifact.isSnapshot();
-                RepositoryPolicy policy =
-                    remoteRepositoryManager.getPolicy( session, group.repository, !snapshot, snapshot );
-
-                if ( session.isNotFoundCachingEnabled() || session.isTransferErrorCachingEnabled() )
+                for ( ResolutionItem item : group.items )
                 {
-                    UpdateCheck<Artifact, ArtifactTransferException> check =
-                        new UpdateCheck<Artifact, ArtifactTransferException>();
-                    check.setItem( artifact );
-                    check.setFile( download.getFile() );
-                    check.setRepository( group.repository );
-                    check.setPolicy( policy.getUpdatePolicy() );
-                    item.updateCheck = check;
-                    updateCheckManager.checkArtifact( session, check );
-                    if ( !check.isRequired() && check.getException() != null )
+                    if ( item.resolved.get() )
                     {
-                        item.result.addException( check.getException() );
+                        // resolved in previous resolution group
                         continue;
                     }
+
+                    File file = getTargetFile( lrm, group.repository, item );
+                    DownloadFlights.Flight flight = new DownloadFlights.Flight( group.repository.getUrl(), file );
+                    DownloadFlights.Flight pending = FLIGHTS.register( flight );
+                    if ( pending == null )
+                    {
+                        item.flight = flight;
+                        leaders.add( item );
+                    }
+                    else
+                    {
+                        item.flight = pending;
+                        followers.add( item );
+                    }
                 }
 
-                download.setChecksumPolicy( policy.getChecksumPolicy() );
-                download.setRepositories( item.repository.getMirroredRepositories() );
-                downloads.add( download );
-                item.download = download;
-            }
-            if ( downloads.isEmpty() )
-            {
-                continue;
-            }
-            try
-            {
-                RepositoryConnector connector =
-                    remoteRepositoryManager.getRepositoryConnector( session, group.repository );
+                List<NamedLocks.NamedLock> locks = new ArrayList<NamedLocks.NamedLock>();
+                List<ResolutionItem> deferred = new ArrayList<ResolutionItem>();
                 try
                 {
-                    connector.get( downloads, null );
+                    List<ResolutionItem> items = new ArrayList<ResolutionItem>();
+                    for ( ResolutionItem item : leaders )
+                    {
+                        NamedLocks.NamedLock lock = newLock( lrm, group.repository, item );
+                        if ( lock.tryLock() )
+                        {
+                            locks.add( lock );
+                            items.add( item );
+                        }
+                        else
+                        {
+                            deferred.add( item );
+                        }
+                    }
+                    resolve( session, group.repository, items );
                 }
                 finally
                 {
-                    connector.close();
-                }
-            }
-            catch ( NoRepositoryConnectorException e )
-            {
-                for ( ArtifactDownload download : downloads )
-                {
-                    download.setException( new ArtifactTransferException( download.getArtifact(), group.repository, e ) );
-                }
-            }
-            for ( ResolutionItem item : group.items )
-            {
-                ArtifactDownload download = item.download;
-                if ( download == null )
-                {
-                    continue;
+                    for ( NamedLocks.NamedLock lock : locks )
+                    {
+                        lock.unlock();
+                    }
                 }
 
-                if ( item.updateCheck != null )
+                for ( ResolutionItem item : deferred )
                 {
-                    item.updateCheck.setException( download.getException() );
-                    updateCheckManager.touchArtifact( session, item.updateCheck );
-                }
-                if ( download.getException() == null )
-                {
-                    item.resolved.set( true );
-                    item.result.setRepository( group.repository );
-                    Artifact artifact = download.getArtifact();
+                    // another thread or process is writing the file, wait for it before transferring the file ourselves
+                    NamedLocks.NamedLock lock = newLock( lrm, group.repository, item );
+                    lock.lock();
                     try
                     {
-                        artifact = artifact.setFile( getFile( artifact, download.getFile() ) );
-                        item.result.setArtifact( artifact );
-                    }
-                    catch ( ArtifactTransferException e )
-                    {
-                        item.result.addException( e );
-                        continue;
+                        resolve( session, group.repository, Collections.singletonList( item ) );
                     }
-                    lrm.addRemoteArtifact( artifact, group.repository, download.getSupportedContexts() );
-                    if ( maintainer != null )
+                    finally
                     {
-                        maintainer.artifactDownloaded( new DefaultLocalRepositoryEvent( session, artifact ) );
+                        lock.unlock();
                     }
-                    artifactResolved( session, artifact, group.repository, null );
                 }
-                else
+            }
+            finally
+            {
+                for ( ResolutionItem item : leaders )
                 {
-                    item.result.addException( download.getException() );
+                    complete( item, group.repository );
                 }
             }
+
+            for ( ResolutionItem item : followers )
+            {
+                follow( session, item, group.repository );
+            }
         }
 
         for ( ArtifactResult result : results )
@@ -425,6 +393,262 @@ public class DefaultArtifactResolver
         return results;
     }
 
+    private void resolve( RepositorySystemSession session, RemoteRepository repository, List<ResolutionItem> items )
+    {
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+
+        List<ArtifactDownload> downloads = new ArrayList<ArtifactDownload>();
+        for ( ResolutionItem item : items )
+        {
+            Artifact artifact = item.artifact;
+
+            if ( isResolvedConcurrently( session, item, repository ) )
+            {
+                // downloaded by another thread or process while we were waiting for the lock
+                continue;
+            }
+
+            ArtifactDownload download = new ArtifactDownload();
+            download.setArtifact( artifact );
+            download.setRequestContext( item.request.getRequestContext() );
+            if ( item.local.getFile() != null )
+            {
+                download.setFile( item.local.getFile() );
+                download.setExistenceCheck( true );
+            }
+            else
+            {
+                download.setFile( getTargetFile( lrm, repository, item ) );
+            }
+
+            boolean snapshot = artifact.isSnapshot();
+            RepositoryPolicy policy = remoteRepositoryManager.getPolicy( session, repository, !snapshot, snapshot );
+
+            if ( session.isNotFoundCachingEnabled() || session.isTransferErrorCachingEnabled() )
+            {
+                UpdateCheck<Artifact, ArtifactTransferException> check =
+                    new UpdateCheck<Artifact, ArtifactTransferException>();
+                check.setItem( artifact );
+                check.setFile( download.getFile() );
+                check.setRepository( repository );
+                check.setPolicy( policy.getUpdatePolicy() );
+                item.updateCheck = check;
+                updateCheckManager.checkArtifact( session, check );
+                if ( !check.isRequired() && check.getException() != null )
+                {
+                    addException( item, check.getException() );
+                    continue;
+                }
+            }
+
+            download.setChecksumPolicy( policy.getChecksumPolicy() );
+            download.setRepositories( item.repository.getMirroredRepositories() );
+            downloads.add( download );
+            item.download = download;
+        }
+        if ( !downloads.isEmpty() )
+        {
+            download( session, repository, downloads );
+        }
+        for ( ResolutionItem item : items )
+        {
+            ArtifactDownload download = item.download;
+            if ( download == null )
+            {
+                continue;
+            }
+
+            if ( item.updateCheck != null )
+            {
+                item.updateCheck.setException( download.getException() );
+                updateCheckManager.touchArtifact( session, item.updateCheck );
+            }
+            if ( download.getException() == null )
+            {
+                item.resolved.set( true );
+                item.result.setRepository( repository );
+                Artifact artifact = download.getArtifact();
+                try
+                {
+                    artifact = artifact.setFile( getFile( artifact, download.getFile() ) );
+                    item.result.setArtifact( artifact );
+                }
+                catch ( ArtifactTransferException e )
+                {
+                    addException( item, e );
+                    continue;
+                }
+                lrm.addRemoteArtifact( artifact, repository, download.getSupportedContexts() );
+                if ( maintainer != null )
+                {
+                    maintainer.artifactDownloaded( new DefaultLocalRepositoryEvent( session, artifact ) );
+                }
+                artifactResolved( session, artifact, repository, null );
+            }
+            else
+            {
+                addException( item, download.getException() );
+            }
+        }
+    }
+
+    private void download( RepositorySystemSession session, RemoteRepository repository,
+                           List<ArtifactDownload> downloads )
+    {
+        try
+        {
+            RepositoryConnector connector = remoteRepositoryManager.getRepositoryConnector( session, repository );
+            try
+            {
+                connector.get( downloads, null );
+            }
+            finally
+            {
+                connector.close();
+            }
+        }
+        catch ( NoRepositoryConnectorException e )
+        {
+            for ( ArtifactDownload download : downloads )
+            {
+                download.setException( new ArtifactTransferException( download.getArtifact(), repository, e ) );
+            }
+        }
+    }
+
+    private File getTargetFile( LocalRepositoryManager lrm, RemoteRepository repository, ResolutionItem item )
+    {
+        File file = item.local.getFile();
+        if ( file == null )
+        {
+            String path = lrm.getPathForRemoteArtifact( item.artifact, repository, item.request.getRequestContext() );
+            file = new File( lrm.getRepository().getBasedir(), path );
+        }
+        return file;
+    }
+
+    private NamedLocks.NamedLock newLock( LocalRepositoryManager lrm, RemoteRepository repository, ResolutionItem item )
+    {
+        String name = getTargetFile( lrm, repository, item ).getAbsolutePath();
+        NamedLocks locks = NamedLocks.getInstance( lrm.getRepository().getBasedir() );
+        return locks.newLock( Collections.singleton( name ), logger );
+    }
+
+    private void complete( ResolutionItem item, RemoteRepository repository )
+    {
+        File file = null;
+        Exception exception = item.exception;
+
+        if ( item.resolved.get() && item.result.getArtifact() != null )
+        {
+            file = item.result.getArtifact().getFile();
+        }
+        else if ( exception == null )
+        {
+            exception = new ArtifactTransferException( item.artifact, repository, "Download was aborted" );
+        }
+
+        FLIGHTS.complete( item.flight, file, exception );
+    }
+
+    private void follow( RepositorySystemSession session, ResolutionItem item, RemoteRepository repository )
+    {
+        try
+        {
+            item.flight.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            addException( item, new ArtifactTransferException( item.artifact, repository, e ) );
+            return;
+        }
+
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+
+        Exception exception = item.flight.getException();
+
+        if ( ( session.isNotFoundCachingEnabled() || session.isTransferErrorCachingEnabled() )
+            && ( exception == null || exception instanceof ArtifactTransferException ) )
+        {
+            boolean snapshot = item.artifact.isSnapshot();
+            RepositoryPolicy policy = remoteRepositoryManager.getPolicy( session, repository, !snapshot, snapshot );
+
+            UpdateCheck<Artifact, ArtifactTransferException> check =
+                new UpdateCheck<Artifact, ArtifactTransferException>();
+            check.setItem( item.artifact );
+            check.setFile( getTargetFile( lrm, repository, item ) );
+            check.setRepository( repository );
+            check.setPolicy( policy.getUpdatePolicy() );
+            check.setException( (ArtifactTransferException) exception );
+            updateCheckManager.touchArtifact( session, check );
+        }
+
+        if ( exception != null )
+        {
+            addException( item, exception );
+            return;
+        }
+
+        item.resolved.set( true );
+        item.result.setRepository( repository );
+        Artifact artifact = item.artifact;
+        try
+        {
+            artifact = artifact.setFile( getFile( artifact, item.flight.getFile() ) );
+            item.result.setArtifact( artifact );
+        }
+        catch ( ArtifactTransferException e )
+        {
+            addException( item, e );
+            return;
+        }
+        lrm.addRemoteArtifact( artifact, repository, Collections.singleton( item.request.getRequestContext() ) );
+        if ( maintainer != null )
+        {
+            maintainer.artifactDownloaded( new DefaultLocalRepositoryEvent( session, artifact ) );
+        }
+        artifactResolved( session, artifact, repository, null );
+    }
+
+    private void addException( ResolutionItem item, Exception exception )
+    {
+        item.exception = exception;
+        item.result.addException( exception );
+    }
+
+    private boolean isResolvedConcurrently( RepositorySystemSession session, ResolutionItem item,
+                                            RemoteRepository repository )
+    {
+        if ( item.local.isAvailable() )
+        {
+            return false;
+        }
+
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+        LocalArtifactResult local =
+            lrm.find( new LocalArtifactRequest( item.artifact, Collections.singletonList( repository ),
+                                                item.request.getRequestContext() ) );
+        if ( !local.isAvailable() )
+        {
+            return false;
+        }
+
+        item.resolved.set( true );
+        item.result.setRepository( lrm.getRepository() );
+        try
+        {
+            Artifact artifact = item.artifact.setFile( getFile( item.artifact, local.getFile() ) );
+            item.result.setArtifact( artifact );
+            artifactResolved( session, artifact, lrm.getRepository(), null );
+        }
+        catch ( ArtifactTransferException e )
+        {
+            addException( item, e );
+        }
+        return true;
+    }
+
     private File getFile( Artifact artifact, File file )
         throws ArtifactTransferException
     {
@@ -438,7 +662,7 @@ public class DefaultArtifactResolver
             {
                 try
                 {
-                    FileUtils.copyFile( file, dst );
+                    FileCopyUtils.copy( file, dst );
                     dst.setLastModified( file.lastModified() );
                 }
                 catch ( IOException e )
@@ -520,6 +744,10 @@ public class DefaultArtifactResolver
 
         UpdateCheck<Artifact, ArtifactTransferException> updateCheck;
 
+        DownloadFlights.Flight flight;
+
+        Exception exception;
+
         ResolutionItem( Artifact artifact, AtomicBoolean resolved, ArtifactResult result, LocalArtifactResult local,
                         RemoteRepository repository )
         {
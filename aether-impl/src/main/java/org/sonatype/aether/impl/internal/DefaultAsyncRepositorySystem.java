@@ -0,0 +1,29 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.sonatype.aether.AsyncRepositorySystem;
+
+/**
+ * Registers the default repository system under the role of the asynchronous repository system. A Plexus component
+ * has exactly one role, so the {@link DefaultRepositorySystem} itself is only looked up as a
+ * {@link org.sonatype.aether.RepositorySystem}.
+ */
+@Component( role = AsyncRepositorySystem.class )
+public class DefaultAsyncRepositorySystem
+    extends DefaultRepositorySystem
+{
+
+}
@@ -19,6 +19,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -29,6 +31,7 @@ import org.sonatype.aether.ArtifactDescriptorResult;
 import org.sonatype.aether.ArtifactRepository;
 import org.sonatype.aether.CollectRequest;
 import org.sonatype.aether.CollectResult;
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.Dependency;
 import org.sonatype.aether.DependencyCollectionException;
 import org.sonatype.aether.DependencyGraphTransformer;
@@ -62,6 +65,39 @@ public class DefaultDependencyCollector
     implements DependencyCollector, Service
 {
 
+    /**
+     * The number of threads to use for fetching artifact descriptors and version ranges. Values less than 2 disable
+     * concurrent fetching, i.e. the dependency graph is collected on the calling thread only.
+     */
+    static final String CONFIG_PROP_THREADS = "aether.dependencyCollector.threads";
+
+    /**
+     * The number of dependency levels below a node whose artifact descriptors should be speculatively fetched in the
+     * background once the node's own descriptor is known. Values less than 1 disable speculative fetching.
+     */
+    static final String CONFIG_PROP_PREFETCH_DEPTH = "aether.dependencyCollector.prefetchDepth";
+
+    /**
+     * The maximum number of dependencies per artifact descriptor that are considered for speculative fetching.
+     */
+    static final String CONFIG_PROP_PREFETCH_WIDTH = "aether.dependencyCollector.prefetchWidth";
+
+    private static final int DEFAULT_PREFETCH_WIDTH = 16;
+
+    /**
+     * A flag whether artifact descriptors should be persisted below the local repository such that later sessions can
+     * reuse them without reading the underlying POMs again.
+     */
+    static final String CONFIG_PROP_DESCRIPTOR_CACHE = "aether.dependencyCollector.descriptorCache";
+
+    /**
+     * A comma-separated list of additional system or configuration properties whose values affect the artifact
+     * descriptors (e.g. because profiles are activated by them) and hence need to be part of the key of persisted
+     * descriptors. User properties and the properties {@code java.version}, {@code os.name}, {@code os.arch} and
+     * {@code os.version} are always part of the key.
+     */
+    static final String CONFIG_PROP_DESCRIPTOR_CACHE_KEYS = "aether.dependencyCollector.descriptorCache.keys";
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -201,7 +237,9 @@ public class DefaultDependencyCollector
 
         if ( traverse && !dependencies.isEmpty() )
         {
-            DataPool pool = new DataPool( session );
+            DataPool pool = new DataPool( session, newDescriptorStore( session ) );
+
+            DataFetcher fetcher = newDataFetcher( session );
 
             LinkedList<GraphEdge> edges = new LinkedList<GraphEdge>();
             edges.addFirst( edge );
@@ -209,8 +247,27 @@ public class DefaultDependencyCollector
             DefaultDependencyCollectionContext context =
                 new DefaultDependencyCollectionContext( session, root, managedDependencies );
 
-            process( session, result, edges, dependencies, repositories, depSelector.deriveChildSelector( context ),
-                     depManager.deriveChildManager( context ), depTraverser.deriveChildTraverser( context ), pool );
+            try
+            {
+                process( session, result, edges, dependencies, repositories,
+                         depSelector.deriveChildSelector( context ), depManager.deriveChildManager( context ),
+                         depTraverser.deriveChildTraverser( context ), pool, fetcher );
+            }
+            finally
+            {
+                if ( fetcher != null )
+                {
+                    fetcher.close();
+
+                    if ( logger.isDebugEnabled() )
+                    {
+                        logger.debug( "Dependency collection performed " + fetcher.getLookups()
+                            + " descriptor lookups, " + fetcher.getHits() + " of which were served by "
+                            + fetcher.getFetches() + " descriptors fetched in the background, "
+                            + fetcher.getWasted() + " fetched descriptors remained unused" );
+                    }
+                }
+            }
         }
 
         DependencyGraphTransformer transformer = session.getDependencyGraphTransformer();
@@ -233,6 +290,28 @@ public class DefaultDependencyCollector
         return result;
     }
 
+    DataFetcher newDataFetcher( RepositorySystemSession session )
+    {
+        Map<String, Object> config = session.getConfigProperties();
+        int threads = ConfigurationProperties.get( config, CONFIG_PROP_THREADS, 1 );
+        int depth = ConfigurationProperties.get( config, CONFIG_PROP_PREFETCH_DEPTH, 0 );
+        int width = ConfigurationProperties.get( config, CONFIG_PROP_PREFETCH_WIDTH, DEFAULT_PREFETCH_WIDTH );
+        if ( threads <= 1 && depth <= 0 )
+        {
+            return null;
+        }
+        return new DataFetcher( Math.max( threads, 1 ), depth, width );
+    }
+
+    private DescriptorStore newDescriptorStore( RepositorySystemSession session )
+    {
+        if ( !ConfigurationProperties.get( session.getConfigProperties(), CONFIG_PROP_DESCRIPTOR_CACHE, false ) )
+        {
+            return null;
+        }
+        return new DescriptorStore( session );
+    }
+
     private RepositorySystemSession optimizeSession( RepositorySystemSession session )
     {
         DefaultRepositorySystemSession optimized = new DefaultRepositorySystemSession( session );
@@ -279,9 +358,14 @@ public class DefaultDependencyCollector
     private void process( RepositorySystemSession session, CollectResult result, LinkedList<GraphEdge> edges,
                           List<Dependency> dependencies, List<RemoteRepository> repositories,
                           DependencySelector depSelector, DependencyManager depManager,
-                          DependencyTraverser depTraverser, DataPool pool )
+                          DependencyTraverser depTraverser, DataPool pool, DataFetcher fetcher )
         throws DependencyCollectionException
     {
+        if ( fetcher != null )
+        {
+            prefetch( session, result, dependencies, repositories, depSelector, depManager, pool, fetcher );
+        }
+
         nextDependency: for ( Dependency dependency : dependencies )
         {
             boolean disableVersionManagement = false;
@@ -326,17 +410,21 @@ public class DefaultDependencyCollector
                 VersionRangeResult rangeResult;
                 try
                 {
-                    VersionRangeRequest rangeRequest = new VersionRangeRequest();
-                    rangeRequest.setArtifact( dependency.getArtifact() );
-                    rangeRequest.setRepositories( repositories );
-                    rangeRequest.setRequestContext( result.getRequest().getRequestContext() );
+                    VersionRangeRequest rangeRequest =
+                        newVersionRangeRequest( dependency.getArtifact(), repositories, result );
 
                     Object key = pool.toKey( rangeRequest );
                     rangeResult = pool.getConstraint( key, rangeRequest );
                     if ( rangeResult == null )
                     {
-                        rangeResult = versionRangeResolver.resolveVersionRange( session, rangeRequest );
-                        pool.putConstraint( key, rangeResult );
+                        if ( fetcher != null )
+                        {
+                            rangeResult = fetcher.getConstraint( key );
+                        }
+                        if ( rangeResult == null )
+                        {
+                            rangeResult = pool.resolveConstraint( key, rangeRequest, versionRangeResolver, session );
+                        }
                     }
 
                     if ( rangeResult.getVersions().isEmpty() )
@@ -358,24 +446,13 @@ public class DefaultDependencyCollector
                     Dependency originalDependency = dependency.setArtifact( originalArtifact );
                     Dependency d = originalDependency;
 
-                    List<RemoteRepository> repos = null;
-                    ArtifactRepository repo = rangeResult.getRepository( version );
-                    if ( repo instanceof RemoteRepository )
-                    {
-                        repos = Collections.singletonList( (RemoteRepository) repo );
-                    }
-                    else if ( repo == null )
-                    {
-                        repos = repositories;
-                    }
+                    List<RemoteRepository> repos = getRepositories( rangeResult, version, repositories );
 
                     ArtifactDescriptorResult descriptorResult;
                     try
                     {
-                        ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
-                        descriptorRequest.setArtifact( d.getArtifact() );
-                        descriptorRequest.setRepositories( repos );
-                        descriptorRequest.setRequestContext( result.getRequest().getRequestContext() );
+                        ArtifactDescriptorRequest descriptorRequest =
+                            newArtifactDescriptorRequest( d.getArtifact(), repos, result );
 
                         if ( noDescriptor )
                         {
@@ -385,10 +462,19 @@ public class DefaultDependencyCollector
                         {
                             Object key = pool.toKey( descriptorRequest );
                             descriptorResult = pool.getDescriptor( key, descriptorRequest );
+                            if ( descriptorResult == null && fetcher != null && fetcher.getDescriptor( key ) != null )
+                            {
+                                descriptorResult = pool.getDescriptor( key, descriptorRequest );
+                            }
                             if ( descriptorResult == null )
                             {
-                                descriptorResult = descriptorReader.readArtifactDescriptor( session, descriptorRequest );
-                                pool.putDescriptor( key, descriptorResult );
+                                descriptorResult =
+                                    pool.readDescriptor( key, descriptorRequest, descriptorReader, session );
+                            }
+                            if ( fetcher != null )
+                            {
+                                fetcher.touchDescriptor( key );
+                                speculate( session, result, key, descriptorResult, repos, 1, pool, fetcher );
                             }
                         }
                     }
@@ -484,7 +570,7 @@ public class DefaultDependencyCollector
                         edges.addFirst( edge );
 
                         process( session, result, edges, descriptorResult.getDependencies(), childRepos, childSelector,
-                                 childManager, childTraverser, pool );
+                                 childManager, childTraverser, pool, fetcher );
 
                         edges.removeFirst();
                     }
@@ -495,6 +581,212 @@ public class DefaultDependencyCollector
         }
     }
 
+    /**
+     * Hands the version ranges and artifact descriptors of the specified sibling dependencies to the fetcher so they
+     * are retrieved concurrently while {@link #process} walks over the dependencies in order. The requests issued here
+     * mirror the ones made by {@link #process}, any result that the walk does not pick up is simply discarded.
+     */
+    private void prefetch( final RepositorySystemSession session, final CollectResult result,
+                           List<Dependency> dependencies, List<RemoteRepository> repositories,
+                           DependencySelector depSelector, DependencyManager depManager, final DataPool pool,
+                           final DataFetcher fetcher )
+    {
+        for ( Dependency dependency : dependencies )
+        {
+            if ( !depSelector.selectDependency( dependency ) )
+            {
+                continue;
+            }
+
+            Artifact artifact = dependency.getArtifact();
+
+            DependencyManagement depMngt = depManager.manageDependency( dependency );
+            if ( depMngt != null && depMngt.getVersion() != null )
+            {
+                artifact = artifact.setVersion( depMngt.getVersion() );
+            }
+
+            final boolean noDescriptor = isLackingDescriptor( artifact );
+
+            final VersionRangeRequest rangeRequest = newVersionRangeRequest( artifact, repositories, result );
+
+            final Object key = pool.toKey( rangeRequest );
+            VersionRangeResult rangeResult = pool.getConstraint( key, rangeRequest );
+            if ( rangeResult != null )
+            {
+                if ( !noDescriptor )
+                {
+                    prefetch( session, result, rangeRequest, rangeResult, pool, fetcher );
+                }
+                continue;
+            }
+
+            fetcher.fetchConstraint( key, new Callable<VersionRangeResult>()
+            {
+                public VersionRangeResult call()
+                    throws Exception
+                {
+                    VersionRangeResult rangeResult =
+                        pool.resolveConstraint( key, rangeRequest, versionRangeResolver, session );
+                    if ( !noDescriptor )
+                    {
+                        prefetch( session, result, rangeRequest, rangeResult, pool, fetcher );
+                    }
+                    return rangeResult;
+                }
+            } );
+        }
+    }
+
+    private void prefetch( final RepositorySystemSession session, final CollectResult result,
+                           VersionRangeRequest rangeRequest, VersionRangeResult rangeResult, final DataPool pool,
+                           final DataFetcher fetcher )
+    {
+        for ( Version version : rangeResult.getVersions() )
+        {
+            Artifact artifact = rangeRequest.getArtifact().setVersion( version.toString() );
+            final List<RemoteRepository> repos =
+                getRepositories( rangeResult, version, rangeRequest.getRepositories() );
+
+            final ArtifactDescriptorRequest descriptorRequest = newArtifactDescriptorRequest( artifact, repos, result );
+
+            final Object key = pool.toKey( descriptorRequest );
+            if ( pool.getDescriptor( key, descriptorRequest ) != null )
+            {
+                continue;
+            }
+
+            fetcher.fetchDescriptor( key, new Callable<ArtifactDescriptorResult>()
+            {
+                public ArtifactDescriptorResult call()
+                    throws Exception
+                {
+                    ArtifactDescriptorResult descriptorResult =
+                        pool.readDescriptor( key, descriptorRequest, descriptorReader, session );
+                    speculate( session, result, key, descriptorResult, repos, 1, pool, fetcher );
+                    return descriptorResult;
+                }
+            } );
+        }
+    }
+
+    /**
+     * Speculatively fetches the descriptors of the dependencies declared by the specified descriptor, recursing down to
+     * the configured prefetch depth. Unlike {@link #prefetch}, this cannot account for dependency management or
+     * repositories contributed by the descriptors, so the fetched data is a mere guess. Descriptors that could not be
+     * read are not reported, the collector will simply attempt to read those itself.
+     */
+    private void speculate( final RepositorySystemSession session, final CollectResult result, Object key,
+                            ArtifactDescriptorResult descriptorResult, final List<RemoteRepository> repositories,
+                            final int level, final DataPool pool, final DataFetcher fetcher )
+    {
+        if ( level > fetcher.getDepth() || ( level == 1 && !fetcher.expand( key ) ) )
+        {
+            return;
+        }
+
+        int count = 0;
+        for ( Dependency dependency : descriptorResult.getDependencies() )
+        {
+            if ( count >= fetcher.getWidth() )
+            {
+                break;
+            }
+            if ( dependency.isOptional() || isLackingDescriptor( dependency.getArtifact() ) )
+            {
+                continue;
+            }
+            count++;
+
+            final VersionRangeRequest rangeRequest =
+                newVersionRangeRequest( dependency.getArtifact(), repositories, result );
+
+            final Object rangeKey = pool.toKey( rangeRequest );
+            fetcher.fetchConstraint( rangeKey, new Callable<VersionRangeResult>()
+            {
+                public VersionRangeResult call()
+                    throws Exception
+                {
+                    VersionRangeResult rangeResult =
+                        pool.resolveConstraint( rangeKey, rangeRequest, versionRangeResolver, session );
+
+                    for ( Version version : rangeResult.getVersions() )
+                    {
+                        Artifact artifact = rangeRequest.getArtifact().setVersion( version.toString() );
+                        final List<RemoteRepository> repos = getRepositories( rangeResult, version, repositories );
+
+                        final ArtifactDescriptorRequest descriptorRequest =
+                            newArtifactDescriptorRequest( artifact, repos, result );
+
+                        final Object key = pool.toKey( descriptorRequest );
+                        if ( pool.getDescriptor( key, descriptorRequest ) != null )
+                        {
+                            continue;
+                        }
+
+                        fetcher.fetchDescriptor( key, new Callable<ArtifactDescriptorResult>()
+                        {
+                            public ArtifactDescriptorResult call()
+                            {
+                                ArtifactDescriptorResult descriptorResult;
+                                try
+                                {
+                                    descriptorResult =
+                                        pool.readDescriptor( key, descriptorRequest, descriptorReader, session );
+                                }
+                                catch ( Exception e )
+                                {
+                                    return null;
+                                }
+                                speculate( session, result, key, descriptorResult, repos, level + 1, pool, fetcher );
+                                return descriptorResult;
+                            }
+                        } );
+                    }
+
+                    return rangeResult;
+                }
+            } );
+        }
+    }
+
+    private VersionRangeRequest newVersionRangeRequest( Artifact artifact, List<RemoteRepository> repositories,
+                                                        CollectResult result )
+    {
+        VersionRangeRequest rangeRequest = new VersionRangeRequest();
+        rangeRequest.setArtifact( artifact );
+        rangeRequest.setRepositories( repositories );
+        rangeRequest.setRequestContext( result.getRequest().getRequestContext() );
+        return rangeRequest;
+    }
+
+    private ArtifactDescriptorRequest newArtifactDescriptorRequest( Artifact artifact,
+                                                                    List<RemoteRepository> repositories,
+                                                                    CollectResult result )
+    {
+        ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
+        descriptorRequest.setArtifact( artifact );
+        descriptorRequest.setRepositories( repositories );
+        descriptorRequest.setRequestContext( result.getRequest().getRequestContext() );
+        return descriptorRequest;
+    }
+
+    private List<RemoteRepository> getRepositories( VersionRangeResult rangeResult, Version version,
+                                                    List<RemoteRepository> repositories )
+    {
+        List<RemoteRepository> repos = null;
+        ArtifactRepository repo = rangeResult.getRepository( version );
+        if ( repo instanceof RemoteRepository )
+        {
+            repos = Collections.singletonList( (RemoteRepository) repo );
+        }
+        else if ( repo == null )
+        {
+            repos = repositories;
+        }
+        return repos;
+    }
+
     private GraphEdge findDuplicate( List<GraphEdge> edges, Artifact artifact )
     {
         for ( GraphEdge edge : edges )
@@ -25,7 +25,6 @@ import java.util.List;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.util.FileUtils;
 import org.sonatype.aether.Artifact;
 import org.sonatype.aether.DeployRequest;
 import org.sonatype.aether.DeployResult;
@@ -47,6 +46,7 @@ import org.sonatype.aether.impl.MetadataGeneratorFactory;
 import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.UpdateCheck;
 import org.sonatype.aether.impl.UpdateCheckManager;
+import org.sonatype.aether.util.FileCopyUtils;
 import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
 import org.sonatype.aether.spi.connector.ArtifactUpload;
 import org.sonatype.aether.spi.connector.MetadataDownload;
@@ -317,7 +317,7 @@ public class DefaultDeployer
             }
             try
             {
-                FileUtils.copyFile( metadata.getFile(), dstFile );
+                FileCopyUtils.copy( metadata.getFile(), dstFile );
             }
             catch ( IOException e )
             {
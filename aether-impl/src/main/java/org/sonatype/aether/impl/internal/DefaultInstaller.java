@@ -23,7 +23,6 @@ import java.util.List;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.util.FileUtils;
 import org.sonatype.aether.Artifact;
 import org.sonatype.aether.InstallRequest;
 import org.sonatype.aether.InstallResult;
@@ -37,6 +36,7 @@ import org.sonatype.aether.impl.Installer;
 import org.sonatype.aether.impl.LocalRepositoryMaintainer;
 import org.sonatype.aether.impl.MetadataGenerator;
 import org.sonatype.aether.impl.MetadataGeneratorFactory;
+import org.sonatype.aether.util.FileCopyUtils;
 import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
 import org.sonatype.aether.spi.locator.Service;
 import org.sonatype.aether.spi.locator.ServiceLocator;
@@ -192,6 +192,8 @@ public class DefaultInstaller
 
         artifactInstalling( session, artifact, dstFile );
 
+        NamedLocks.NamedLock lock = newLock( lrm, dstFile );
+        lock.lock();
         Exception exception = null;
         try
         {
@@ -201,12 +203,7 @@ public class DefaultInstaller
 
             if ( copy )
             {
-                if ( !dstFile.getParentFile().exists() )
-                {
-                    dstFile.getParentFile().mkdirs();
-                }
-
-                FileUtils.copyFile( srcFile, dstFile );
+                FileCopyUtils.copy( srcFile, dstFile );
                 dstFile.setLastModified( srcFile.lastModified() );
             }
             else
@@ -228,6 +225,7 @@ public class DefaultInstaller
         }
         finally
         {
+            lock.unlock();
             artifactInstalled( session, artifact, dstFile, exception );
         }
     }
@@ -241,6 +239,8 @@ public class DefaultInstaller
 
         metadataInstalling( session, metadata, dstFile );
 
+        NamedLocks.NamedLock lock = newLock( lrm, dstFile );
+        lock.lock();
         Exception exception = null;
         try
         {
@@ -250,7 +250,7 @@ public class DefaultInstaller
             }
             else
             {
-                FileUtils.copyFile( metadata.getFile(), dstFile );
+                FileCopyUtils.copy( metadata.getFile(), dstFile );
             }
         }
         catch ( Exception e )
@@ -260,10 +260,17 @@ public class DefaultInstaller
         }
         finally
         {
+            lock.unlock();
             metadataInstalled( session, metadata, dstFile, exception );
         }
     }
 
+    private NamedLocks.NamedLock newLock( LocalRepositoryManager lrm, File dstFile )
+    {
+        NamedLocks locks = NamedLocks.getInstance( lrm.getRepository().getBasedir() );
+        return locks.newLock( Collections.singleton( dstFile.getAbsolutePath() ), logger );
+    }
+
     private void artifactInstalling( RepositorySystemSession session, Artifact artifact, File dstFile )
     {
         RepositoryListener listener = session.getRepositoryListener();
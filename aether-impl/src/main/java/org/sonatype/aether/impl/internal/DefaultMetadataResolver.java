@@ -15,7 +15,6 @@ package org.sonatype.aether.impl.internal;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -109,7 +108,6 @@ public class DefaultMetadataResolver
         List<MetadataResult> results = new ArrayList<MetadataResult>( requests.size() );
 
         List<ResolveTask> tasks = new ArrayList<ResolveTask>( requests.size() );
-        CountDownLatch latch = new CountDownLatch( requests.size() );
 
         Map<File, Long> localLastUpdates = new HashMap<File, Long>();
 
@@ -211,8 +209,7 @@ public class DefaultMetadataResolver
             {
                 RepositoryPolicy policy = getPolicy( session, repository, metadata.getNature() );
 
-                ResolveTask task =
-                    new ResolveTask( session, result, metadataFile, checks, policy.getChecksumPolicy(), latch );
+                ResolveTask task = new ResolveTask( result, metadataFile, checks, policy.getChecksumPolicy() );
                 tasks.add( task );
             }
             else
@@ -229,16 +226,34 @@ public class DefaultMetadataResolver
 
         if ( !tasks.isEmpty() )
         {
-            Executor executor = getExecutor( Math.min( tasks.size(), 4 ) );
-            try
+            List<ResolveGroup> groups = new ArrayList<ResolveGroup>();
+            for ( ResolveTask task : tasks )
             {
-                while ( latch.getCount() > tasks.size() )
+                ResolveGroup group = null;
+                for ( ResolveGroup g : groups )
                 {
-                    latch.countDown();
+                    if ( g.matches( task.request.getRepository() ) )
+                    {
+                        group = g;
+                        break;
+                    }
                 }
-                for ( ResolveTask task : tasks )
+                if ( group == null )
+                {
+                    group = new ResolveGroup( session, task.request.getRepository() );
+                    groups.add( group );
+                }
+                group.tasks.add( task );
+            }
+
+            CountDownLatch latch = new CountDownLatch( groups.size() );
+            Executor executor = getExecutor( Math.min( groups.size(), 4 ) );
+            try
+            {
+                for ( ResolveGroup group : groups )
                 {
-                    executor.execute( task );
+                    group.latch = latch;
+                    executor.execute( group );
                 }
                 latch.await();
                 for ( ResolveTask task : tasks )
@@ -389,87 +404,129 @@ public class DefaultMetadataResolver
         }
     }
 
-    class ResolveTask
+    /**
+     * The metadata downloads from the same repository, performed as a single batch by one connector.
+     */
+    class ResolveGroup
         implements Runnable
     {
 
         final RepositorySystemSession session;
 
-        final MetadataResult result;
-
-        final MetadataRequest request;
-
-        final File metadataFile;
-
-        final String policy;
+        final RemoteRepository repository;
 
-        final List<UpdateCheck<Metadata, MetadataTransferException>> checks;
+        final List<ResolveTask> tasks = new ArrayList<ResolveTask>();
 
-        final CountDownLatch latch;
+        CountDownLatch latch;
 
-        volatile MetadataTransferException exception;
-
-        public ResolveTask( RepositorySystemSession session, MetadataResult result, File metadataFile,
-                            List<UpdateCheck<Metadata, MetadataTransferException>> checks, String policy,
-                            CountDownLatch latch )
+        public ResolveGroup( RepositorySystemSession session, RemoteRepository repository )
         {
             this.session = session;
-            this.result = result;
-            this.request = result.getRequest();
-            this.metadataFile = metadataFile;
-            this.policy = policy;
-            this.checks = checks;
-            this.latch = latch;
+            this.repository = repository;
+        }
+
+        boolean matches( RemoteRepository repo )
+        {
+            return repository.getUrl().equals( repo.getUrl() )
+                && repository.getContentType().equals( repo.getContentType() )
+                && repository.isRepositoryManager() == repo.isRepositoryManager();
         }
 
         public void run()
         {
             try
             {
-                List<RemoteRepository> repositories = new ArrayList<RemoteRepository>();
-                for ( UpdateCheck<Metadata, MetadataTransferException> check : checks )
+                List<MetadataDownload> downloads = new ArrayList<MetadataDownload>( tasks.size() );
+                for ( ResolveTask task : tasks )
                 {
-                    repositories.add( check.getRepository() );
+                    downloads.add( task.download );
                 }
 
-                MetadataDownload download = new MetadataDownload();
-                download.setMetadata( request.getMetadata() );
-                download.setRequestContext( request.getRequestContext() );
-                download.setFile( metadataFile );
-                download.setChecksumPolicy( policy );
-                download.setRepositories( repositories );
-
-                RepositoryConnector connector =
-                    remoteRepositoryManager.getRepositoryConnector( session, request.getRepository() );
                 try
                 {
-                    connector.get( null, Arrays.asList( download ) );
+                    RepositoryConnector connector =
+                        remoteRepositoryManager.getRepositoryConnector( session, repository );
+                    try
+                    {
+                        connector.get( null, downloads );
+                    }
+                    finally
+                    {
+                        connector.close();
+                    }
+
+                    for ( ResolveTask task : tasks )
+                    {
+                        task.exception = task.download.getException();
+
+                        if ( task.request.isDeleteLocalCopyIfMissing()
+                            && task.exception instanceof MetadataNotFoundException )
+                        {
+                            task.download.getFile().delete();
+                        }
+                    }
                 }
-                finally
-                {
-                    connector.close();
-                }
-
-                exception = download.getException();
-
-                if ( request.isDeleteLocalCopyIfMissing() && exception instanceof MetadataNotFoundException )
+                catch ( NoRepositoryConnectorException e )
                 {
-                    download.getFile().delete();
+                    for ( ResolveTask task : tasks )
+                    {
+                        MetadataRequest request = task.request;
+                        task.exception =
+                            new MetadataTransferException( request.getMetadata(), request.getRepository(), e );
+                    }
                 }
             }
-            catch ( NoRepositoryConnectorException e )
-            {
-                exception = new MetadataTransferException( request.getMetadata(), request.getRepository(), e );
-            }
             finally
             {
                 latch.countDown();
             }
 
+            for ( ResolveTask task : tasks )
+            {
+                for ( UpdateCheck<Metadata, MetadataTransferException> check : task.checks )
+                {
+                    updateCheckManager.touchMetadata( session, check.setException( task.exception ) );
+                }
+            }
+        }
+
+    }
+
+    static class ResolveTask
+    {
+
+        final MetadataResult result;
+
+        final MetadataRequest request;
+
+        final File metadataFile;
+
+        final List<UpdateCheck<Metadata, MetadataTransferException>> checks;
+
+        final MetadataDownload download;
+
+        volatile MetadataTransferException exception;
+
+        public ResolveTask( MetadataResult result, File metadataFile,
+                            List<UpdateCheck<Metadata, MetadataTransferException>> checks, String policy )
+        {
+            this.result = result;
+            this.request = result.getRequest();
+            this.metadataFile = metadataFile;
+            this.checks = checks;
+
+            List<RemoteRepository> repositories = new ArrayList<RemoteRepository>();
             for ( UpdateCheck<Metadata, MetadataTransferException> check : checks )
             {
-                updateCheckManager.touchMetadata( session, check.setException( exception ) );
+                repositories.add( check.getRepository() );
             }
+
+            download = new MetadataDownload();
+            download.setMetadata( request.getMetadata() );
+            download.setRequestContext( request.getRequestContext() );
+            download.setFile( metadataFile );
+            download.setChecksumPolicy( policy );
+            download.setRepositories( repositories );
         }
 
     }
@@ -23,6 +23,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.util.StringUtils;
 import org.sonatype.aether.AuthenticationSelector;
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.MirrorSelector;
 import org.sonatype.aether.NoRepositoryConnectorException;
 import org.sonatype.aether.ProxySelector;
@@ -66,6 +67,8 @@ public class DefaultRemoteRepositoryManager
 
         };
 
+    private final RepositoryConnectorPool connectorPool = new RepositoryConnectorPool();
+
     public void initService( ServiceLocator locator )
     {
         setLogger( locator.getService( Logger.class ) );
@@ -275,6 +278,44 @@ public class DefaultRemoteRepositoryManager
 
     public RepositoryConnector getRepositoryConnector( RepositorySystemSession session, RemoteRepository repository )
         throws NoRepositoryConnectorException
+    {
+        int timeout =
+            ConfigurationProperties.get( session.getConfigProperties(), ConfigurationProperties.CONNECTOR_IDLE_TIMEOUT,
+                                         ConfigurationProperties.DEFAULT_CONNECTOR_IDLE_TIMEOUT );
+
+        if ( timeout <= 0 )
+        {
+            connectorPool.evict();
+            return newRepositoryConnector( session, repository );
+        }
+
+        Object key = connectorPool.toKey( session, repository );
+
+        RepositoryConnector connector = connectorPool.acquire( key );
+
+        if ( connector == null )
+        {
+            connector = newRepositoryConnector( session, repository );
+        }
+        else
+        {
+            logger.debug( "Reusing idle connector for repository " + repository );
+        }
+
+        return connectorPool.wrap( key, connector, timeout );
+    }
+
+    /**
+     * Closes all idle repository connectors that are kept for reuse. Connectors that are currently in use will be
+     * closed when they are released, i.e. connectors are no longer reused after this method has been called.
+     */
+    public void close()
+    {
+        connectorPool.close();
+    }
+
+    private RepositoryConnector newRepositoryConnector( RepositorySystemSession session, RemoteRepository repository )
+        throws NoRepositoryConnectorException
     {
         List<RepositoryConnectorFactory> factories = new ArrayList<RepositoryConnectorFactory>( connectorFactories );
         Collections.sort( factories, COMPARATOR );
@@ -16,6 +16,16 @@ package org.sonatype.aether.impl.internal;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -26,6 +36,7 @@ import org.sonatype.aether.ArtifactDescriptorResult;
 import org.sonatype.aether.ArtifactRequest;
 import org.sonatype.aether.ArtifactResolutionException;
 import org.sonatype.aether.ArtifactResult;
+import org.sonatype.aether.AsyncRepositorySystem;
 import org.sonatype.aether.CollectRequest;
 import org.sonatype.aether.CollectResult;
 import org.sonatype.aether.DependencyCollectionException;
@@ -42,6 +53,7 @@ import org.sonatype.aether.LocalRepository;
 import org.sonatype.aether.LocalRepositoryManager;
 import org.sonatype.aether.MetadataRequest;
 import org.sonatype.aether.MetadataResult;
+import org.sonatype.aether.RepositoryCallback;
 import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.VersionRangeRequest;
@@ -69,9 +81,11 @@ import org.sonatype.aether.util.graph.FilteringDependencyVisitor;
  */
 @Component( role = RepositorySystem.class )
 public class DefaultRepositorySystem
-    implements RepositorySystem, Service
+    implements RepositorySystem, AsyncRepositorySystem, Service
 {
 
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -99,6 +113,8 @@ public class DefaultRepositorySystem
     @Requirement
     private Deployer deployer;
 
+    private Executor executor;
+
     public void initService( ServiceLocator locator )
     {
         setLogger( locator.getService( Logger.class ) );
@@ -198,6 +214,88 @@ public class DefaultRepositorySystem
         return this;
     }
 
+    /**
+     * Sets the executor used to run asynchronous operations. If no executor is set, a pool of daemon threads is created
+     * on demand.
+     * 
+     * @param executor The executor to use, may be {@code null} to use the default pool.
+     * @return This component for chaining, never {@code null}.
+     */
+    public synchronized DefaultRepositorySystem setExecutor( Executor executor )
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    private synchronized Executor getExecutor()
+    {
+        if ( executor == null )
+        {
+            int threads = Math.max( 4, Runtime.getRuntime().availableProcessors() * 2 );
+            ThreadFactory factory = new ThreadFactory()
+            {
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "aether-" + THREAD_COUNTER.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            };
+            executor =
+                new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                        factory );
+        }
+        return executor;
+    }
+
+    private <T> Future<T> submit( Callable<T> task, final RepositoryCallback<T> callback )
+    {
+        FutureTask<T> future = new FutureTask<T>( task )
+        {
+            @Override
+            protected void done()
+            {
+                if ( callback == null || isCancelled() )
+                {
+                    return;
+                }
+                try
+                {
+                    T result;
+                    try
+                    {
+                        result = get();
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        Throwable cause = e.getCause();
+                        if ( cause instanceof Exception )
+                        {
+                            callback.failed( (Exception) cause );
+                        }
+                        else
+                        {
+                            logger.debug( "Repository operation failed", cause );
+                            callback.failed( e );
+                        }
+                        return;
+                    }
+                    callback.completed( result );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                catch ( RuntimeException e )
+                {
+                    logger.debug( "Repository callback failed", e );
+                }
+            }
+        };
+        getExecutor().execute( future );
+        return future;
+    }
+
     public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
         throws VersionResolutionException
     {
@@ -285,6 +383,88 @@ public class DefaultRepositorySystem
         return deployer.deploy( session, request );
     }
 
+    public Future<CollectResult> collectDependencies( final RepositorySystemSession session,
+                                                      final CollectRequest request,
+                                                      RepositoryCallback<CollectResult> callback )
+    {
+        return submit( new Callable<CollectResult>()
+        {
+            public CollectResult call()
+                throws Exception
+            {
+                return collectDependencies( session, request );
+            }
+        }, callback );
+    }
+
+    public Future<List<ArtifactResult>> resolveDependencies( final RepositorySystemSession session,
+                                                             final CollectRequest request,
+                                                             final DependencyFilter filter,
+                                                             RepositoryCallback<List<ArtifactResult>> callback )
+    {
+        return submit( new Callable<List<ArtifactResult>>()
+        {
+            public List<ArtifactResult> call()
+                throws Exception
+            {
+                return resolveDependencies( session, request, filter );
+            }
+        }, callback );
+    }
+
+    public Future<List<ArtifactResult>> resolveArtifacts( final RepositorySystemSession session,
+                                                          final Collection<? extends ArtifactRequest> requests,
+                                                          RepositoryCallback<List<ArtifactResult>> callback )
+    {
+        return submit( new Callable<List<ArtifactResult>>()
+        {
+            public List<ArtifactResult> call()
+                throws Exception
+            {
+                return resolveArtifacts( session, requests );
+            }
+        }, callback );
+    }
+
+    public Future<List<MetadataResult>> resolveMetadata( final RepositorySystemSession session,
+                                                         final Collection<? extends MetadataRequest> requests,
+                                                         RepositoryCallback<List<MetadataResult>> callback )
+    {
+        return submit( new Callable<List<MetadataResult>>()
+        {
+            public List<MetadataResult> call()
+            {
+                return resolveMetadata( session, requests );
+            }
+        }, callback );
+    }
+
+    public Future<InstallResult> install( final RepositorySystemSession session, final InstallRequest request,
+                                          RepositoryCallback<InstallResult> callback )
+    {
+        return submit( new Callable<InstallResult>()
+        {
+            public InstallResult call()
+                throws Exception
+            {
+                return install( session, request );
+            }
+        }, callback );
+    }
+
+    public Future<DeployResult> deploy( final RepositorySystemSession session, final DeployRequest request,
+                                        RepositoryCallback<DeployResult> callback )
+    {
+        return submit( new Callable<DeployResult>()
+        {
+            public DeployResult call()
+                throws Exception
+            {
+                return deploy( session, request );
+            }
+        }, callback );
+    }
+
     public LocalRepositoryManager newLocalRepositoryManager( LocalRepository localRepository )
     {
         String type = localRepository.getContentType();
@@ -294,6 +474,10 @@ public class DefaultRepositorySystem
         {
             return new EnhancedLocalRepositoryManager( basedir ).setLogger( logger );
         }
+        else if ( "indexed".equals( type ) )
+        {
+            return new EnhancedLocalRepositoryManager( basedir, type ).setIndexed( true ).setLogger( logger );
+        }
         else if ( "simple".equals( type ) )
         {
             return new SimpleLocalRepositoryManager( basedir ).setLogger( logger );
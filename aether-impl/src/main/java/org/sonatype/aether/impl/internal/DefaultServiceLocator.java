@@ -23,6 +23,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
+import org.sonatype.aether.AsyncRepositorySystem;
 import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.impl.ArtifactResolver;
 import org.sonatype.aether.impl.DependencyCollector;
@@ -58,6 +59,7 @@ public class DefaultServiceLocator
         instances = new HashMap<Class<?>, List<?>>();
 
         addService( RepositorySystem.class, DefaultRepositorySystem.class );
+        addService( AsyncRepositorySystem.class, DefaultRepositorySystem.class );
         addService( ArtifactResolver.class, DefaultArtifactResolver.class );
         addService( DependencyCollector.class, DefaultDependencyCollector.class );
         addService( Deployer.class, DefaultDeployer.class );
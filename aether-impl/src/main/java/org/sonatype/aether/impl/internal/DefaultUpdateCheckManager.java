@@ -112,7 +112,7 @@ public class DefaultUpdateCheckManager
         RemoteRepository repository = check.getRepository();
 
         File touchFile = getTouchFile( artifact, check.getFile() );
-        Properties props = read( touchFile, logger );
+        Properties props = read( session, touchFile );
 
         boolean fileExists = check.getFile().exists();
         String key = getRepoKey( repository );
@@ -184,7 +184,7 @@ public class DefaultUpdateCheckManager
         RemoteRepository repository = check.getRepository();
 
         File touchFile = getTouchFile( check.getItem(), check.getFile() );
-        Properties props = read( touchFile, logger );
+        Properties props = read( session, touchFile );
 
         boolean fileExists = check.getFile().exists();
         String key = fileExists ? check.getFile().getName() : ( getRepoKey( repository ) + '.' + metadata.getType() );
@@ -330,10 +330,9 @@ public class DefaultUpdateCheckManager
         return checkForUpdates;
     }
 
-    private Properties read( File touchFile, Logger logger )
+    private Properties read( RepositorySystemSession session, File touchFile )
     {
-        Properties props = new TrackingFileManager().setLogger( logger ).read( touchFile );
-        return ( props != null ) ? props : new Properties();
+        return TrackingFileCache.getIndex( session ).read( touchFile, new TrackingFileManager().setLogger( logger ) );
     }
 
     public void touchArtifact( RepositorySystemSession session, UpdateCheck<Artifact, ArtifactTransferException> check )
@@ -342,11 +341,12 @@ public class DefaultUpdateCheckManager
 
         String key = getRepoKey( check.getRepository() );
 
-        Properties props = write( touchFile, key, "artifact", check.getException(), logger );
+        Properties props = write( session, touchFile, key, "artifact", check.getException() );
 
         if ( check.getFile().exists() && !hasErrors( props ) )
         {
             touchFile.delete();
+            TrackingFileCache.getIndex( session ).remove( touchFile );
         }
     }
 
@@ -368,10 +368,11 @@ public class DefaultUpdateCheckManager
 
         String key = getRepoKey( check.getRepository() ) + '.' + check.getItem().getType();
 
-        write( touchFile, key, check.getFile().getName(), check.getException(), logger );
+        write( session, touchFile, key, check.getFile().getName(), check.getException() );
     }
 
-    private Properties write( File touchFile, String fullKey, String simpleKey, Exception error, Logger logger )
+    private Properties write( RepositorySystemSession session, File touchFile, String fullKey, String simpleKey,
+                              Exception error )
     {
         Map<String, String> updates = new HashMap<String, String>();
 
@@ -397,7 +398,8 @@ public class DefaultUpdateCheckManager
             updates.put( fullKey + ERROR_KEY_SUFFIX, msg );
         }
 
-        return new TrackingFileManager().setLogger( logger ).update( touchFile, updates );
+        TrackingFileCache index = TrackingFileCache.getIndex( session );
+        return index.update( touchFile, updates, new TrackingFileManager().setLogger( logger ) );
     }
 
 }
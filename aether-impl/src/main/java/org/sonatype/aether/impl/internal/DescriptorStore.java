@@ -0,0 +1,537 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.sonatype.aether.Artifact;
+import org.sonatype.aether.ArtifactDescriptorRequest;
+import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.ArtifactRepository;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.Exclusion;
+import org.sonatype.aether.LocalRepository;
+import org.sonatype.aether.LocalRepositoryManager;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositoryPolicy;
+import org.sonatype.aether.RepositorySystemSession;
+
+/**
+ * Persists artifact descriptors in a compact binary format below the local repository such that later JVMs need not
+ * read and process the underlying POMs again. A stored descriptor is keyed by the coordinates of the artifact and the
+ * repositories it was read from and is considered stale once the size or timestamp of the artifact's POM in the local
+ * repository changes. As the properties of the session may affect the descriptor (e.g. via profile activation), the
+ * key also includes a digest of the user properties and of those system and configuration properties that are known to
+ * matter, i.e. the JDK and OS properties used for profile activation and any properties listed by
+ * {@link DefaultDependencyCollector#CONFIG_PROP_DESCRIPTOR_CACHE_KEYS}. Other system properties like the working
+ * directory or the environment vary between otherwise identical builds and are deliberately ignored. Each artifact and
+ * list of repositories maps to a single file which is simply overwritten when the properties change. Snapshots are
+ * never stored given their contents may change without notice. Note that changes to parent POMs are not detected.
+ */
+final class DescriptorStore
+{
+
+    private static final int MAGIC = 0x41445331;
+
+    private static final int VERSION = 2;
+
+    private static final int NO_REPOSITORY = 0;
+
+    private static final int LOCAL_REPOSITORY = 1;
+
+    private static final int REMOTE_REPOSITORY = 2;
+
+    private static final String[] DEFAULT_KEYS = { "java.version", "os.name", "os.arch", "os.version" };
+
+    private final LocalRepositoryManager lrm;
+
+    private final File basedir;
+
+    private final String config;
+
+    public DescriptorStore( RepositorySystemSession session )
+    {
+        lrm = session.getLocalRepositoryManager();
+        basedir = new File( lrm.getRepository().getBasedir(), ".cache/descriptors" );
+        config = digest( session );
+    }
+
+    /**
+     * Loads the descriptor for the specified request.
+     * 
+     * @param request The descriptor request, must not be {@code null}.
+     * @return The stored descriptor or {@code null} if none or if it is stale.
+     */
+    public ArtifactDescriptorResult load( ArtifactDescriptorRequest request )
+    {
+        if ( request.getArtifact().isSnapshot() )
+        {
+            return null;
+        }
+
+        File pom = getPom( request.getArtifact() );
+        File file = getFile( request );
+        if ( !pom.isFile() || !file.isFile() )
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+            try
+            {
+                if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+                {
+                    return null;
+                }
+                if ( !toKey( request ).equals( in.readUTF() ) || in.readLong() != pom.length()
+                    || in.readLong() != pom.lastModified() )
+                {
+                    return null;
+                }
+
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( readArtifact( in ) );
+                result.setRelocations( readArtifacts( in ) );
+                result.setAliases( readArtifacts( in ) );
+                result.setDependencies( readDependencies( in ) );
+                result.setManagedDependencies( readDependencies( in ) );
+                result.setRepositories( readRepositories( in ) );
+                result.setProperties( new HashMap<String, Object>( readMap( in ) ) );
+                result.setRepository( readRepository( in ) );
+                return result;
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // corrupt or concurrently written, just read the descriptor again
+            return null;
+        }
+    }
+
+    /**
+     * Saves the specified descriptor. Descriptors of snapshots, descriptors that were read with errors and descriptors
+     * that carry properties or originate from repositories which cannot be persisted are not saved.
+     * 
+     * @param result The descriptor to save, must not be {@code null}.
+     */
+    public void save( ArtifactDescriptorResult result )
+    {
+        ArtifactDescriptorRequest request = result.getRequest();
+        if ( request.getArtifact().isSnapshot() || !result.getExceptions().isEmpty() )
+        {
+            return;
+        }
+
+        ArtifactRepository repository = result.getRepository();
+        if ( repository != null && !( repository instanceof LocalRepository )
+            && !( repository instanceof RemoteRepository ) )
+        {
+            return;
+        }
+
+        File pom = getPom( request.getArtifact() );
+        if ( !pom.isFile() )
+        {
+            return;
+        }
+
+        Map<String, String> properties = new HashMap<String, String>();
+        for ( Map.Entry<String, Object> entry : result.getProperties().entrySet() )
+        {
+            if ( !( entry.getValue() instanceof String ) )
+            {
+                return;
+            }
+            properties.put( entry.getKey(), (String) entry.getValue() );
+        }
+
+        File file = getFile( request );
+        File tmp = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            tmp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) );
+            try
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeUTF( toKey( request ) );
+                out.writeLong( pom.length() );
+                out.writeLong( pom.lastModified() );
+                writeArtifact( out, result.getArtifact() );
+                writeArtifacts( out, result.getRelocations() );
+                writeArtifacts( out, result.getAliases() );
+                writeDependencies( out, result.getDependencies() );
+                writeDependencies( out, result.getManagedDependencies() );
+                writeRepositories( out, result.getRepositories() );
+                writeMap( out, properties );
+                writeRepository( out, repository );
+            }
+            finally
+            {
+                out.close();
+            }
+
+            if ( !tmp.renameTo( file ) )
+            {
+                file.delete();
+                tmp.renameTo( file );
+            }
+        }
+        catch ( IOException e )
+        {
+            // not fatal, the descriptor will simply be read again next time
+        }
+        finally
+        {
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File getPom( Artifact artifact )
+    {
+        Artifact pom =
+            new DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(), "", "pom", artifact.getVersion() );
+        return new File( lrm.getRepository().getBasedir(), lrm.getPathForLocalArtifact( pom ) );
+    }
+
+    private File getFile( ArtifactDescriptorRequest request )
+    {
+        Artifact artifact = request.getArtifact();
+        String path = lrm.getPathForLocalArtifact( artifact );
+        return new File( basedir, path + "-" + Integer.toHexString( toLocation( request ).hashCode() ) + ".bin" );
+    }
+
+    private String toLocation( ArtifactDescriptorRequest request )
+    {
+        StringBuilder buffer = new StringBuilder( 256 );
+        buffer.append( request.getArtifact() );
+        toKey( buffer, request.getRepositories() );
+        return buffer.toString();
+    }
+
+    private String toKey( ArtifactDescriptorRequest request )
+    {
+        return toLocation( request ) + config;
+    }
+
+    private void toKey( StringBuilder buffer, List<RemoteRepository> repositories )
+    {
+        buffer.append( '[' );
+        for ( RemoteRepository repository : repositories )
+        {
+            buffer.append( repository.getId() ).append( ' ' ).append( repository.getContentType() ).append( ' ' );
+            buffer.append( repository.getUrl() );
+            if ( repository.isRepositoryManager() )
+            {
+                toKey( buffer, repository.getMirroredRepositories() );
+            }
+            buffer.append( ',' );
+        }
+        buffer.append( ']' );
+    }
+
+    private static String digest( RepositorySystemSession session )
+    {
+        Collection<String> keys = new ArrayList<String>( Arrays.asList( DEFAULT_KEYS ) );
+        String extra =
+            ConfigurationProperties.get( session.getConfigProperties(),
+                                         DefaultDependencyCollector.CONFIG_PROP_DESCRIPTOR_CACHE_KEYS, "" );
+        for ( String key : extra.split( "," ) )
+        {
+            key = key.trim();
+            if ( key.length() > 0 )
+            {
+                keys.add( key );
+            }
+        }
+
+        Map<String, String> props = new TreeMap<String, String>();
+        for ( String key : keys )
+        {
+            Object value = session.getConfigProperties().get( key );
+            if ( value instanceof String )
+            {
+                props.put( "config:" + key, (String) value );
+            }
+            String property = session.getSystemProperties().get( key );
+            if ( property != null )
+            {
+                props.put( "system:" + key, property );
+            }
+        }
+        for ( Map.Entry<String, String> entry : session.getUserProperties().entrySet() )
+        {
+            props.put( "user:" + entry.getKey(), entry.getValue() );
+        }
+
+        StringBuilder buffer = new StringBuilder( 4096 );
+        for ( Map.Entry<String, String> entry : props.entrySet() )
+        {
+            buffer.append( entry.getKey() ).append( '=' ).append( entry.getValue() ).append( '\n' );
+        }
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            byte[] bytes = digest.digest( buffer.toString().getBytes( "UTF-8" ) );
+            return new BigInteger( 1, bytes ).toString( 16 );
+        }
+        catch ( Exception e )
+        {
+            return Integer.toHexString( buffer.toString().hashCode() );
+        }
+    }
+
+    private static void writeString( DataOutputStream out, String value )
+        throws IOException
+    {
+        out.writeBoolean( value != null );
+        if ( value != null )
+        {
+            out.writeUTF( value );
+        }
+    }
+
+    private static String readString( DataInputStream in )
+        throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeMap( DataOutputStream out, Map<String, String> map )
+        throws IOException
+    {
+        out.writeInt( map.size() );
+        for ( Map.Entry<String, String> entry : map.entrySet() )
+        {
+            out.writeUTF( entry.getKey() );
+            writeString( out, entry.getValue() );
+        }
+    }
+
+    private static Map<String, String> readMap( DataInputStream in )
+        throws IOException
+    {
+        int size = in.readInt();
+        Map<String, String> map = new HashMap<String, String>( size * 2 );
+        for ( int i = 0; i < size; i++ )
+        {
+            map.put( in.readUTF(), readString( in ) );
+        }
+        return map;
+    }
+
+    private static void writeArtifact( DataOutputStream out, Artifact artifact )
+        throws IOException
+    {
+        out.writeUTF( artifact.getGroupId() );
+        out.writeUTF( artifact.getArtifactId() );
+        out.writeUTF( artifact.getClassifier() );
+        out.writeUTF( artifact.getExtension() );
+        out.writeUTF( artifact.getVersion() );
+        writeMap( out, artifact.getProperties() );
+        File file = artifact.getFile();
+        writeString( out, ( file != null ) ? file.getPath() : null );
+    }
+
+    private static Artifact readArtifact( DataInputStream in )
+        throws IOException
+    {
+        String groupId = in.readUTF();
+        String artifactId = in.readUTF();
+        String classifier = in.readUTF();
+        String extension = in.readUTF();
+        String version = in.readUTF();
+        Map<String, String> properties = readMap( in );
+        String file = readString( in );
+        return new DefaultArtifact( groupId, artifactId, classifier, extension, version, properties,
+                                    ( file != null ) ? new File( file ) : null );
+    }
+
+    private static void writeArtifacts( DataOutputStream out, Collection<Artifact> artifacts )
+        throws IOException
+    {
+        out.writeInt( artifacts.size() );
+        for ( Artifact artifact : artifacts )
+        {
+            writeArtifact( out, artifact );
+        }
+    }
+
+    private static List<Artifact> readArtifacts( DataInputStream in )
+        throws IOException
+    {
+        int size = in.readInt();
+        List<Artifact> artifacts = new ArrayList<Artifact>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            artifacts.add( readArtifact( in ) );
+        }
+        return artifacts;
+    }
+
+    private static void writeDependencies( DataOutputStream out, List<Dependency> dependencies )
+        throws IOException
+    {
+        out.writeInt( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            writeArtifact( out, dependency.getArtifact() );
+            out.writeUTF( dependency.getScope() );
+            out.writeBoolean( dependency.isOptional() );
+            out.writeInt( dependency.getExclusions().size() );
+            for ( Exclusion exclusion : dependency.getExclusions() )
+            {
+                out.writeUTF( exclusion.getGroupId() );
+                out.writeUTF( exclusion.getArtifactId() );
+                out.writeUTF( exclusion.getClassifier() );
+                out.writeUTF( exclusion.getExtension() );
+            }
+        }
+    }
+
+    private static List<Dependency> readDependencies( DataInputStream in )
+        throws IOException
+    {
+        int size = in.readInt();
+        List<Dependency> dependencies = new ArrayList<Dependency>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Artifact artifact = readArtifact( in );
+            String scope = in.readUTF();
+            boolean optional = in.readBoolean();
+            int count = in.readInt();
+            List<Exclusion> exclusions = new ArrayList<Exclusion>( count );
+            for ( int j = 0; j < count; j++ )
+            {
+                exclusions.add( new Exclusion( in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF() ) );
+            }
+            dependencies.add( new Dependency( artifact, scope, optional, exclusions ) );
+        }
+        return dependencies;
+    }
+
+    private static void writeRepository( DataOutputStream out, ArtifactRepository repository )
+        throws IOException
+    {
+        if ( repository instanceof LocalRepository )
+        {
+            out.writeByte( LOCAL_REPOSITORY );
+            out.writeUTF( ( (LocalRepository) repository ).getBasedir().getPath() );
+            out.writeUTF( repository.getContentType() );
+        }
+        else if ( repository instanceof RemoteRepository )
+        {
+            out.writeByte( REMOTE_REPOSITORY );
+            writeRepositories( out, Collections.singletonList( (RemoteRepository) repository ) );
+        }
+        else
+        {
+            out.writeByte( NO_REPOSITORY );
+        }
+    }
+
+    private static ArtifactRepository readRepository( DataInputStream in )
+        throws IOException
+    {
+        switch ( in.readByte() )
+        {
+            case LOCAL_REPOSITORY:
+                return new LocalRepository( new File( in.readUTF() ), in.readUTF() );
+            case REMOTE_REPOSITORY:
+                return readRepositories( in ).get( 0 );
+            default:
+                return null;
+        }
+    }
+
+    private static void writeRepositories( DataOutputStream out, List<RemoteRepository> repositories )
+        throws IOException
+    {
+        out.writeInt( repositories.size() );
+        for ( RemoteRepository repository : repositories )
+        {
+            out.writeUTF( repository.getId() );
+            out.writeUTF( repository.getContentType() );
+            out.writeUTF( repository.getUrl() );
+            writePolicy( out, repository.getPolicy( false ) );
+            writePolicy( out, repository.getPolicy( true ) );
+            out.writeBoolean( repository.isRepositoryManager() );
+            writeRepositories( out, repository.getMirroredRepositories() );
+        }
+    }
+
+    private static List<RemoteRepository> readRepositories( DataInputStream in )
+        throws IOException
+    {
+        int size = in.readInt();
+        List<RemoteRepository> repositories = new ArrayList<RemoteRepository>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            RemoteRepository repository = new RemoteRepository( in.readUTF(), in.readUTF(), in.readUTF() );
+            repository.setPolicy( false, readPolicy( in ) );
+            repository.setPolicy( true, readPolicy( in ) );
+            repository.setRepositoryManager( in.readBoolean() );
+            repository.setMirroredRepositories( readRepositories( in ) );
+            repositories.add( repository );
+        }
+        return repositories;
+    }
+
+    private static void writePolicy( DataOutputStream out, RepositoryPolicy policy )
+        throws IOException
+    {
+        out.writeBoolean( policy.isEnabled() );
+        writeString( out, policy.getUpdatePolicy() );
+        writeString( out, policy.getChecksumPolicy() );
+    }
+
+    private static RepositoryPolicy readPolicy( DataInputStream in )
+        throws IOException
+    {
+        return new RepositoryPolicy( in.readBoolean(), readString( in ), readString( in ) );
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A registry of the artifact downloads currently in progress. The first caller to register a download is responsible
+ * for performing it and completing its flight. Callers requesting the same download while it is in progress merely
+ * wait for the flight to complete and share its outcome, including a failure. Completed flights are removed from the
+ * registry, i.e. the registry does not cache any outcomes.
+ */
+final class DownloadFlights
+{
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+    /**
+     * Registers the specified flight unless a flight for the same download is already in progress.
+     * 
+     * @param flight The flight to register, must not be {@code null}.
+     * @return The flight already in progress or {@code null} if the specified flight was registered, in which case the
+     *         caller must eventually {@link #complete(Flight, File, Exception) complete} it.
+     */
+    public Flight register( Flight flight )
+    {
+        return flights.putIfAbsent( flight.key, flight );
+    }
+
+    /**
+     * Completes the specified flight, thereby waking up all callers waiting for it.
+     * 
+     * @param flight The flight to complete, must not be {@code null}.
+     * @param file The downloaded file, may be {@code null} if the download failed.
+     * @param exception The exception that caused the download to fail, may be {@code null} if the download succeeded.
+     */
+    public void complete( Flight flight, File file, Exception exception )
+    {
+        flights.remove( flight.key, flight );
+        flight.file = file;
+        flight.exception = exception;
+        flight.latch.countDown();
+    }
+
+    /**
+     * Gets the number of flights in progress.
+     * 
+     * @return The number of flights in progress.
+     */
+    public int size()
+    {
+        return flights.size();
+    }
+
+    /**
+     * A single download, identified by the source repository and the target file.
+     */
+    static final class Flight
+    {
+
+        final String key;
+
+        final CountDownLatch latch = new CountDownLatch( 1 );
+
+        volatile File file;
+
+        volatile Exception exception;
+
+        public Flight( String repository, File target )
+        {
+            key = repository + '>' + target.getAbsolutePath();
+        }
+
+        /**
+         * Waits for the flight to complete.
+         * 
+         * @throws InterruptedException If the current thread was interrupted while waiting.
+         */
+        public void await()
+            throws InterruptedException
+        {
+            latch.await();
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public Exception getException()
+        {
+            return exception;
+        }
+
+    }
+
+}
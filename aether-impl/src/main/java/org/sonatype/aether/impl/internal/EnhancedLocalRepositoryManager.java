@@ -26,12 +26,15 @@ import org.sonatype.aether.LocalArtifactRequest;
 import org.sonatype.aether.LocalArtifactResult;
 import org.sonatype.aether.RemoteRepository;
 import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
 
 /**
  * A local repository manager that builds upon the classical Maven 2.0 local repository structure but additionally keeps
  * track of from what repositories a cached artifact was resolved. Resolution of locally cached artifacts will be
  * rejected in case the current resolution request does not match the known source repositories of an artifact, thereby
- * emulating physically separated artifact caches per remote repository.
+ * emulating physically separated artifact caches per remote repository. Optionally, the tracking information of the
+ * whole repository can additionally be kept in a single index file such that most lookups get by without reading the
+ * tracking files.
  * 
  * @author Benjamin Bentmann
  */
@@ -43,9 +46,18 @@ public class EnhancedLocalRepositoryManager
 
     private TrackingFileManager trackingFileManager;
 
+    private RepositoryIndex index;
+
+    private Logger logger = NullLogger.INSTANCE;
+
     public EnhancedLocalRepositoryManager( File basedir )
     {
-        super( basedir, "enhanced" );
+        this( basedir, "enhanced" );
+    }
+
+    EnhancedLocalRepositoryManager( File basedir, String type )
+    {
+        super( basedir, type );
         trackingFileManager = new TrackingFileManager();
     }
 
@@ -54,6 +66,28 @@ public class EnhancedLocalRepositoryManager
     {
         super.setLogger( logger );
         trackingFileManager.setLogger( logger );
+        this.logger = ( logger != null ) ? logger : NullLogger.INSTANCE;
+        return this;
+    }
+
+    /**
+     * Controls whether the tracking information is additionally recorded in an index file within the local repository.
+     * The index is merely an accelerator, the tracking files remain authoritative and are still updated. Artifacts that
+     * are not found in the index are looked up from their tracking files which are then added to the index.
+     * 
+     * @param indexed {@code true} to use the index, {@code false} to rely on the tracking files only.
+     * @return This manager for chaining, never {@code null}.
+     */
+    public EnhancedLocalRepositoryManager setIndexed( boolean indexed )
+    {
+        if ( indexed )
+        {
+            index = RepositoryIndex.getInstance( new File( getRepository().getBasedir(), "_maven.index" ) );
+        }
+        else
+        {
+            index = null;
+        }
         return this;
     }
 
@@ -69,6 +103,12 @@ public class EnhancedLocalRepositoryManager
         {
             result.setFile( file );
 
+            if ( index != null && isAvailable( request, index.get( path, logger ) ) )
+            {
+                result.setAvailable( true );
+                return result;
+            }
+
             Properties props = readRepos( file );
 
             if ( props.get( getKey( file, LOCAL_REPO_ID ) ) != null )
@@ -95,6 +135,15 @@ public class EnhancedLocalRepositoryManager
                     result.setAvailable( true );
                 }
             }
+
+            if ( index != null )
+            {
+                index.add( path, getRepositoryKeys( props, file ), logger );
+            }
+        }
+        else if ( index != null )
+        {
+            index.remove( path, logger );
         }
 
         return result;
@@ -132,6 +181,47 @@ public class EnhancedLocalRepositoryManager
         String path = getPathForLocalArtifact( artifact );
         File file = new File( getRepository().getBasedir(), path );
         addRepo( file, repositories );
+        if ( index != null )
+        {
+            index.add( path, repositories, logger );
+        }
+    }
+
+    private boolean isAvailable( LocalArtifactRequest request, Collection<String> repositories )
+    {
+        if ( repositories.isEmpty() )
+        {
+            return false;
+        }
+        if ( repositories.contains( LOCAL_REPO_ID ) )
+        {
+            return true;
+        }
+        String context = request.getContext();
+        for ( RemoteRepository repository : request.getRepositories() )
+        {
+            if ( repositories.contains( getRepositoryKey( repository, context ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Collection<String> getRepositoryKeys( Properties props, File file )
+    {
+        Collection<String> keys = new HashSet<String>();
+
+        String keyPrefix = file.getName() + '>';
+        for ( Object key : props.keySet() )
+        {
+            if ( key.toString().startsWith( keyPrefix ) )
+            {
+                keys.add( key.toString().substring( keyPrefix.length() ) );
+            }
+        }
+
+        return keys;
     }
 
     private Properties readRepos( File artifactFile )
@@ -0,0 +1,338 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
+
+/**
+ * Provides exclusive locks for named resources like the files of a local repository. The names are mapped onto a fixed
+ * number of stripes. Within this process, each stripe is guarded by a reentrant lock. Across processes, each stripe is
+ * guarded by a file lock on a single byte of a lock file, the position of the byte being given by the index of the
+ * stripe. Locks for several names acquire their stripes in ascending order and hence can not deadlock each other. If
+ * the lock file can not be locked (e.g. due to a read-only file system), the locks degrade to in-process locks. The
+ * file locks are awaited by polling rather than by a blocking call, an interrupt during a blocking call would close the
+ * lock file channel and thereby release the file locks of all stripes.
+ */
+final class NamedLocks
+{
+
+    private static final ConcurrentMap<File, NamedLocks> INSTANCES = new ConcurrentHashMap<File, NamedLocks>();
+
+    private static final int STRIPES = 1024;
+
+    private static final long MAX_POLL_DELAY = 100;
+
+    private final File file;
+
+    private final Stripe[] stripes;
+
+    private FileChannel channel;
+
+    /**
+     * Gets the locks for the specified local repository.
+     * 
+     * @param basedir The base directory of the local repository, must not be {@code null}.
+     * @return The locks, never {@code null}.
+     */
+    public static NamedLocks getInstance( File basedir )
+    {
+        File file = new File( basedir, "_maven.lock" ).getAbsoluteFile();
+        NamedLocks locks = INSTANCES.get( file );
+        if ( locks == null )
+        {
+            locks = new NamedLocks( file );
+            NamedLocks existing = INSTANCES.putIfAbsent( file, locks );
+            if ( existing != null )
+            {
+                locks = existing;
+            }
+        }
+        return locks;
+    }
+
+    NamedLocks( File file )
+    {
+        this.file = file;
+        stripes = new Stripe[STRIPES];
+        for ( int i = 0; i < stripes.length; i++ )
+        {
+            stripes[i] = new Stripe( i );
+        }
+    }
+
+    /**
+     * Creates a lock for the specified names. The lock is not acquired yet.
+     * 
+     * @param names The names of the resources to lock, must not be {@code null}.
+     * @param logger The logger to report problems with the lock file to, may be {@code null}.
+     * @return The lock, never {@code null}.
+     */
+    public NamedLock newLock( Collection<String> names, Logger logger )
+    {
+        SortedSet<Integer> indices = new TreeSet<Integer>();
+        for ( String name : names )
+        {
+            indices.add( Integer.valueOf( getIndex( name ) ) );
+        }
+
+        Stripe[] locks = new Stripe[indices.size()];
+        int i = 0;
+        for ( Integer index : indices )
+        {
+            locks[i++] = stripes[index.intValue()];
+        }
+
+        return new NamedLock( locks, ( logger != null ) ? logger : NullLogger.INSTANCE );
+    }
+
+    /*
+     * NOTE: The channel is shared by all stripes and never closed. With POSIX file locks, closing any channel for the
+     * lock file would release all locks held by this process on the file.
+     */
+    private synchronized FileChannel getChannel()
+        throws IOException
+    {
+        if ( channel == null || !channel.isOpen() )
+        {
+            file.getParentFile().mkdirs();
+            channel = new RandomAccessFile( file, "rw" ).getChannel();
+        }
+        return channel;
+    }
+
+    static int getIndex( String name )
+    {
+        int hash = name.hashCode();
+        hash ^= ( hash >>> 20 ) ^ ( hash >>> 12 );
+        hash ^= ( hash >>> 7 ) ^ ( hash >>> 4 );
+        return ( hash & 0x7FFFFFFF ) % STRIPES;
+    }
+
+    /**
+     * A lock for one or more named resources.
+     */
+    public static final class NamedLock
+    {
+
+        private final Stripe[] stripes;
+
+        private final Logger logger;
+
+        NamedLock( Stripe[] stripes, Logger logger )
+        {
+            this.stripes = stripes;
+            this.logger = logger;
+        }
+
+        /**
+         * Acquires the lock, waiting for other threads and processes to release it.
+         */
+        public void lock()
+        {
+            int i = 0;
+            try
+            {
+                for ( ; i < stripes.length; i++ )
+                {
+                    stripes[i].acquire( logger );
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                release( i );
+                throw e;
+            }
+        }
+
+        /**
+         * Acquires the lock if neither another thread nor another process currently holds it.
+         * 
+         * @return {@code true} if the lock was acquired, {@code false} otherwise.
+         */
+        public boolean tryLock()
+        {
+            for ( int i = 0; i < stripes.length; i++ )
+            {
+                boolean acquired;
+                try
+                {
+                    acquired = stripes[i].tryAcquire( logger );
+                }
+                catch ( RuntimeException e )
+                {
+                    release( i );
+                    throw e;
+                }
+                if ( !acquired )
+                {
+                    release( i );
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Releases the lock.
+         */
+        public void unlock()
+        {
+            release( stripes.length );
+        }
+
+        private void release( int count )
+        {
+            for ( int i = count - 1; i >= 0; i-- )
+            {
+                stripes[i].release( logger );
+            }
+        }
+
+    }
+
+    final class Stripe
+        extends ReentrantLock
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        private transient FileLock fileLock;
+
+        Stripe( int index )
+        {
+            this.index = index;
+        }
+
+        void acquire( Logger logger )
+        {
+            lock();
+            if ( getHoldCount() == 1 )
+            {
+                lockFile( true, logger );
+            }
+        }
+
+        boolean tryAcquire( Logger logger )
+        {
+            if ( !tryLock() )
+            {
+                return false;
+            }
+            if ( getHoldCount() == 1 && !lockFile( false, logger ) )
+            {
+                unlock();
+                return false;
+            }
+            return true;
+        }
+
+        void release( Logger logger )
+        {
+            try
+            {
+                if ( getHoldCount() == 1 )
+                {
+                    unlockFile( logger );
+                }
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        private boolean lockFile( boolean wait, Logger logger )
+        {
+            boolean interrupted = false;
+            try
+            {
+                for ( long delay = 1;; delay = Math.min( delay * 2, MAX_POLL_DELAY ) )
+                {
+                    // any channel operation of an interrupted thread closes the channel
+                    interrupted |= Thread.interrupted();
+                    try
+                    {
+                        fileLock = getChannel().tryLock( index, 1, false );
+                    }
+                    catch ( OverlappingFileLockException e )
+                    {
+                        // held via another channel of this JVM, treat like a lock held by another process
+                        fileLock = null;
+                    }
+                    if ( fileLock != null || !wait )
+                    {
+                        return fileLock != null;
+                    }
+                    try
+                    {
+                        Thread.sleep( delay );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Failed to lock " + file + " at " + index + ", using in-process lock only", e );
+                return true;
+            }
+            finally
+            {
+                if ( interrupted )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void unlockFile( Logger logger )
+        {
+            try
+            {
+                if ( fileLock != null && fileLock.isValid() )
+                {
+                    fileLock.release();
+                }
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Failed to unlock " + file + " at " + index, e );
+            }
+            finally
+            {
+                fileLock = null;
+            }
+        }
+
+    }
+
+}
@@ -13,23 +13,31 @@ package org.sonatype.aether.impl.internal;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Pool of immutable object instances, used to avoid excessive memory consumption of dependency graph.
+ * Pool of immutable object instances, used to avoid excessive memory consumption of dependency graph. The pool is
+ * thread-safe, lookups of already pooled objects do not block and additions only contend with additions of objects in
+ * the same segment of the pool. Objects are weakly referenced and get purged from the pool once garbage collected.
  * 
  * @author Benjamin Bentmann
  */
 class ObjectPool<T>
 {
 
-    private final Map<Object, WeakReference<T>> objects = new WeakHashMap<Object, WeakReference<T>>( 256 );
+    private final ConcurrentMap<Ref<T>, Ref<T>> objects = new ConcurrentHashMap<Ref<T>, Ref<T>>( 256 );
 
-    public synchronized T intern( T object )
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    public T intern( T object )
     {
-        WeakReference<T> pooledRef = objects.get( object );
+        expunge();
+
+        Ref<T> pooledRef = objects.get( new Ref<T>( object, null ) );
         if ( pooledRef != null )
         {
             T pooled = pooledRef.get();
@@ -39,8 +47,82 @@ class ObjectPool<T>
             }
         }
 
-        objects.put( object, new WeakReference<T>( object ) );
-        return object;
+        Ref<T> ref = new Ref<T>( object, queue );
+        while ( true )
+        {
+            pooledRef = objects.putIfAbsent( ref, ref );
+            if ( pooledRef == null )
+            {
+                return object;
+            }
+
+            T pooled = pooledRef.get();
+            if ( pooled != null )
+            {
+                return pooled;
+            }
+
+            // garbage collected but not yet expunged, a cleared reference only equals itself
+            objects.remove( pooledRef );
+        }
+    }
+
+    private void expunge()
+    {
+        for ( Reference<? extends T> ref = queue.poll(); ref != null; ref = queue.poll() )
+        {
+            objects.remove( ref );
+        }
+    }
+
+    /**
+     * Gets the number of objects in the pool, including those which have been garbage collected but not yet purged.
+     * 
+     * @return The number of objects in the pool.
+     */
+    int size()
+    {
+        return objects.size();
+    }
+
+    static final class Ref<T>
+        extends WeakReference<T>
+    {
+
+        private final int hash;
+
+        public Ref( T object, ReferenceQueue<T> queue )
+        {
+            super( object, queue );
+            hash = object.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Ref<?> ) )
+            {
+                return false;
+            }
+            Ref<?> that = (Ref<?>) obj;
+            if ( hash != that.hash )
+            {
+                return false;
+            }
+            Object object = get();
+            return object != null && object.equals( that.get() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
     }
 
 }
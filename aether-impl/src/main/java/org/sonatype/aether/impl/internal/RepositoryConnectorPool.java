@@ -0,0 +1,434 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.sonatype.aether.Authentication;
+import org.sonatype.aether.AuthenticationSelector;
+import org.sonatype.aether.Proxy;
+import org.sonatype.aether.ProxySelector;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+
+/**
+ * Keeps idle repository connectors around such that their network connections and worker threads can be reused by
+ * later requests, possibly from different sessions. Connectors are only shared between sessions whose settings
+ * relevant to the connector are equal, connectors that remain idle for longer than their timeout are closed by a
+ * background timer. As idle connectors retain the session they were created for, the pool should be closed once it is
+ * no longer needed.
+ */
+final class RepositoryConnectorPool
+{
+
+    private final Map<Object, LinkedList<IdleConnector>> connectors = new HashMap<Object, LinkedList<IdleConnector>>();
+
+    private Timer timer;
+
+    private boolean closed;
+
+    /**
+     * Creates a key for the connectors to the specified repository.
+     * 
+     * @param session The repository system session the connector is used with, must not be {@code null}.
+     * @param repository The repository the connector is used for, must not be {@code null}.
+     * @return The connector key, never {@code null}.
+     */
+    public Object toKey( RepositorySystemSession session, RemoteRepository repository )
+    {
+        return new Key( session, repository );
+    }
+
+    /**
+     * Takes an idle connector from the pool.
+     * 
+     * @param key The connector key, must not be {@code null}.
+     * @return The idle connector or {@code null} if none.
+     */
+    public RepositoryConnector acquire( Object key )
+    {
+        Collection<IdleConnector> expired;
+        RepositoryConnector connector = null;
+
+        synchronized ( connectors )
+        {
+            expired = evict( System.currentTimeMillis() );
+
+            LinkedList<IdleConnector> idle = connectors.get( key );
+            if ( idle != null )
+            {
+                connector = idle.removeLast().connector;
+                if ( idle.isEmpty() )
+                {
+                    connectors.remove( key );
+                }
+            }
+        }
+
+        close( expired );
+
+        return connector;
+    }
+
+    /**
+     * Wraps the specified connector such that closing it returns it to the pool.
+     * 
+     * @param key The connector key, must not be {@code null}.
+     * @param connector The connector to wrap, must not be {@code null}.
+     * @param timeout The time (in milliseconds) the connector may stay idle before being closed.
+     * @return The wrapped connector, never {@code null}.
+     */
+    public RepositoryConnector wrap( Object key, RepositoryConnector connector, long timeout )
+    {
+        return new PooledConnector( key, connector, timeout );
+    }
+
+    /**
+     * Closes all connectors that have been idle for longer than their timeout.
+     */
+    public void evict()
+    {
+        Collection<IdleConnector> expired;
+
+        synchronized ( connectors )
+        {
+            expired = evict( System.currentTimeMillis() );
+        }
+
+        close( expired );
+    }
+
+    /**
+     * Closes all idle connectors and stops the eviction timer. Connectors released after the pool has been closed are
+     * closed immediately.
+     */
+    public void close()
+    {
+        Collection<IdleConnector> idle = new ArrayList<IdleConnector>();
+
+        synchronized ( connectors )
+        {
+            closed = true;
+
+            for ( LinkedList<IdleConnector> list : connectors.values() )
+            {
+                idle.addAll( list );
+            }
+            connectors.clear();
+
+            if ( timer != null )
+            {
+                timer.cancel();
+                timer = null;
+            }
+        }
+
+        close( idle );
+    }
+
+    /**
+     * Gets the number of idle connectors in the pool.
+     * 
+     * @return The number of idle connectors.
+     */
+    public int size()
+    {
+        int size = 0;
+        synchronized ( connectors )
+        {
+            for ( LinkedList<IdleConnector> idle : connectors.values() )
+            {
+                size += idle.size();
+            }
+        }
+        return size;
+    }
+
+    void release( Object key, RepositoryConnector connector, long timeout )
+    {
+        Collection<IdleConnector> expired;
+
+        synchronized ( connectors )
+        {
+            if ( closed )
+            {
+                expired = Collections.singleton( new IdleConnector( connector, 0 ) );
+            }
+            else
+            {
+                long now = System.currentTimeMillis();
+
+                expired = evict( now );
+
+                LinkedList<IdleConnector> idle = connectors.get( key );
+                if ( idle == null )
+                {
+                    idle = new LinkedList<IdleConnector>();
+                    connectors.put( key, idle );
+                }
+                idle.addLast( new IdleConnector( connector, now + timeout ) );
+
+                if ( timer == null )
+                {
+                    timer = new Timer( "aether-connector-evictor", true );
+                }
+                timer.schedule( new EvictionTask(), timeout + 1 );
+            }
+        }
+
+        close( expired );
+    }
+
+    final class EvictionTask
+        extends TimerTask
+    {
+
+        @Override
+        public void run()
+        {
+            Collection<IdleConnector> expired;
+
+            synchronized ( connectors )
+            {
+                expired = evict( System.currentTimeMillis() );
+
+                if ( connectors.isEmpty() && timer != null )
+                {
+                    // stop the timer thread until connectors become idle again
+                    timer.cancel();
+                    timer = null;
+                }
+            }
+
+            close( expired );
+        }
+
+    }
+
+    private Collection<IdleConnector> evict( long now )
+    {
+        List<IdleConnector> expired = null;
+
+        for ( Iterator<LinkedList<IdleConnector>> it = connectors.values().iterator(); it.hasNext(); )
+        {
+            LinkedList<IdleConnector> idle = it.next();
+
+            // connectors with equal keys share their timeout and are queued in order of release, i.e. by expiry
+            while ( !idle.isEmpty() && idle.getFirst().expiry <= now )
+            {
+                if ( expired == null )
+                {
+                    expired = new ArrayList<IdleConnector>();
+                }
+                expired.add( idle.removeFirst() );
+            }
+
+            if ( idle.isEmpty() )
+            {
+                it.remove();
+            }
+        }
+
+        return expired;
+    }
+
+    private void close( Collection<IdleConnector> expired )
+    {
+        if ( expired != null )
+        {
+            for ( IdleConnector idle : expired )
+            {
+                idle.connector.close();
+            }
+        }
+    }
+
+    static final class IdleConnector
+    {
+
+        final RepositoryConnector connector;
+
+        final long expiry;
+
+        public IdleConnector( RepositoryConnector connector, long expiry )
+        {
+            this.connector = connector;
+            this.expiry = expiry;
+        }
+
+    }
+
+    final class PooledConnector
+        implements RepositoryConnector
+    {
+
+        private final Object key;
+
+        private final RepositoryConnector connector;
+
+        private final long timeout;
+
+        private volatile boolean closed;
+
+        public PooledConnector( Object key, RepositoryConnector connector, long timeout )
+        {
+            this.key = key;
+            this.connector = connector;
+            this.timeout = timeout;
+        }
+
+        public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                         Collection<? extends MetadataDownload> metadataDownloads )
+        {
+            if ( closed )
+            {
+                throw new IllegalStateException( "connector closed" );
+            }
+            connector.get( artifactDownloads, metadataDownloads );
+        }
+
+        public void put( Collection<? extends ArtifactUpload> artifactUploads,
+                         Collection<? extends MetadataUpload> metadataUploads )
+        {
+            if ( closed )
+            {
+                throw new IllegalStateException( "connector closed" );
+            }
+            connector.put( artifactUploads, metadataUploads );
+        }
+
+        public void close()
+        {
+            synchronized ( this )
+            {
+                if ( closed )
+                {
+                    return;
+                }
+                closed = true;
+            }
+
+            release( key, connector, timeout );
+        }
+
+        @Override
+        public String toString()
+        {
+            return connector.toString();
+        }
+
+    }
+
+    static final class Key
+    {
+
+        private final String id;
+
+        private final String url;
+
+        private final String type;
+
+        private final Authentication auth;
+
+        private final Proxy proxy;
+
+        private final Authentication selectedAuth;
+
+        private final Proxy selectedProxy;
+
+        private final Object listener;
+
+        private final Map<String, Object> config;
+
+        private final int hashCode;
+
+        public Key( RepositorySystemSession session, RemoteRepository repository )
+        {
+            id = repository.getId();
+            url = repository.getUrl();
+            type = repository.getContentType();
+            auth = repository.getAuthentication();
+            proxy = repository.getProxy();
+
+            AuthenticationSelector authSelector = session.getAuthenticationSelector();
+            selectedAuth = ( authSelector != null ) ? authSelector.getAuthentication( repository ) : null;
+            ProxySelector proxySelector = session.getProxySelector();
+            selectedProxy = ( proxySelector != null ) ? proxySelector.getProxy( repository ) : null;
+
+            listener = session.getTransferListener();
+            config = new HashMap<String, Object>( session.getConfigProperties() );
+
+            int hash = 17;
+            hash = hash * 31 + hash( id );
+            hash = hash * 31 + hash( url );
+            hash = hash * 31 + hash( type );
+            hash = hash * 31 + hash( auth );
+            hash = hash * 31 + hash( proxy );
+            hash = hash * 31 + hash( selectedAuth );
+            hash = hash * 31 + hash( selectedProxy );
+            hash = hash * 31 + System.identityHashCode( listener );
+            hash = hash * 31 + config.hashCode();
+            hashCode = hash;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            Key that = (Key) obj;
+            return hashCode == that.hashCode && eq( id, that.id ) && eq( url, that.url ) && eq( type, that.type )
+                && eq( auth, that.auth ) && eq( proxy, that.proxy ) && eq( selectedAuth, that.selectedAuth )
+                && eq( selectedProxy, that.selectedProxy ) && listener == that.listener && config.equals( that.config );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        private static boolean eq( Object o1, Object o2 )
+        {
+            return ( o1 != null ) ? o1.equals( o2 ) : o2 == null;
+        }
+
+        private static int hash( Object obj )
+        {
+            return ( obj != null ) ? obj.hashCode() : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,468 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.sonatype.aether.spi.log.Logger;
+
+/**
+ * An index that records for the artifact files of a local repository the keys of the repositories from which the
+ * artifacts are available. The index is kept in memory and backed by a single file that is only appended to and gets
+ * periodically compacted. The file starts with a header (magic number, version, generation) followed by records
+ * consisting of a type byte, the length of the payload, the UTF-8 encoded payload and a CRC-32 of the preceding bytes.
+ * Parsing stops at the first record whose checksum does not match, be it an incomplete record of a crashed writer or
+ * stale bytes left behind by a compaction that was interrupted before truncating the file. Changes by other processes
+ * are picked up by reading the new tail of the file, a compaction by another process is detected by means of the
+ * generation and causes a full reload. Within this process, a single instance per index file coordinates all accesses,
+ * across processes file locks are used. As the index merely complements the tracking files, errors are logged but
+ * never raised. Given the instance is shared by all users of the index file, the logger to report errors to is passed
+ * along with each call.
+ */
+final class RepositoryIndex
+{
+
+    private static final ConcurrentMap<File, RepositoryIndex> INSTANCES =
+        new ConcurrentHashMap<File, RepositoryIndex>();
+
+    private static final int MAGIC = 0x41455249;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+
+    private static final byte ADD = 1;
+
+    private static final byte REMOVE = 2;
+
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    private static final String ENCODING = "UTF-8";
+
+    private final File file;
+
+    private final Map<String, Set<String>> entries = new HashMap<String, Set<String>>( 1024 );
+
+    private long generation = -1;
+
+    private long position;
+
+    private long length;
+
+    private long lastModified;
+
+    private int records;
+
+    private int size;
+
+    /**
+     * Gets the index backed by the specified file.
+     * 
+     * @param file The index file, must not be {@code null}.
+     * @return The index, never {@code null}.
+     */
+    public static RepositoryIndex getInstance( File file )
+    {
+        file = file.getAbsoluteFile();
+        RepositoryIndex index = INSTANCES.get( file );
+        if ( index == null )
+        {
+            index = new RepositoryIndex( file );
+            RepositoryIndex existing = INSTANCES.putIfAbsent( file, index );
+            if ( existing != null )
+            {
+                index = existing;
+            }
+        }
+        return index;
+    }
+
+    RepositoryIndex( File file )
+    {
+        this.file = file;
+    }
+
+    /**
+     * Gets the keys of the repositories from which the specified artifact file is available.
+     * 
+     * @param path The path of the artifact file relative to the local repository, must not be {@code null}.
+     * @param logger The logger to report errors to, must not be {@code null}.
+     * @return The (read-only) repository keys, never {@code null}.
+     */
+    public synchronized Set<String> get( String path, Logger logger )
+    {
+        refresh( logger );
+
+        Set<String> keys = entries.get( path );
+        return ( keys != null ) ? keys : Collections.<String> emptySet();
+    }
+
+    /**
+     * Records that the specified artifact file is available from the given repositories.
+     * 
+     * @param path The path of the artifact file relative to the local repository, must not be {@code null}.
+     * @param keys The keys of the repositories, must not be {@code null}.
+     * @param logger The logger to report errors to, must not be {@code null}.
+     */
+    public synchronized void add( String path, Collection<String> keys, Logger logger )
+    {
+        if ( keys.isEmpty() )
+        {
+            return;
+        }
+        refresh( logger );
+        Set<String> known = entries.get( path );
+        if ( known == null || !known.containsAll( keys ) )
+        {
+            update( path, keys, true, logger );
+        }
+    }
+
+    /**
+     * Removes all records about the specified artifact file, e.g. because the file no longer exists.
+     * 
+     * @param path The path of the artifact file relative to the local repository, must not be {@code null}.
+     * @param logger The logger to report errors to, must not be {@code null}.
+     */
+    public synchronized void remove( String path, Logger logger )
+    {
+        refresh( logger );
+        if ( entries.containsKey( path ) )
+        {
+            update( path, null, true, logger );
+        }
+    }
+
+    /**
+     * Gets the number of records currently stored in the index file.
+     * 
+     * @return The number of records.
+     */
+    synchronized int getRecordCount()
+    {
+        return records;
+    }
+
+    private void refresh( Logger logger )
+    {
+        if ( file.length() != length || file.lastModified() != lastModified )
+        {
+            update( null, null, false, logger );
+        }
+    }
+
+    private void update( String path, Collection<String> keys, boolean write, Logger logger )
+    {
+        RandomAccessFile raf = null;
+        FileLock lock = null;
+        try
+        {
+            if ( write )
+            {
+                file.getParentFile().mkdirs();
+            }
+            else if ( !file.isFile() )
+            {
+                clear( -1 );
+                length = 0;
+                lastModified = 0;
+                return;
+            }
+
+            raf = new RandomAccessFile( file, write ? "rw" : "r" );
+            FileChannel channel = raf.getChannel();
+            lock = channel.lock( 0, Long.MAX_VALUE, !write );
+
+            read( channel );
+
+            if ( write )
+            {
+                if ( generation < 0 )
+                {
+                    clear( System.currentTimeMillis() );
+                    channel.truncate( 0 );
+                    channel.write( newHeader( generation ), 0 );
+                    position = HEADER_SIZE;
+                }
+                else if ( channel.size() > position )
+                {
+                    // discard incomplete record left behind by crashed process
+                    channel.truncate( position );
+                }
+
+                List<byte[]> payloads = new ArrayList<byte[]>();
+                List<Byte> types = new ArrayList<Byte>();
+                if ( keys != null )
+                {
+                    Set<String> known = entries.get( path );
+                    for ( String key : keys )
+                    {
+                        if ( known == null || !known.contains( key ) )
+                        {
+                            types.add( Byte.valueOf( ADD ) );
+                            payloads.add( ( path + '>' + key ).getBytes( ENCODING ) );
+                        }
+                    }
+                }
+                else if ( entries.containsKey( path ) )
+                {
+                    types.add( Byte.valueOf( REMOVE ) );
+                    payloads.add( path.getBytes( ENCODING ) );
+                }
+
+                ByteBuffer buffer = newRecords( types, payloads );
+                position += channel.write( buffer, position );
+                buffer.flip();
+                parse( buffer );
+
+                if ( records >= COMPACTION_THRESHOLD && records > size * 2 )
+                {
+                    compact( channel, logger );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.debug( "Failed to " + ( write ? "update" : "read" ) + " repository index " + file, e );
+        }
+        finally
+        {
+            release( lock, logger );
+            close( raf, logger );
+            length = file.length();
+            lastModified = file.lastModified();
+        }
+    }
+
+    private void read( FileChannel channel )
+        throws IOException
+    {
+        long total = channel.size();
+        if ( total < HEADER_SIZE )
+        {
+            clear( -1 );
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        while ( header.hasRemaining() && channel.read( header, header.position() ) >= 0 )
+        {
+            // read complete header
+        }
+        header.flip();
+        if ( header.getInt() != MAGIC || header.getInt() != VERSION )
+        {
+            // unknown format, will be overwritten upon next update
+            clear( -1 );
+            return;
+        }
+
+        long gen = header.getLong();
+        if ( gen != generation || total < position )
+        {
+            clear( gen );
+        }
+
+        if ( total > position )
+        {
+            // read rather than map the tail, a mapping would keep other processes from truncating the file on Windows
+            ByteBuffer buffer = ByteBuffer.allocate( (int) ( total - position ) );
+            while ( buffer.hasRemaining() && channel.read( buffer, position + buffer.position() ) >= 0 )
+            {
+                // read complete tail
+            }
+            buffer.flip();
+            position += parse( buffer );
+        }
+    }
+
+    private int parse( ByteBuffer buffer )
+        throws UnsupportedEncodingException
+    {
+        int start = buffer.position();
+        int end = start;
+        CRC32 crc = new CRC32();
+        while ( buffer.remaining() >= RECORD_OVERHEAD )
+        {
+            byte type = buffer.get();
+            int len = buffer.getInt();
+            if ( len < 0 || buffer.remaining() < len + 4 )
+            {
+                break;
+            }
+            byte[] bytes = new byte[len];
+            buffer.get( bytes );
+            crc.reset();
+            crc.update( buffer.array(), buffer.arrayOffset() + end, 5 + len );
+            if ( buffer.getInt() != (int) crc.getValue() )
+            {
+                break;
+            }
+            apply( type, new String( bytes, ENCODING ) );
+            end = buffer.position();
+        }
+        return end - start;
+    }
+
+    private void apply( byte type, String payload )
+    {
+        records++;
+        if ( type == ADD )
+        {
+            int sep = payload.indexOf( '>' );
+            if ( sep > 0 )
+            {
+                String path = payload.substring( 0, sep );
+                Set<String> keys = entries.get( path );
+                keys = ( keys != null ) ? new HashSet<String>( keys ) : new HashSet<String>( 4 );
+                if ( keys.add( payload.substring( sep + 1 ) ) )
+                {
+                    // copy on write, the sets handed out by get() are snapshots
+                    entries.put( path, Collections.unmodifiableSet( keys ) );
+                    size++;
+                }
+            }
+        }
+        else if ( type == REMOVE )
+        {
+            Set<String> keys = entries.remove( payload );
+            if ( keys != null )
+            {
+                size -= keys.size();
+            }
+        }
+    }
+
+    private void compact( FileChannel channel, Logger logger )
+        throws IOException
+    {
+        List<Byte> types = new ArrayList<Byte>( size );
+        List<byte[]> payloads = new ArrayList<byte[]>( size );
+        for ( Map.Entry<String, Set<String>> entry : entries.entrySet() )
+        {
+            for ( String key : entry.getValue() )
+            {
+                types.add( Byte.valueOf( ADD ) );
+                payloads.add( ( entry.getKey() + '>' + key ).getBytes( ENCODING ) );
+            }
+        }
+
+        long gen = generation + 1;
+        ByteBuffer header = newHeader( gen );
+        ByteBuffer buffer = newRecords( types, payloads );
+
+        /*
+         * Readers hold a shared lock, so the rewrite in place appears atomic to them. If this process dies before the
+         * truncation, the checksums keep the stale bytes of the old file from being parsed as records.
+         */
+        channel.write( header, 0 );
+        long end = HEADER_SIZE + channel.write( buffer, HEADER_SIZE );
+        channel.truncate( end );
+
+        generation = gen;
+        position = end;
+        records = payloads.size();
+
+        logger.debug( "Compacted repository index " + file + " to " + records + " records" );
+    }
+
+    private void clear( long gen )
+    {
+        entries.clear();
+        generation = gen;
+        position = HEADER_SIZE;
+        records = 0;
+        size = 0;
+    }
+
+    private static ByteBuffer newHeader( long gen )
+    {
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        header.putInt( MAGIC ).putInt( VERSION ).putLong( gen );
+        header.flip();
+        return header;
+    }
+
+    private static ByteBuffer newRecords( List<Byte> types, List<byte[]> payloads )
+    {
+        int total = 0;
+        for ( byte[] payload : payloads )
+        {
+            total += RECORD_OVERHEAD + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( total );
+        CRC32 crc = new CRC32();
+        for ( int i = 0; i < payloads.size(); i++ )
+        {
+            byte[] payload = payloads.get( i );
+            int start = buffer.position();
+            buffer.put( types.get( i ).byteValue() ).putInt( payload.length ).put( payload );
+            crc.reset();
+            crc.update( buffer.array(), start, buffer.position() - start );
+            buffer.putInt( (int) crc.getValue() );
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void release( FileLock lock, Logger logger )
+    {
+        if ( lock != null )
+        {
+            try
+            {
+                lock.release();
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Error releasing lock for repository index " + file, e );
+            }
+        }
+    }
+
+    private void close( RandomAccessFile raf, Logger logger )
+    {
+        if ( raf != null )
+        {
+            try
+            {
+                raf.close();
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Error closing repository index " + file, e );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sonatype.aether.RepositoryCache;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.util.BoundedRepositoryCache;
+
+/**
+ * An in-memory index of the contents of resolution tracking files. An indexed file is only read again once its
+ * timestamp or size changed, i.e. when it has been updated by another process, so update checks for the same
+ * directory or artifact usually get by without locking and parsing the file. As the index relies on timestamp and
+ * size, a rewrite by another process that preserves the size of the file and happens within the timestamp resolution
+ * of the file system (e.g. one or two seconds) goes unnoticed until the file changes again. This is acceptable for
+ * tracking files whose entries are merely used to throttle update checks. <em>Note:</em> The properties handed out by
+ * the index are shared and must not be modified by callers.
+ */
+final class TrackingFileCache
+    implements BoundedRepositoryCache.Weighable
+{
+
+    private static final String KEY = TrackingFileCache.class.getName();
+
+    private static final Properties EMPTY = new Properties();
+
+    private final ConcurrentMap<File, Entry> entries = new ConcurrentHashMap<File, Entry>();
+
+    /**
+     * Gets the index associated with the specified session.
+     * 
+     * @param session The repository system session, must not be {@code null}.
+     * @return The index, never {@code null}. If the session has no cache, a fresh index is returned.
+     */
+    public static TrackingFileCache getIndex( RepositorySystemSession session )
+    {
+        RepositoryCache cache = session.getCache();
+
+        TrackingFileCache index = null;
+        if ( cache != null )
+        {
+            index = (TrackingFileCache) cache.get( session, KEY );
+        }
+        if ( index == null )
+        {
+            index = new TrackingFileCache();
+            if ( cache != null )
+            {
+                cache.put( session, KEY, index );
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the contents of the specified tracking file, reading the file only if it changed since it was last indexed.
+     * 
+     * @param file The tracking file, must not be {@code null}.
+     * @param manager The tracking file manager used to read the file, must not be {@code null}.
+     * @return The contents of the file, never {@code null}. The properties must not be modified.
+     */
+    public Properties read( File file, TrackingFileManager manager )
+    {
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        Entry entry = entries.get( file );
+        if ( entry != null && entry.matches( lastModified, length ) )
+        {
+            return entry.props;
+        }
+
+        Properties props = manager.read( file );
+        if ( props == null )
+        {
+            props = EMPTY;
+        }
+
+        entries.put( file, new Entry( props, lastModified, length ) );
+
+        return props;
+    }
+
+    /**
+     * Applies the specified updates to a tracking file and indexes the resulting contents.
+     * 
+     * @param file The tracking file, must not be {@code null}.
+     * @param updates The properties to set or remove (via a {@code null} value), must not be {@code null}.
+     * @param manager The tracking file manager used to update the file, must not be {@code null}.
+     * @return The updated contents of the file, never {@code null}. The properties must not be modified.
+     */
+    public Properties update( File file, Map<String, String> updates, TrackingFileManager manager )
+    {
+        TrackingFileManager.Contents contents = manager.write( file, updates );
+
+        entries.put( file, new Entry( contents.props, contents.lastModified, contents.length ) );
+
+        return contents.props;
+    }
+
+    /**
+     * Drops the specified tracking file from the index, e.g. after the file has been deleted.
+     * 
+     * @param file The tracking file, must not be {@code null}.
+     */
+    public void remove( File file )
+    {
+        entries.remove( file );
+    }
+
+    public int getWeight()
+    {
+        return Math.max( entries.size(), 1 );
+    }
+
+    static final class Entry
+    {
+
+        final Properties props;
+
+        final long lastModified;
+
+        final long length;
+
+        public Entry( Properties props, long lastModified, long length )
+        {
+            this.props = props;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean matches( long lastModified, long length )
+        {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+    }
+
+}
@@ -23,20 +23,41 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.spi.log.NullLogger;
 
 /**
- * Manages potentially concurrent accesses to a properties file.
+ * Manages potentially concurrent accesses to a properties file. Within this process, accesses are coordinated by a
+ * fixed table of read-write locks that is striped by file path, i.e. readers of the same file can proceed concurrently
+ * and the locks do not retain memory per file. Across processes, accesses are coordinated by file locks. The number of
+ * (contended) lock acquisitions is published via {@link TrackingFileStatistics}.
  * 
  * @author Benjamin Bentmann
  */
 class TrackingFileManager
 {
 
+    private static final Stripe[] STRIPES = new Stripe[64];
+
+    static
+    {
+        for ( int i = 0; i < STRIPES.length; i++ )
+        {
+            STRIPES[i] = new Stripe();
+        }
+    }
+
+    private static final AtomicLong LOCKS = new AtomicLong();
+
+    private static final AtomicLong CONTENTIONS = new AtomicLong();
+
     private Logger logger = NullLogger.INSTANCE;
 
     public TrackingFileManager setLogger( Logger logger )
@@ -47,20 +68,28 @@ class TrackingFileManager
 
     public Properties read( File file )
     {
-        synchronized ( file.getAbsolutePath().intern() )
+        String path = file.getAbsolutePath();
+        Stripe stripe = getStripe( path );
+
+        lock( stripe.readLock() );
+        try
         {
-            FileLock lock = null;
-            FileChannel channel = null;
+            SharedLock lock = null;
             try
             {
-                FileInputStream stream = new FileInputStream( file );
-                channel = stream.getChannel();
-                lock = channel.lock( 0, channel.size(), true );
+                lock = acquire( stripe, path, file );
 
                 logger.debug( "Reading resolution tracking file " + file );
 
+                FileChannel channel = lock.channel;
+                ByteBuffer buffer = ByteBuffer.allocate( (int) channel.size() );
+                while ( buffer.hasRemaining() && channel.read( buffer, buffer.position() ) >= 0 )
+                {
+                    // keep reading
+                }
+
                 Properties props = new Properties();
-                props.load( stream );
+                props.load( new ByteArrayInputStream( buffer.array(), 0, buffer.position() ) );
 
                 return props;
             }
@@ -74,25 +103,46 @@ class TrackingFileManager
             }
             finally
             {
-                release( lock, file );
-                close( channel, file );
+                release( stripe, path, lock, file );
             }
         }
+        finally
+        {
+            stripe.readLock().unlock();
+        }
 
         return null;
     }
 
     public Properties update( File file, Map<String, String> updates )
+    {
+        return write( file, updates ).props;
+    }
+
+    /**
+     * Applies the specified updates to a tracking file and reports the resulting contents along with the timestamp and
+     * size the file had when it was written, i.e. before any other process could modify it again.
+     * 
+     * @param file The tracking file, must not be {@code null}.
+     * @param updates The properties to set or remove (via a {@code null} value), must not be {@code null}.
+     * @return The updated contents of the file, never {@code null}.
+     */
+    Contents write( File file, Map<String, String> updates )
     {
         Properties props = new Properties();
+        long lastModified = 0;
+        long length = -1;
 
-        synchronized ( file.getAbsolutePath().intern() )
+        Stripe stripe = getStripe( file.getAbsolutePath() );
+
+        lock( stripe.writeLock() );
+        try
         {
             File directory = file.getParentFile();
             if ( !directory.exists() && !directory.mkdirs() )
             {
                 logger.debug( "Failed to create parent directories for resolution tracking file " + file );
-                return props;
+                return new Contents( props, lastModified, length );
             }
 
             FileChannel channel = null;
@@ -139,6 +189,10 @@ class TrackingFileManager
 
                 channel.position( 0 );
                 channel.write( buffer );
+                channel.truncate( channel.position() );
+
+                length = channel.size();
+                lastModified = file.lastModified();
             }
             catch ( IOException e )
             {
@@ -150,8 +204,118 @@ class TrackingFileManager
                 close( channel, file );
             }
         }
+        finally
+        {
+            stripe.writeLock().unlock();
+        }
+
+        return new Contents( props, lastModified, length );
+    }
+
+    /**
+     * Gets the number of times a thread acquired the in-process lock for a tracking file.
+     * 
+     * @return The number of lock acquisitions.
+     */
+    static long getLockCount()
+    {
+        return LOCKS.get();
+    }
+
+    /**
+     * Gets the number of times a thread had to wait for the in-process lock for a tracking file because another
+     * thread was accessing the same file or a file hashed to the same stripe.
+     * 
+     * @return The number of contended lock acquisitions.
+     */
+    static long getContentionCount()
+    {
+        return CONTENTIONS.get();
+    }
+
+    private static Stripe getStripe( String path )
+    {
+        int hash = path.hashCode();
+        hash ^= ( hash >>> 20 ) ^ ( hash >>> 12 );
+        hash ^= ( hash >>> 7 ) ^ ( hash >>> 4 );
+        return STRIPES[hash & ( STRIPES.length - 1 )];
+    }
+
+    private static void lock( Lock lock )
+    {
+        if ( !lock.tryLock() )
+        {
+            CONTENTIONS.incrementAndGet();
+            lock.lock();
+        }
+        LOCKS.incrementAndGet();
+    }
+
+    private SharedLock acquire( Stripe stripe, String path, File file )
+        throws IOException
+    {
+        SharedLock lock;
+
+        synchronized ( stripe )
+        {
+            lock = stripe.sharedLocks.get( path );
+            if ( lock == null )
+            {
+                lock = new SharedLock();
+                stripe.sharedLocks.put( path, lock );
+            }
+            lock.count++;
+        }
+
+        boolean acquired = false;
+        try
+        {
+            // waiting for another process to release its exclusive lock must not block readers of other files
+            synchronized ( lock )
+            {
+                if ( lock.channel == null )
+                {
+                    FileChannel channel = new FileInputStream( file ).getChannel();
+                    try
+                    {
+                        lock.lock = channel.lock( 0, channel.size(), true );
+                        lock.channel = channel;
+                    }
+                    finally
+                    {
+                        if ( lock.channel == null )
+                        {
+                            close( channel, file );
+                        }
+                    }
+                }
+            }
+            acquired = true;
+            return lock;
+        }
+        finally
+        {
+            if ( !acquired )
+            {
+                release( stripe, path, lock, file );
+            }
+        }
+    }
 
-        return props;
+    private void release( Stripe stripe, String path, SharedLock lock, File file )
+    {
+        if ( lock != null )
+        {
+            synchronized ( stripe )
+            {
+                if ( --lock.count <= 0 )
+                {
+                    stripe.sharedLocks.remove( path );
+                    release( lock.lock, file );
+                    close( lock.channel, file );
+                }
+            }
+        }
     }
 
     private void release( FileLock lock, File file )
@@ -184,4 +348,55 @@ class TrackingFileManager
         }
     }
 
+    /**
+     * Guards the tracking files whose paths hash to this stripe within this process. Concurrent readers of the same
+     * file share a single file lock as the JVM does not allow overlapping file locks.
+     */
+    static final class Stripe
+        extends ReentrantReadWriteLock
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        final transient Map<String, SharedLock> sharedLocks = new HashMap<String, SharedLock>();
+
+    }
+
+    /**
+     * The contents of a tracking file along with the timestamp and size of the file while it was locked. A size of
+     * {@code -1} denotes a file that could not be written.
+     */
+    static final class Contents
+    {
+
+        final Properties props;
+
+        final long lastModified;
+
+        final long length;
+
+        public Contents( Properties props, long lastModified, long length )
+        {
+            this.props = props;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+    }
+
+    /**
+     * The file lock shared by the readers of a file. The lock is lazily acquired by the first reader while holding the
+     * monitor of this object, the reference count is guarded by the monitor of the stripe.
+     */
+    static final class SharedLock
+    {
+
+        FileChannel channel;
+
+        FileLock lock;
+
+        int count;
+
+    }
+
 }
@@ -0,0 +1,52 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+/**
+ * Provides statistics about the in-process locks guarding the tracking files (e.g. {@code _maven.repositories} or
+ * {@code resolver-status.properties}) of local repositories. The counters are cumulative for the lifetime of the JVM
+ * and cover all local repositories and sessions, so callers interested in a specific operation should compare the
+ * values taken before and after it. A high ratio of contended to total lock acquisitions indicates that many threads
+ * are updating the same tracking files.
+ */
+public final class TrackingFileStatistics
+{
+
+    private TrackingFileStatistics()
+    {
+        // hide constructor
+    }
+
+    /**
+     * Gets the number of times a thread acquired the in-process lock for a tracking file.
+     * 
+     * @return The number of lock acquisitions.
+     */
+    public static long getLockCount()
+    {
+        return TrackingFileManager.getLockCount();
+    }
+
+    /**
+     * Gets the number of times a thread had to wait for the in-process lock for a tracking file because another
+     * thread was accessing the same file or a file hashed to the same lock stripe.
+     * 
+     * @return The number of contended lock acquisitions, never greater than {@link #getLockCount()}.
+     */
+    public static long getContentionCount()
+    {
+        return TrackingFileManager.getContentionCount();
+    }
+
+}
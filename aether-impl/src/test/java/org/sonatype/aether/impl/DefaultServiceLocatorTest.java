@@ -19,6 +19,7 @@ import org.junit.Test;
 import org.sonatype.aether.ArtifactDescriptorException;
 import org.sonatype.aether.ArtifactDescriptorRequest;
 import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.AsyncRepositorySystem;
 import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.VersionRangeRequest;
@@ -48,6 +49,18 @@ public class DefaultServiceLocatorTest
         assertNotNull( repoSys );
     }
 
+    @Test
+    public void testGetAsyncRepositorySystem()
+    {
+        DefaultServiceLocator locator = new DefaultServiceLocator();
+        locator.addService( ArtifactDescriptorReader.class, StubArtifactDescriptorReader.class );
+        locator.addService( VersionResolver.class, StubVersionResolver.class );
+        locator.addService( VersionRangeResolver.class, StubVersionRangeResolver.class );
+
+        AsyncRepositorySystem repoSys = locator.getService( AsyncRepositorySystem.class );
+        assertNotNull( repoSys );
+    }
+
     public static class StubArtifactDescriptorReader
         implements ArtifactDescriptorReader
     {
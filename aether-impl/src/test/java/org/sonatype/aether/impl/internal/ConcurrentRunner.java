@@ -0,0 +1,89 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a task on several threads which are released at the same time and reports the first failure of any thread.
+ */
+final class ConcurrentRunner
+{
+
+    interface Task
+    {
+
+        void run()
+            throws Exception;
+
+    }
+
+    private final CountDownLatch start = new CountDownLatch( 1 );
+
+    private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    private final List<Thread> threads = new ArrayList<Thread>();
+
+    /**
+     * Starts the specified number of threads running the given task.
+     */
+    public static ConcurrentRunner start( int count, final Task task )
+    {
+        final ConcurrentRunner runner = new ConcurrentRunner();
+        for ( int i = 0; i < count; i++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        runner.start.await();
+                        task.run();
+                    }
+                    catch ( Throwable e )
+                    {
+                        runner.error.compareAndSet( null, e );
+                    }
+                }
+            };
+            thread.start();
+            runner.threads.add( thread );
+        }
+        runner.start.countDown();
+        return runner;
+    }
+
+    /**
+     * Waits for all threads to finish and rethrows the first failure if any.
+     */
+    public void join()
+        throws InterruptedException
+    {
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        if ( error.get() != null )
+        {
+            throw new AssertionError( error.get() );
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.ArtifactDescriptorException;
+import org.sonatype.aether.ArtifactDescriptorRequest;
+import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.VersionRangeRequest;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DataPoolTest
+{
+
+    private DefaultRepositorySystemSession session;
+
+    @Before
+    public void setup()
+    {
+        session = new DefaultRepositorySystemSession();
+        session.setCache( new DefaultRepositoryCache() );
+    }
+
+    private ArtifactDescriptorRequest newDescriptorRequest()
+    {
+        ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
+        request.setArtifact( new DefaultArtifact( "gid:aid:1" ) );
+        return request;
+    }
+
+    @Test
+    public void testDescriptorRoundTrip()
+    {
+        DataPool pool = new DataPool( session );
+
+        ArtifactDescriptorRequest request = newDescriptorRequest();
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+        result.setArtifact( request.getArtifact() );
+        result.addDependency( new Dependency( new DefaultArtifact( "gid:dep:1" ), "compile" ) );
+        result.addManagedDependency( new Dependency( new DefaultArtifact( "gid:mngt:1" ), "test" ) );
+        result.addRepository( new RemoteRepository( "test", "default", "file:///void" ) );
+
+        Object key = pool.toKey( request );
+        pool.putDescriptor( key, result );
+
+        ArtifactDescriptorResult pooled = new DataPool( session ).getDescriptor( key, newDescriptorRequest() );
+        assertNotNull( pooled );
+        assertEquals( result.getDependencies(), pooled.getDependencies() );
+        assertEquals( result.getManagedDependencies(), pooled.getManagedDependencies() );
+        assertEquals( result.getRepositories(), pooled.getRepositories() );
+        assertNotSame( result.getRepositories().get( 0 ), pooled.getRepositories().get( 0 ) );
+    }
+
+    @Test
+    public void testConstraintsAreSharedViaSessionCache()
+        throws Exception
+    {
+        VersionRangeRequest request = new VersionRangeRequest();
+        request.setArtifact( new DefaultArtifact( "gid:aid:[1,2]" ) );
+
+        DataPool pool = new DataPool( session );
+        Object key = pool.toKey( request );
+        pool.resolveConstraint( key, request, new DefaultDependencyCollectorTest.StubVersionRangeResolver(), session );
+
+        assertNotNull( new DataPool( session ).getConstraint( key, request ) );
+    }
+
+    @Test
+    public void testConcurrentReadsOfSameDescriptorAreMerged()
+        throws Exception
+    {
+        final DataPool pool = new DataPool( session );
+
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch proceed = new CountDownLatch( 1 );
+
+        final ArtifactDescriptorReader reader = new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+                throws ArtifactDescriptorException
+            {
+                reads.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    proceed.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( request.getArtifact() );
+                return result;
+            }
+        };
+
+        ConcurrentRunner runner = ConcurrentRunner.start( 4, new ConcurrentRunner.Task()
+        {
+            public void run()
+                throws Exception
+            {
+                ArtifactDescriptorRequest request = newDescriptorRequest();
+                Object key = pool.toKey( request );
+                ArtifactDescriptorResult result = pool.readDescriptor( key, request, reader, session );
+                assertSame( request, result.getRequest() );
+            }
+        } );
+
+        started.await();
+        Thread.sleep( 100 );
+        proceed.countDown();
+        runner.join();
+
+        assertEquals( 1, reads.get() );
+    }
+
+    @Test
+    public void testReclaimedDescriptorsArePurged()
+    {
+        DataPool.Store<String> store = new DataPool.Store<String>();
+
+        store.put( "a", "value-a" );
+        store.put( "b", "value-b" );
+        assertEquals( "value-a", store.get( "a" ) );
+        assertEquals( 2, store.size() );
+
+        // simulate the garbage collector reclaiming a softly referenced value
+        DataPool.Store.Ref<String> ref = store.values.get( "a" );
+        ref.clear();
+        ref.enqueue();
+
+        assertNull( store.get( "a" ) );
+        assertEquals( "value-b", store.get( "b" ) );
+        assertEquals( 1, store.size() );
+    }
+
+}
@@ -0,0 +1,473 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.Artifact;
+import org.sonatype.aether.ArtifactNotFoundException;
+import org.sonatype.aether.ArtifactRequest;
+import org.sonatype.aether.ArtifactResolutionException;
+import org.sonatype.aether.ArtifactResult;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.LocalArtifactRequest;
+import org.sonatype.aether.LocalArtifactResult;
+import org.sonatype.aether.LocalRepository;
+import org.sonatype.aether.LocalRepositoryManager;
+import org.sonatype.aether.NoRepositoryConnectorException;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositoryPolicy;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.VersionRequest;
+import org.sonatype.aether.VersionResult;
+import org.sonatype.aether.WorkspaceReader;
+import org.sonatype.aether.impl.LocalRepositoryEvent;
+import org.sonatype.aether.impl.LocalRepositoryMaintainer;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.impl.VersionResolver;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.FileUtil;
+
+public class DefaultArtifactResolverTest
+{
+
+    private File basedir;
+
+    private RecordingLocalRepositoryManager lrm;
+
+    private RepositorySystemSession session;
+
+    private DownloadingConnector connector;
+
+    private DefaultArtifactResolver resolver;
+
+    private RemoteRepository repository;
+
+    @Before
+    public void setup()
+    {
+        basedir = new File( "target/test-resolver-repository" );
+        FileUtil.deleteDir( basedir );
+
+        lrm = new RecordingLocalRepositoryManager( basedir );
+        session = new TestRepositorySystemSession()
+        {
+            @Override
+            public LocalRepositoryManager getLocalRepositoryManager()
+            {
+                return lrm;
+            }
+
+            @Override
+            public LocalRepository getLocalRepository()
+            {
+                return lrm.getRepository();
+            }
+
+            @Override
+            public WorkspaceReader getWorkspaceReader()
+            {
+                return null;
+            }
+
+            @Override
+            public boolean isNotFoundCachingEnabled()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean isTransferErrorCachingEnabled()
+            {
+                return false;
+            }
+        };
+
+        connector = new DownloadingConnector();
+        resolver = new DefaultArtifactResolver();
+        resolver.setVersionResolver( new StubVersionResolver() );
+        resolver.setUpdateCheckManager( new DefaultUpdateCheckManager() );
+        resolver.setRemoteRepositoryManager( new StubRemoteRepositoryManager( connector ) );
+
+        repository = new RemoteRepository( "test", "default", "file:///unused" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtil.deleteDir( basedir );
+    }
+
+    private NamedLocks.NamedLock lock( Artifact artifact )
+    {
+        File file = new File( basedir, lrm.getPathForLocalArtifact( artifact ) );
+        NamedLocks.NamedLock lock =
+            NamedLocks.getInstance( basedir ).newLock( Collections.singleton( file.getAbsolutePath() ), null );
+        lock.lock();
+        return lock;
+    }
+
+    private ArtifactRequest newRequest( Artifact artifact )
+    {
+        return new ArtifactRequest( artifact, Collections.singletonList( repository ), "" );
+    }
+
+    static void write( File file, String contents )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        FileOutputStream os = new FileOutputStream( file );
+        try
+        {
+            os.write( contents.getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+
+    @Test
+    public void testArtifactWrittenWhileWaitingForLockIsNotDownloadedAgain()
+        throws Exception
+    {
+        final Artifact artifact = new DefaultArtifact( "gid:aid:jar:1" );
+
+        NamedLocks.NamedLock lock = lock( artifact );
+        ConcurrentRunner runner;
+        try
+        {
+            runner = ConcurrentRunner.start( 1, new ConcurrentRunner.Task()
+            {
+                public void run()
+                    throws Exception
+                {
+                    ArtifactResult result = resolver.resolveArtifact( session, newRequest( artifact ) );
+                    assertEquals( lrm.getRepository(), result.getRepository() );
+                    assertTrue( result.getArtifact().getFile().isFile() );
+                }
+            } );
+
+            assertTrue( lrm.found.await( 10, TimeUnit.SECONDS ) );
+            File file = new File( basedir, lrm.getPathForLocalArtifact( artifact ) );
+            write( file, "written concurrently" );
+            lrm.addLocalArtifact( artifact );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        runner.join();
+
+        assertEquals( Collections.emptyList(), connector.artifacts );
+    }
+
+    @Test
+    public void testUnlockedArtifactIsNotHeldBackByLockedArtifact()
+        throws Exception
+    {
+        final Artifact locked = new DefaultArtifact( "gid:locked:jar:1" );
+        final Artifact unlocked = new DefaultArtifact( "gid:unlocked:jar:1" );
+
+        final CountDownLatch downloaded = new CountDownLatch( 1 );
+        connector.downloaded = downloaded;
+
+        NamedLocks.NamedLock lock = lock( locked );
+        ConcurrentRunner runner;
+        try
+        {
+            runner = ConcurrentRunner.start( 1, new ConcurrentRunner.Task()
+            {
+                public void run()
+                    throws Exception
+                {
+                    List<ArtifactResult> results =
+                        resolver.resolveArtifacts( session, Arrays.asList( newRequest( locked ),
+                                                                           newRequest( unlocked ) ) );
+                    for ( ArtifactResult result : results )
+                    {
+                        assertEquals( repository, result.getRepository() );
+                        assertTrue( result.getArtifact().getFile().isFile() );
+                    }
+                }
+            } );
+
+            assertTrue( downloaded.await( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        runner.join();
+
+        assertEquals( Arrays.asList( unlocked, locked ), connector.artifacts );
+    }
+
+    @Test
+    public void testConcurrentResolutionOfSameArtifactSharesDownload()
+        throws Exception
+    {
+        final Artifact artifact = new DefaultArtifact( "gid:aid:jar:1" );
+
+        final List<Artifact> downloaded = Collections.synchronizedList( new ArrayList<Artifact>() );
+        resolver.setLocalRepositoryMaintainer( new LocalRepositoryMaintainer()
+        {
+            public void artifactInstalled( LocalRepositoryEvent event )
+            {
+            }
+
+            public void artifactDownloaded( LocalRepositoryEvent event )
+            {
+                downloaded.add( event.getArtifact() );
+            }
+        } );
+
+        connector.entered = new CountDownLatch( 1 );
+        connector.proceed = new CountDownLatch( 1 );
+
+        ConcurrentRunner.Task task = new ConcurrentRunner.Task()
+        {
+            public void run()
+                throws Exception
+            {
+                ArtifactResult result = resolver.resolveArtifact( session, newRequest( artifact ) );
+                assertEquals( repository, result.getRepository() );
+                assertTrue( result.getArtifact().getFile().isFile() );
+            }
+        };
+
+        ConcurrentRunner leader = ConcurrentRunner.start( 1, task );
+        ConcurrentRunner follower;
+        try
+        {
+            assertTrue( connector.entered.await( 10, TimeUnit.SECONDS ) );
+            lrm.found = new CountDownLatch( 1 );
+            follower = ConcurrentRunner.start( 1, task );
+            assertTrue( lrm.found.await( 10, TimeUnit.SECONDS ) );
+            // give the follower time to join the download in progress
+            Thread.sleep( 100 );
+        }
+        finally
+        {
+            connector.proceed.countDown();
+        }
+        leader.join();
+        follower.join();
+
+        assertEquals( Arrays.asList( artifact ), connector.artifacts );
+        assertEquals( 2, downloaded.size() );
+    }
+
+    @Test
+    public void testFailedDownloadIsReportedToFollower()
+        throws Exception
+    {
+        final Artifact artifact = new DefaultArtifact( "gid:aid:jar:1" );
+
+        connector.entered = new CountDownLatch( 1 );
+        connector.proceed = new CountDownLatch( 1 );
+        connector.missing = true;
+
+        final List<Exception> exceptions = Collections.synchronizedList( new ArrayList<Exception>() );
+        ConcurrentRunner.Task task = new ConcurrentRunner.Task()
+        {
+            public void run()
+            {
+                try
+                {
+                    resolver.resolveArtifact( session, newRequest( artifact ) );
+                    fail( "Resolution of missing artifact succeeded" );
+                }
+                catch ( ArtifactResolutionException e )
+                {
+                    exceptions.addAll( e.getResults().get( 0 ).getExceptions() );
+                }
+            }
+        };
+
+        ConcurrentRunner leader = ConcurrentRunner.start( 1, task );
+        ConcurrentRunner follower;
+        try
+        {
+            assertTrue( connector.entered.await( 10, TimeUnit.SECONDS ) );
+            lrm.found = new CountDownLatch( 1 );
+            follower = ConcurrentRunner.start( 1, task );
+            assertTrue( lrm.found.await( 10, TimeUnit.SECONDS ) );
+            Thread.sleep( 100 );
+        }
+        finally
+        {
+            connector.proceed.countDown();
+        }
+        leader.join();
+        follower.join();
+
+        assertEquals( 1, connector.artifacts.size() );
+        assertEquals( 2, exceptions.size() );
+        assertSame( exceptions.get( 0 ), exceptions.get( 1 ) );
+        assertTrue( exceptions.get( 0 ) instanceof ArtifactNotFoundException );
+    }
+
+    static class RecordingLocalRepositoryManager
+        extends EnhancedLocalRepositoryManager
+    {
+
+        volatile CountDownLatch found = new CountDownLatch( 1 );
+
+        RecordingLocalRepositoryManager( File basedir )
+        {
+            super( basedir );
+        }
+
+        @Override
+        public LocalArtifactResult find( LocalArtifactRequest request )
+        {
+            LocalArtifactResult result = super.find( request );
+            found.countDown();
+            return result;
+        }
+
+    }
+
+    static class DownloadingConnector
+        implements RepositoryConnector
+    {
+
+        final List<Artifact> artifacts = Collections.synchronizedList( new ArrayList<Artifact>() );
+
+        volatile CountDownLatch downloaded;
+
+        volatile CountDownLatch entered;
+
+        volatile CountDownLatch proceed;
+
+        volatile boolean missing;
+
+        public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                         Collection<? extends MetadataDownload> metadataDownloads )
+        {
+            if ( entered != null )
+            {
+                entered.countDown();
+            }
+            for ( ArtifactDownload download : artifactDownloads )
+            {
+                try
+                {
+                    if ( proceed != null )
+                    {
+                        proceed.await();
+                    }
+                    if ( missing )
+                    {
+                        download.setException( new ArtifactNotFoundException( download.getArtifact(), null ) );
+                    }
+                    else
+                    {
+                        write( download.getFile(), download.getArtifact().toString() );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    throw new IllegalStateException( "Cannot write " + download.getFile(), e );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( "Interrupted while downloading " + download.getFile(), e );
+                }
+                artifacts.add( download.getArtifact() );
+                if ( downloaded != null )
+                {
+                    downloaded.countDown();
+                }
+            }
+        }
+
+        public void put( Collection<? extends ArtifactUpload> artifactUploads,
+                         Collection<? extends MetadataUpload> metadataUploads )
+        {
+            throw new UnsupportedOperationException( "put()" );
+        }
+
+        public void close()
+        {
+        }
+
+    }
+
+    static class StubVersionResolver
+        implements VersionResolver
+    {
+
+        public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
+        {
+            return new VersionResult( request ).setVersion( request.getArtifact().getVersion() );
+        }
+
+    }
+
+    static class StubRemoteRepositoryManager
+        implements RemoteRepositoryManager
+    {
+
+        private final RepositoryConnector connector;
+
+        StubRemoteRepositoryManager( RepositoryConnector connector )
+        {
+            this.connector = connector;
+        }
+
+        public List<RemoteRepository> aggregateRepositories( RepositorySystemSession session,
+                                                             List<RemoteRepository> dominantRepositories,
+                                                             List<RemoteRepository> recessiveRepositories,
+                                                             boolean recessiveIsRaw )
+        {
+            throw new UnsupportedOperationException( "aggregateRepositories" );
+        }
+
+        public RepositoryPolicy getPolicy( RepositorySystemSession session, RemoteRepository repository,
+                                           boolean releases, boolean snapshots )
+        {
+            return new RepositoryPolicy( true, RepositoryPolicy.UPDATE_POLICY_ALWAYS,
+                                         RepositoryPolicy.CHECKSUM_POLICY_IGNORE );
+        }
+
+        public RepositoryConnector getRepositoryConnector( RepositorySystemSession session, RemoteRepository repository )
+            throws NoRepositoryConnectorException
+        {
+            return connector;
+        }
+
+    }
+
+}
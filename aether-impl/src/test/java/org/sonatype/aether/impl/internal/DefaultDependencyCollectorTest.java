@@ -0,0 +1,269 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.Artifact;
+import org.sonatype.aether.ArtifactDescriptorException;
+import org.sonatype.aether.ArtifactDescriptorRequest;
+import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.CollectRequest;
+import org.sonatype.aether.CollectResult;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.DependencyCollectionException;
+import org.sonatype.aether.DependencyNode;
+import org.sonatype.aether.InvalidVersionSpecificationException;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.VersionRangeRequest;
+import org.sonatype.aether.VersionRangeResolutionException;
+import org.sonatype.aether.VersionRangeResult;
+import org.sonatype.aether.VersionScheme;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.StaticDependencySelector;
+import org.sonatype.aether.util.graph.transformer.ChainedDependencyGraphTransformer;
+import org.sonatype.aether.util.graph.traverser.StaticDependencyTraverser;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+
+public class DefaultDependencyCollectorTest
+{
+
+    private DefaultDependencyCollector collector;
+
+    private DefaultRepositorySystemSession session;
+
+    private Map<String, String[]> poms;
+
+    @Before
+    public void setup()
+    {
+        poms = new HashMap<String, String[]>();
+        poms.put( "gid:a:1", new String[] { "gid:b:1", "gid:c:[1,2]", "gid:d:1" } );
+        poms.put( "gid:b:1", new String[] { "gid:e:1", "gid:a:1" } );
+        poms.put( "gid:c:1", new String[] { "gid:e:1" } );
+        poms.put( "gid:c:2", new String[] { "gid:e:2", "gid:old:1" } );
+        poms.put( "gid:d:1", new String[] { "gid:missing:1", "gid:b:1" } );
+        poms.put( "gid:e:1", new String[0] );
+        poms.put( "gid:e:2", new String[] { "gid:f:1" } );
+        poms.put( "gid:f:1", new String[0] );
+        poms.put( "gid:new:1", new String[] { "gid:f:1" } );
+
+        collector = new DefaultDependencyCollector();
+        collector.setRemoteRepositoryManager( new DefaultRemoteRepositoryManager() );
+        collector.setArtifactDescriptorReader( new StubDescriptorReader() );
+        collector.setVersionRangeResolver( new StubVersionRangeResolver() );
+
+        session = new DefaultRepositorySystemSession();
+        session.setDependencySelector( new StaticDependencySelector( true ) );
+        session.setDependencyManager( new ClassicDependencyManager() );
+        session.setDependencyTraverser( new StaticDependencyTraverser( true ) );
+        session.setDependencyGraphTransformer( new ChainedDependencyGraphTransformer() );
+        session.setCache( new DefaultRepositoryCache() );
+    }
+
+    private CollectRequest newRequest()
+    {
+        CollectRequest request = new CollectRequest();
+        request.setRoot( new Dependency( new DefaultArtifact( "gid:a:1" ), "compile" ) );
+        request.addRepository( new RemoteRepository( "test", "default", "file:///void" ) );
+        return request;
+    }
+
+    private String collect()
+    {
+        CollectResult result;
+        try
+        {
+            result = collector.collectDependencies( session, newRequest() );
+            fail( "missing descriptor was not reported" );
+        }
+        catch ( DependencyCollectionException e )
+        {
+            result = e.getResult();
+        }
+        assertEquals( 1, result.getExceptions().size() );
+        assertTrue( result.getExceptions().get( 0 ) instanceof ArtifactDescriptorException );
+
+        StringBuilder buffer = new StringBuilder( 1024 );
+        dump( buffer, result.getRoot(), "" );
+        return buffer.toString();
+    }
+
+    private void dump( StringBuilder buffer, DependencyNode node, String indent )
+    {
+        buffer.append( indent ).append( node.getDependency().getArtifact() );
+        buffer.append( ' ' ).append( node.getVersionConstraint() );
+        buffer.append( ' ' ).append( node.getRelocations() ).append( '\n' );
+        for ( DependencyNode child : node.getChildren() )
+        {
+            dump( buffer, child, indent + "  " );
+        }
+    }
+
+    @Test
+    public void testConcurrentCollectionYieldsSameGraph()
+    {
+        String serial = collect();
+
+        assertTrue( serial, serial.contains( "gid:new:jar:1 1 [gid:old:jar:1]" ) );
+        assertFalse( serial, serial.contains( "  gid:a:jar:1" ) );
+
+        session.setCache( new DefaultRepositoryCache() );
+        session.setConfigProperty( DefaultDependencyCollector.CONFIG_PROP_THREADS, "4" );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( serial, collect() );
+        }
+    }
+
+    @Test
+    public void testSpeculativePrefetchingYieldsSameGraph()
+    {
+        String serial = collect();
+
+        final List<DataFetcher> fetchers = new ArrayList<DataFetcher>();
+        collector = new DefaultDependencyCollector()
+        {
+            @Override
+            DataFetcher newDataFetcher( RepositorySystemSession session )
+            {
+                DataFetcher fetcher = super.newDataFetcher( session );
+                fetchers.add( fetcher );
+                return fetcher;
+            }
+        };
+        collector.setRemoteRepositoryManager( new DefaultRemoteRepositoryManager() );
+        collector.setArtifactDescriptorReader( new StubDescriptorReader() );
+        collector.setVersionRangeResolver( new StubVersionRangeResolver() );
+
+        session.setConfigProperty( DefaultDependencyCollector.CONFIG_PROP_PREFETCH_DEPTH, "2" );
+        session.setConfigProperty( DefaultDependencyCollector.CONFIG_PROP_PREFETCH_WIDTH, "2" );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            session.setCache( new DefaultRepositoryCache() );
+            assertEquals( serial, collect() );
+        }
+
+        session.setConfigProperty( DefaultDependencyCollector.CONFIG_PROP_THREADS, "4" );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            session.setCache( new DefaultRepositoryCache() );
+            assertEquals( serial, collect() );
+        }
+
+        assertEquals( 20, fetchers.size() );
+        for ( DataFetcher fetcher : fetchers )
+        {
+            assertTrue( fetcher.getFetches() > 0 );
+            assertTrue( fetcher.getHits() > 0 );
+            assertTrue( fetcher.getHits() <= fetcher.getLookups() );
+        }
+    }
+
+    class StubDescriptorReader
+        implements ArtifactDescriptorReader
+    {
+
+        public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                ArtifactDescriptorRequest request )
+            throws ArtifactDescriptorException
+        {
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+
+            Artifact artifact = request.getArtifact();
+            if ( "old".equals( artifact.getArtifactId() ) )
+            {
+                Artifact relocated = new DefaultArtifact( "gid:new:" + artifact.getVersion() );
+                result.addRelocation( artifact );
+                result.setArtifact( relocated );
+                return result;
+            }
+
+            String[] dependencies = poms.get( artifact.getGroupId() + ':' + artifact.getArtifactId() + ':'
+                + artifact.getVersion() );
+            if ( dependencies == null )
+            {
+                throw new ArtifactDescriptorException( result, "missing " + artifact );
+            }
+
+            result.setArtifact( artifact );
+            for ( String dependency : dependencies )
+            {
+                result.addDependency( new Dependency( new DefaultArtifact( dependency ), "compile" ) );
+            }
+
+            Thread.yield();
+
+            return result;
+        }
+
+    }
+
+    static class StubVersionRangeResolver
+        implements VersionRangeResolver
+    {
+
+        private final VersionScheme scheme = new GenericVersionScheme();
+
+        public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+            throws VersionRangeResolutionException
+        {
+            VersionRangeResult result = new VersionRangeResult( request );
+
+            String version = request.getArtifact().getVersion();
+            try
+            {
+                if ( version.startsWith( "[" ) )
+                {
+                    result.setVersionConstraint( scheme.parseVersionConstraint( version ) );
+                    List<String> versions = Arrays.asList( version.substring( 1, version.length() - 1 ).split( "," ) );
+                    for ( String v : versions )
+                    {
+                        result.addVersion( scheme.parseVersion( v ) );
+                    }
+                }
+                else
+                {
+                    result.setVersionConstraint( scheme.parseVersionConstraint( version ) );
+                    result.addVersion( scheme.parseVersion( version ) );
+                }
+            }
+            catch ( InvalidVersionSpecificationException e )
+            {
+                throw new VersionRangeResolutionException( result );
+            }
+
+            return result;
+        }
+
+    }
+
+}
@@ -17,6 +17,9 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -180,4 +183,52 @@ public class DefaultInstallerTest
         DefaultInstaller installer = new DefaultInstaller();
         installer.install( session, request );
     }
+
+    @Test
+    public void testInstallWaitsForLockOfTargetFile()
+        throws Exception
+    {
+        final File basedir = session.getLocalRepositoryManager().getRepository().getBasedir();
+        File artifactFile = new File( basedir, localArtifactPath );
+        artifactFile.delete();
+
+        final CountDownLatch installing = new CountDownLatch( 1 );
+        session.setRepositoryListener( new AbstractRepositoryListener()
+        {
+            @Override
+            public void artifactInstalling( RepositoryEvent event )
+            {
+                installing.countDown();
+            }
+        } );
+
+        NamedLocks.NamedLock lock =
+            NamedLocks.getInstance( basedir ).newLock( Collections.singleton( artifactFile.getAbsolutePath() ), null );
+        lock.lock();
+        ConcurrentRunner runner;
+        try
+        {
+            runner = ConcurrentRunner.start( 1, new ConcurrentRunner.Task()
+            {
+                public void run()
+                    throws Exception
+                {
+                    InstallRequest request = new InstallRequest();
+                    request.addArtifact( artifact );
+                    new DefaultInstaller().install( session, request );
+                }
+            } );
+
+            assertTrue( installing.await( 10, TimeUnit.SECONDS ) );
+            Thread.sleep( 100 );
+            assertFalse( artifactFile.exists() );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        runner.join();
+
+        assertTrue( artifactFile.exists() );
+    }
 }
@@ -0,0 +1,272 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.DefaultMetadata;
+import org.sonatype.aether.Metadata;
+import org.sonatype.aether.MetadataNotFoundException;
+import org.sonatype.aether.MetadataRequest;
+import org.sonatype.aether.MetadataResult;
+import org.sonatype.aether.NoRepositoryConnectorException;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositoryPolicy;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.test.util.FileUtil;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DefaultMetadataResolverTest
+{
+
+    private File basedir;
+
+    private DefaultRepositorySystemSession session;
+
+    private StubRemoteRepositoryManager manager;
+
+    private DefaultMetadataResolver resolver;
+
+    private RemoteRepository central;
+
+    private RemoteRepository snapshots;
+
+    @Before
+    public void setup()
+    {
+        basedir = new File( "target/test-metadata-resolver" );
+        FileUtil.deleteDir( basedir );
+
+        session = new DefaultRepositorySystemSession();
+        session.setLocalRepositoryManager( new SimpleLocalRepositoryManager( basedir ) );
+
+        manager = new StubRemoteRepositoryManager();
+        resolver = new DefaultMetadataResolver();
+        resolver.setUpdateCheckManager( new DefaultUpdateCheckManager() );
+        resolver.setRemoteRepositoryManager( manager );
+
+        central = new RemoteRepository( "central", "default", "http://localhost/central/" );
+        snapshots = new RemoteRepository( "snapshots", "default", "http://localhost/snapshots/" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtil.deleteDir( basedir );
+    }
+
+    private MetadataRequest newRequest( String artifactId, RemoteRepository repository )
+    {
+        Metadata metadata =
+            new DefaultMetadata( "gid", artifactId, "maven-metadata.xml", Metadata.Nature.RELEASE_OR_SNAPSHOT );
+        return new MetadataRequest( metadata, repository, "" );
+    }
+
+    @Test
+    public void testRequestsToSameRepositoryShareConnectorCall()
+    {
+        MetadataConnector connector = manager.newConnector( central );
+
+        List<MetadataResult> results =
+            resolver.resolveMetadata( session, Arrays.asList( newRequest( "a", central ), newRequest( "b", central ),
+                                                              newRequest( "c", central ) ) );
+
+        assertEquals( 1, connector.calls.size() );
+        assertEquals( Arrays.asList( "a", "b", "c" ), connector.calls.get( 0 ) );
+        assertEquals( 3, results.size() );
+        for ( MetadataResult result : results )
+        {
+            assertNull( result.getException() );
+            assertTrue( result.isUpdated() );
+            assertTrue( result.getMetadata().getFile().isFile() );
+        }
+    }
+
+    @Test
+    public void testRequestsToDifferentRepositoriesCompleteIndependently()
+    {
+        MetadataConnector first = manager.newConnector( central );
+        MetadataConnector second = manager.newConnector( snapshots );
+
+        // each connector waits for the other one, i.e. the groups must not be processed one after the other
+        first.entered = new CountDownLatch( 1 );
+        second.entered = new CountDownLatch( 1 );
+        first.awaited = second.entered;
+        second.awaited = first.entered;
+
+        List<MetadataResult> results =
+            resolver.resolveMetadata( session, Arrays.asList( newRequest( "a", central ), newRequest( "b", snapshots ),
+                                                              newRequest( "c", central ) ) );
+
+        assertEquals( Collections.singletonList( Arrays.asList( "a", "c" ) ), first.calls );
+        assertEquals( Collections.singletonList( Arrays.asList( "b" ) ), second.calls );
+        assertTrue( first.concurrent );
+        assertTrue( second.concurrent );
+        for ( MetadataResult result : results )
+        {
+            assertNull( result.getException() );
+            assertTrue( result.getMetadata().getFile().isFile() );
+        }
+    }
+
+    @Test
+    public void testFailedDownloadOnlyFailsItsResult()
+    {
+        MetadataConnector connector = manager.newConnector( central );
+        connector.missing = "b";
+
+        List<MetadataResult> results =
+            resolver.resolveMetadata( session, Arrays.asList( newRequest( "a", central ), newRequest( "b", central ),
+                                                              newRequest( "c", central ) ) );
+
+        assertEquals( 1, connector.calls.size() );
+        assertNull( results.get( 0 ).getException() );
+        assertTrue( results.get( 0 ).isUpdated() );
+        assertTrue( results.get( 1 ).getException() instanceof MetadataNotFoundException );
+        assertFalse( results.get( 1 ).isUpdated() );
+        assertNull( results.get( 1 ).getMetadata() );
+        assertNull( results.get( 2 ).getException() );
+        assertTrue( results.get( 2 ).isUpdated() );
+    }
+
+    static class MetadataConnector
+        implements RepositoryConnector
+    {
+
+        final List<List<String>> calls = Collections.synchronizedList( new ArrayList<List<String>>() );
+
+        volatile String missing;
+
+        volatile CountDownLatch entered;
+
+        volatile CountDownLatch awaited;
+
+        volatile boolean concurrent;
+
+        public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                         Collection<? extends MetadataDownload> metadataDownloads )
+        {
+            if ( entered != null )
+            {
+                entered.countDown();
+            }
+            if ( awaited != null )
+            {
+                try
+                {
+                    concurrent = awaited.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( "Interrupted while waiting for other connector", e );
+                }
+            }
+
+            List<String> ids = new ArrayList<String>();
+            for ( MetadataDownload download : metadataDownloads )
+            {
+                Metadata metadata = download.getMetadata();
+                ids.add( metadata.getArtifactId() );
+                if ( metadata.getArtifactId().equals( missing ) )
+                {
+                    download.setException( new MetadataNotFoundException( metadata, null ) );
+                    continue;
+                }
+                try
+                {
+                    DefaultArtifactResolverTest.write( download.getFile(), metadata.toString() );
+                }
+                catch ( IOException e )
+                {
+                    throw new IllegalStateException( "Cannot write " + download.getFile(), e );
+                }
+            }
+            calls.add( ids );
+        }
+
+        public void put( Collection<? extends ArtifactUpload> artifactUploads,
+                         Collection<? extends MetadataUpload> metadataUploads )
+        {
+            throw new UnsupportedOperationException( "put()" );
+        }
+
+        public void close()
+        {
+        }
+
+    }
+
+    static class StubRemoteRepositoryManager
+        implements RemoteRepositoryManager
+    {
+
+        private final Map<String, MetadataConnector> connectors = new HashMap<String, MetadataConnector>();
+
+        MetadataConnector newConnector( RemoteRepository repository )
+        {
+            MetadataConnector connector = new MetadataConnector();
+            connectors.put( repository.getUrl(), connector );
+            return connector;
+        }
+
+        public List<RemoteRepository> aggregateRepositories( RepositorySystemSession session,
+                                                             List<RemoteRepository> dominantRepositories,
+                                                             List<RemoteRepository> recessiveRepositories,
+                                                             boolean recessiveIsRaw )
+        {
+            throw new UnsupportedOperationException( "aggregateRepositories" );
+        }
+
+        public RepositoryPolicy getPolicy( RepositorySystemSession session, RemoteRepository repository,
+                                           boolean releases, boolean snapshots )
+        {
+            return new RepositoryPolicy( true, RepositoryPolicy.UPDATE_POLICY_ALWAYS,
+                                         RepositoryPolicy.CHECKSUM_POLICY_IGNORE );
+        }
+
+        public RepositoryConnector getRepositoryConnector( RepositorySystemSession session, RemoteRepository repository )
+            throws NoRepositoryConnectorException
+        {
+            MetadataConnector connector = connectors.get( repository.getUrl() );
+            if ( connector == null )
+            {
+                throw new NoRepositoryConnectorException( repository );
+            }
+            return connector;
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.NoRepositoryConnectorException;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.test.impl.RecordingTransferListener;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DefaultRemoteRepositoryManagerTest
+{
+
+    private DefaultRemoteRepositoryManager manager;
+
+    private StubConnectorFactory factory;
+
+    private DefaultRepositorySystemSession session;
+
+    private RemoteRepository repository;
+
+    @Before
+    public void setup()
+    {
+        factory = new StubConnectorFactory();
+
+        manager = new DefaultRemoteRepositoryManager();
+        manager.addRepositoryConnectorFactory( factory );
+
+        session = new DefaultRepositorySystemSession();
+        session.setConfigProperty( ConfigurationProperties.CONNECTOR_IDLE_TIMEOUT, "60000" );
+
+        repository = new RemoteRepository( "test", "default", "http://localhost/repo" );
+    }
+
+    @Test
+    public void testIdleConnectorIsReused()
+        throws Exception
+    {
+        RepositoryConnector connector = manager.getRepositoryConnector( session, repository );
+        connector.close();
+        connector.close();
+
+        connector = manager.getRepositoryConnector( session, repository );
+        RepositoryConnector other = manager.getRepositoryConnector( session, repository );
+        connector.close();
+        other.close();
+
+        RemoteRepository equal = new RemoteRepository( "test", "default", repository.getUrl() );
+        connector = manager.getRepositoryConnector( session, equal );
+        connector.close();
+
+        assertEquals( 2, factory.created );
+        assertEquals( 0, factory.closed );
+    }
+
+    @Test
+    public void testConnectorIsNotSharedForDifferentSettings()
+        throws Exception
+    {
+        manager.getRepositoryConnector( session, repository ).close();
+
+        RemoteRepository other = new RemoteRepository( "other", "default", repository.getUrl() );
+        manager.getRepositoryConnector( session, other ).close();
+
+        session.setTransferListener( new RecordingTransferListener() );
+        manager.getRepositoryConnector( session, repository ).close();
+
+        session.setConfigProperty( ConfigurationProperties.USER_AGENT, "test" );
+        manager.getRepositoryConnector( session, repository ).close();
+
+        assertEquals( 4, factory.created );
+        assertEquals( 0, factory.closed );
+    }
+
+    @Test
+    public void testClosedConnectorRejectsTransfers()
+        throws Exception
+    {
+        RepositoryConnector connector = manager.getRepositoryConnector( session, repository );
+        connector.close();
+
+        try
+        {
+            connector.get( null, null );
+            fail( "closed connector accepted transfer" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIdleConnectorIsEvicted()
+        throws Exception
+    {
+        session.setConfigProperty( ConfigurationProperties.CONNECTOR_IDLE_TIMEOUT, "1" );
+
+        manager.getRepositoryConnector( session, repository ).close();
+        Thread.sleep( 100 );
+
+        assertEquals( 1, factory.created );
+        assertEquals( 1, factory.closed );
+
+        manager.getRepositoryConnector( session, repository ).close();
+        Thread.sleep( 100 );
+
+        assertEquals( 2, factory.created );
+        assertEquals( 2, factory.closed );
+
+        session.setConfigProperty( ConfigurationProperties.CONNECTOR_IDLE_TIMEOUT, "0" );
+
+        manager.getRepositoryConnector( session, repository ).close();
+
+        assertEquals( 3, factory.created );
+        assertEquals( 3, factory.closed );
+    }
+
+    @Test
+    public void testConnectorsAreNotReusedByDefault()
+        throws Exception
+    {
+        session = new DefaultRepositorySystemSession();
+
+        manager.getRepositoryConnector( session, repository ).close();
+        manager.getRepositoryConnector( session, repository ).close();
+
+        assertEquals( 2, factory.created );
+        assertEquals( 2, factory.closed );
+    }
+
+    @Test
+    public void testCloseClosesIdleConnectors()
+        throws Exception
+    {
+        manager.getRepositoryConnector( session, repository ).close();
+        RepositoryConnector connector = manager.getRepositoryConnector( session, repository );
+        manager.getRepositoryConnector( session, repository ).close();
+
+        manager.close();
+        assertEquals( 2, factory.created );
+        assertEquals( 1, factory.closed );
+
+        connector.close();
+        assertEquals( 2, factory.closed );
+    }
+
+    class StubConnectorFactory
+        implements RepositoryConnectorFactory
+    {
+
+        volatile int created;
+
+        volatile int closed;
+
+        public RepositoryConnector newInstance( RepositorySystemSession session, RemoteRepository repository )
+            throws NoRepositoryConnectorException
+        {
+            created++;
+
+            return new RepositoryConnector()
+            {
+
+                public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                                 Collection<? extends MetadataDownload> metadataDownloads )
+                {
+                }
+
+                public void put( Collection<? extends ArtifactUpload> artifactUploads,
+                                 Collection<? extends MetadataUpload> metadataUploads )
+                {
+                }
+
+                public void close()
+                {
+                    closed++;
+                }
+
+            };
+        }
+
+        public int getPriority()
+        {
+            return 0;
+        }
+
+    }
+
+}
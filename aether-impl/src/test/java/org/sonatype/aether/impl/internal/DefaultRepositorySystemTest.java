@@ -0,0 +1,237 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.ArtifactRequest;
+import org.sonatype.aether.ArtifactResolutionException;
+import org.sonatype.aether.ArtifactResult;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.RepositoryCallback;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.ArtifactResolver;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DefaultRepositorySystemTest
+{
+
+    private DefaultRepositorySystem system;
+
+    private RepositorySystemSession session;
+
+    private List<ArtifactRequest> requests;
+
+    @Before
+    public void setup()
+    {
+        system = new DefaultRepositorySystem();
+        system.setArtifactResolver( new StubArtifactResolver() );
+        session = new DefaultRepositorySystemSession();
+        requests = new ArrayList<ArtifactRequest>();
+    }
+
+    @Test
+    public void testResolveArtifactsAsync()
+        throws Exception
+    {
+        requests.add( new ArtifactRequest( new DefaultArtifact( "gid", "aid", "jar", "1" ), null, null ) );
+        RecordingCallback<List<ArtifactResult>> callback = new RecordingCallback<List<ArtifactResult>>();
+
+        Future<List<ArtifactResult>> future = system.resolveArtifacts( session, requests, callback );
+
+        List<ArtifactResult> results = future.get( 10, TimeUnit.SECONDS );
+        assertEquals( 1, results.size() );
+        assertTrue( callback.latch.await( 10, TimeUnit.SECONDS ) );
+        assertSame( results, callback.result );
+        assertNull( callback.exception );
+    }
+
+    @Test
+    public void testResolveArtifactsAsyncFailure()
+        throws Exception
+    {
+        RecordingCallback<List<ArtifactResult>> callback = new RecordingCallback<List<ArtifactResult>>();
+
+        Future<List<ArtifactResult>> future = system.resolveArtifacts( session, requests, callback );
+
+        try
+        {
+            future.get( 10, TimeUnit.SECONDS );
+            fail( "expected failure" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof ArtifactResolutionException );
+        }
+        assertTrue( callback.latch.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( callback.exception instanceof ArtifactResolutionException );
+        assertNull( callback.result );
+    }
+
+    @Test
+    public void testConcurrentOperationsAreNotSerialized()
+        throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch( 2 );
+        system.setArtifactResolver( new StubArtifactResolver()
+        {
+            @Override
+            public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                          Collection<? extends ArtifactRequest> requests )
+                throws ArtifactResolutionException
+            {
+                started.countDown();
+                try
+                {
+                    started.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.resolveArtifacts( session, requests );
+            }
+        } );
+        requests.add( new ArtifactRequest( new DefaultArtifact( "gid", "aid", "jar", "1" ), null, null ) );
+
+        Future<List<ArtifactResult>> f1 = system.resolveArtifacts( session, requests, null );
+        Future<List<ArtifactResult>> f2 = system.resolveArtifacts( session, requests, null );
+
+        assertEquals( 1, f1.get( 10, TimeUnit.SECONDS ).size() );
+        assertEquals( 1, f2.get( 10, TimeUnit.SECONDS ).size() );
+        assertEquals( 0, started.getCount() );
+    }
+
+    @Test
+    public void testCallbackFailureDoesNotEscapeWorker()
+        throws Exception
+    {
+        system.setExecutor( new InlineExecutor() );
+        requests.add( new ArtifactRequest( new DefaultArtifact( "gid", "aid", "jar", "1" ), null, null ) );
+
+        Future<List<ArtifactResult>> future =
+            system.resolveArtifacts( session, requests, new RecordingCallback<List<ArtifactResult>>()
+            {
+                @Override
+                public void completed( List<ArtifactResult> result )
+                {
+                    throw new IllegalStateException( "callback failure" );
+                }
+            } );
+
+        assertEquals( 1, future.get( 10, TimeUnit.SECONDS ).size() );
+    }
+
+    @Test
+    public void testErrorOfOperationIsReportedToCallback()
+        throws Exception
+    {
+        system.setExecutor( new InlineExecutor() );
+        system.setArtifactResolver( new StubArtifactResolver()
+        {
+            @Override
+            public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                          Collection<? extends ArtifactRequest> requests )
+            {
+                throw new LinkageError( "operation failure" );
+            }
+        } );
+        RecordingCallback<List<ArtifactResult>> callback = new RecordingCallback<List<ArtifactResult>>();
+
+        system.resolveArtifacts( session, requests, callback );
+
+        assertTrue( callback.latch.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( callback.exception instanceof ExecutionException );
+        assertTrue( callback.exception.getCause() instanceof LinkageError );
+    }
+
+    static class InlineExecutor
+        implements Executor
+    {
+
+        public void execute( Runnable command )
+        {
+            command.run();
+        }
+
+    }
+
+    static class StubArtifactResolver
+        implements ArtifactResolver
+    {
+
+        public ArtifactResult resolveArtifact( RepositorySystemSession session, ArtifactRequest request )
+            throws ArtifactResolutionException
+        {
+            return resolveArtifacts( session, Arrays.asList( request ) ).get( 0 );
+        }
+
+        public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                      Collection<? extends ArtifactRequest> requests )
+            throws ArtifactResolutionException
+        {
+            List<ArtifactResult> results = new ArrayList<ArtifactResult>();
+            for ( ArtifactRequest request : requests )
+            {
+                ArtifactResult result = new ArtifactResult( request );
+                result.setArtifact( request.getArtifact() );
+                results.add( result );
+            }
+            if ( results.isEmpty() )
+            {
+                throw new ArtifactResolutionException( results );
+            }
+            return results;
+        }
+
+    }
+
+    static class RecordingCallback<T>
+        implements RepositoryCallback<T>
+    {
+
+        final CountDownLatch latch = new CountDownLatch( 1 );
+
+        volatile T result;
+
+        volatile Exception exception;
+
+        public void completed( T result )
+        {
+            this.result = result;
+            latch.countDown();
+        }
+
+        public void failed( Exception exception )
+        {
+            this.exception = exception;
+            latch.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.ArtifactDescriptorRequest;
+import org.sonatype.aether.ArtifactDescriptorResult;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.Exclusion;
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositoryPolicy;
+import org.sonatype.aether.test.util.FileUtil;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class DescriptorStoreTest
+{
+
+    private File basedir;
+
+    private File pom;
+
+    private DefaultRepositorySystemSession session;
+
+    private DescriptorStore store;
+
+    private RemoteRepository central;
+
+    @Before
+    public void setup()
+        throws IOException
+    {
+        basedir = new File( "target/test-descriptor-store" );
+        FileUtil.deleteDir( basedir );
+
+        SimpleLocalRepositoryManager lrm = new SimpleLocalRepositoryManager( basedir );
+        session = new DefaultRepositorySystemSession();
+        session.setLocalRepositoryManager( lrm );
+        session.setSystemProperty( "java.version", "1.5" );
+        store = new DescriptorStore( session );
+
+        pom = new File( basedir, lrm.getPathForLocalArtifact( new DefaultArtifact( "gid", "aid", "pom", "1" ) ) );
+        pom.getParentFile().mkdirs();
+        FileUtil.copy( FileUtil.createTempFile( "<project/>" ), pom );
+
+        central = new RemoteRepository( "central", "default", "http://repo1.maven.org/maven2/" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtil.deleteDir( basedir );
+    }
+
+    private ArtifactDescriptorRequest newRequest()
+    {
+        ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
+        request.setArtifact( new DefaultArtifact( "gid:aid:1" ) );
+        request.addRepository( central );
+        return request;
+    }
+
+    private ArtifactDescriptorResult newResult()
+    {
+        return newResult( newRequest() );
+    }
+
+    private ArtifactDescriptorResult newResult( ArtifactDescriptorRequest request )
+    {
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+        result.setArtifact( request.getArtifact() );
+        result.setRepository( central );
+        result.addRelocation( new DefaultArtifact( "old:aid:1" ) );
+        result.addAlias( new DefaultArtifact( "alias:aid:1" ) );
+        Exclusion exclusion = new Exclusion( "gid", "excluded", "", "jar" );
+        DefaultArtifact artifact =
+            new DefaultArtifact( "gid", "dep", "tests", "jar", "2", Collections.singletonMap( "type", "test-jar" ),
+                                 (File) null );
+        result.addDependency( new Dependency( artifact, "test", true, Arrays.asList( exclusion ) ) );
+        result.addManagedDependency( new Dependency( new DefaultArtifact( "gid:managed:3" ), "runtime" ) );
+        RemoteRepository repository = new RemoteRepository( "snapshots", "default", "http://localhost/snapshots/" );
+        repository.setPolicy( false, new RepositoryPolicy( false, null, null ) );
+        result.addRepository( repository );
+        return result;
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        ArtifactDescriptorResult expected = newResult();
+        store.save( expected );
+
+        ArtifactDescriptorRequest request = newRequest();
+        ArtifactDescriptorResult actual = store.load( request );
+
+        assertNotNull( actual );
+        assertSame( request, actual.getRequest() );
+        assertEquals( expected.getArtifact(), actual.getArtifact() );
+        assertEquals( expected.getRelocations(), actual.getRelocations() );
+        assertEquals( expected.getAliases(), actual.getAliases() );
+        assertEquals( expected.getDependencies(), actual.getDependencies() );
+        assertEquals( expected.getManagedDependencies(), actual.getManagedDependencies() );
+        assertEquals( expected.getRepositories(), actual.getRepositories() );
+        assertEquals( central, actual.getRepository() );
+        assertFalse( actual.getRepositories().get( 0 ).getPolicy( false ).isEnabled() );
+    }
+
+    @Test
+    public void testStaleDescriptorIsIgnored()
+    {
+        store.save( newResult() );
+
+        pom.setLastModified( pom.lastModified() - 10000 );
+
+        assertNull( store.load( newRequest() ) );
+    }
+
+    @Test
+    public void testDescriptorFromOtherRepositoriesIsIgnored()
+    {
+        store.save( newResult() );
+
+        ArtifactDescriptorRequest request = newRequest();
+        request.setRepositories( Arrays.asList( new RemoteRepository( "other", "default", "http://localhost/" ) ) );
+
+        assertNull( store.load( request ) );
+    }
+
+    @Test
+    public void testDescriptorForOtherConfigurationIsIgnored()
+    {
+        store.save( newResult() );
+
+        session.setUserProperty( "env", "production" );
+        assertNull( new DescriptorStore( session ).load( newRequest() ) );
+
+        session.setUserProperty( "env", null );
+        assertNotNull( new DescriptorStore( session ).load( newRequest() ) );
+    }
+
+    @Test
+    public void testUnrelatedSystemPropertyDoesNotAffectKey()
+    {
+        store.save( newResult() );
+        assertEquals( 1, countFiles() );
+
+        session.setSystemProperty( "user.dir", "/some/other/project" );
+        session.setSystemProperty( "env.BUILD_NUMBER", "42" );
+        DescriptorStore store = new DescriptorStore( session );
+        assertNotNull( store.load( newRequest() ) );
+
+        store.save( newResult() );
+        assertEquals( 1, countFiles() );
+    }
+
+    @Test
+    public void testListedSystemPropertyAffectsKey()
+    {
+        session.setConfigProperty( DefaultDependencyCollector.CONFIG_PROP_DESCRIPTOR_CACHE_KEYS, "env.TARGET, other" );
+        new DescriptorStore( session ).save( newResult() );
+
+        session.setSystemProperty( "env.TARGET", "production" );
+        assertNull( new DescriptorStore( session ).load( newRequest() ) );
+
+        session.setSystemProperty( "java.version", "1.6" );
+        session.setSystemProperty( "env.TARGET", null );
+        assertNull( new DescriptorStore( session ).load( newRequest() ) );
+    }
+
+    @Test
+    public void testChangedConfigurationOverwritesDescriptor()
+    {
+        store.save( newResult() );
+
+        session.setUserProperty( "env", "production" );
+        new DescriptorStore( session ).save( newResult() );
+        assertEquals( 1, countFiles() );
+        assertNotNull( new DescriptorStore( session ).load( newRequest() ) );
+
+        session.setUserProperty( "env", null );
+        assertNull( new DescriptorStore( session ).load( newRequest() ) );
+    }
+
+    private int countFiles()
+    {
+        return countFiles( new File( basedir, ".cache/descriptors" ) );
+    }
+
+    private static int countFiles( File dir )
+    {
+        int count = 0;
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                count += file.isDirectory() ? countFiles( file ) : 1;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testSnapshotsAreNotStored()
+        throws IOException
+    {
+        DefaultArtifact snapshot = new DefaultArtifact( "gid", "aid", "pom", "1-SNAPSHOT" );
+        File snapshotPom = new File( basedir, session.getLocalRepositoryManager().getPathForLocalArtifact( snapshot ) );
+        snapshotPom.getParentFile().mkdirs();
+        FileUtil.copy( FileUtil.createTempFile( "<project/>" ), snapshotPom );
+
+        ArtifactDescriptorRequest request = newRequest();
+        request.setArtifact( new DefaultArtifact( "gid:aid:1-SNAPSHOT" ) );
+        store.save( newResult( request ) );
+
+        assertFalse( new File( basedir, ".cache/descriptors" ).exists() );
+        assertNull( store.load( request ) );
+    }
+
+}
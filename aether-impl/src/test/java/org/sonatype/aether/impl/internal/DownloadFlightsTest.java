@@ -0,0 +1,85 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class DownloadFlightsTest
+{
+
+    private DownloadFlights flights = new DownloadFlights();
+
+    private File file = new File( "target/flights/aid-1.jar" );
+
+    @Test
+    public void testLaterCallersJoinFlightInProgress()
+    {
+        DownloadFlights.Flight flight = new DownloadFlights.Flight( "http://repo", file );
+        assertNull( flights.register( flight ) );
+        assertSame( flight, flights.register( new DownloadFlights.Flight( "http://repo", file ) ) );
+        assertNull( flights.register( new DownloadFlights.Flight( "http://other", file ) ) );
+        assertEquals( 2, flights.size() );
+    }
+
+    @Test
+    public void testCompletedFlightIsRemoved()
+    {
+        DownloadFlights.Flight flight = new DownloadFlights.Flight( "http://repo", file );
+        flights.register( flight );
+        flights.complete( flight, file, null );
+
+        assertEquals( 0, flights.size() );
+        assertNull( flights.register( new DownloadFlights.Flight( "http://repo", file ) ) );
+    }
+
+    @Test
+    public void testWaitersShareOutcome()
+        throws Exception
+    {
+        final DownloadFlights.Flight flight = new DownloadFlights.Flight( "http://repo", file );
+        flights.register( flight );
+
+        final Exception[] outcome = new Exception[1];
+        Thread waiter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    flight.await();
+                    outcome[0] = flight.getException();
+                }
+                catch ( InterruptedException e )
+                {
+                    outcome[0] = e;
+                }
+            }
+        };
+        waiter.start();
+
+        IOException failure = new IOException( "connection reset" );
+        flights.complete( flight, null, failure );
+        waiter.join();
+
+        assertSame( failure, outcome[0] );
+        assertNull( flight.getFile() );
+    }
+
+}
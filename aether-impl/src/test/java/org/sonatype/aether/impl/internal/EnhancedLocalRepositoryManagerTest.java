@@ -156,4 +156,35 @@ public class EnhancedLocalRepositoryManagerTest
         LocalArtifactResult result = manager.find( request );
         assertFalse( result.isAvailable() );
     }
+
+    @Test
+    public void testFindIndexedArtifactWithoutTrackingFile()
+        throws IOException
+    {
+        manager.setIndexed( true );
+        addRemoteArtifact( artifact );
+        assertTrue( new File( artifactFile.getParentFile(), "_maven.repositories" ).delete() );
+
+        LocalArtifactRequest request = new LocalArtifactRequest( artifact, Arrays.asList( repository ), testContext );
+        LocalArtifactResult result = manager.find( request );
+        assertTrue( result.isAvailable() );
+    }
+
+    @Test
+    public void testIndexIsPopulatedFromTrackingFile()
+        throws IOException
+    {
+        addRemoteArtifact( artifact );
+
+        manager.setIndexed( true );
+        LocalArtifactRequest request = new LocalArtifactRequest( artifact, Arrays.asList( repository ), testContext );
+        assertTrue( manager.find( request ).isAvailable() );
+
+        request = new LocalArtifactRequest( artifact, Arrays.asList( repository ), "different" );
+        assertFalse( manager.find( request ).isAvailable() );
+
+        assertTrue( new File( artifactFile.getParentFile(), "_maven.repositories" ).delete() );
+        request = new LocalArtifactRequest( artifact, Arrays.asList( repository ), testContext );
+        assertTrue( manager.find( request ).isAvailable() );
+    }
 }
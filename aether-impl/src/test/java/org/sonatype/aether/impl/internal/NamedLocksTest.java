@@ -0,0 +1,264 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.test.util.FileUtil;
+
+public class NamedLocksTest
+{
+
+    private File dir;
+
+    private File file;
+
+    private NamedLocks locks;
+
+    @Before
+    public void setup()
+    {
+        dir = new File( "target/named-locks" );
+        file = new File( dir, "_maven.lock" );
+        locks = new NamedLocks( file );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtil.deleteDir( dir );
+    }
+
+    @Test
+    public void testMutualExclusion()
+        throws Exception
+    {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        Thread[] threads = new Thread[4];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 0; j < 10; j++ )
+                    {
+                        NamedLocks.NamedLock lock =
+                            locks.newLock( Collections.singleton( "gid/aid/1/aid-1.jar" ), null );
+                        lock.lock();
+                        try
+                        {
+                            if ( active.incrementAndGet() > 1 )
+                            {
+                                overlaps.incrementAndGet();
+                            }
+                            Thread.sleep( 2 );
+                            active.decrementAndGet();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            return;
+                        }
+                        finally
+                        {
+                            lock.unlock();
+                        }
+                    }
+                }
+            };
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( 0, overlaps.get() );
+    }
+
+    @Test
+    public void testLockIsReentrantAndToleratesNamesSharingStripe()
+    {
+        String name = "a";
+        String other = null;
+        for ( int i = 0; other == null; i++ )
+        {
+            if ( NamedLocks.getIndex( "b" + i ) == NamedLocks.getIndex( name ) )
+            {
+                other = "b" + i;
+            }
+        }
+
+        NamedLocks.NamedLock lock = locks.newLock( Arrays.asList( name, other ), null );
+        lock.lock();
+        try
+        {
+            NamedLocks.NamedLock nested = locks.newLock( Collections.singleton( name ), null );
+            nested.lock();
+            nested.unlock();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void testLockFileRegionIsHeldWhileLocked()
+        throws IOException
+    {
+        String name = "gid/aid/1/aid-1.jar";
+        int index = NamedLocks.getIndex( name );
+
+        NamedLocks.NamedLock lock = locks.newLock( Collections.singleton( name ), null );
+        lock.lock();
+        try
+        {
+            assertFalse( tryLock( index ) );
+            assertTrue( tryLock( ( index + 1 ) % 1024 ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        assertTrue( tryLock( index ) );
+    }
+
+    @Test
+    public void testTryLockFailsWhileLockedByOtherThread()
+        throws Exception
+    {
+        final String name = "gid/aid/1/aid-1.jar";
+
+        NamedLocks.NamedLock lock = locks.newLock( Collections.singleton( name ), null );
+        lock.lock();
+        try
+        {
+            ConcurrentRunner.start( 1, new ConcurrentRunner.Task()
+            {
+                public void run()
+                {
+                    assertFalse( locks.newLock( Collections.singleton( name ), null ).tryLock() );
+                }
+            } ).join();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        NamedLocks.NamedLock other = locks.newLock( Collections.singleton( name ), null );
+        assertTrue( other.tryLock() );
+        other.unlock();
+    }
+
+    @Test
+    public void testInterruptWhileWaitingForFileLockKeepsOtherLocks()
+        throws Exception
+    {
+        String name = "a";
+        final String other = "b";
+        int index = NamedLocks.getIndex( name );
+        assertTrue( index != NamedLocks.getIndex( other ) );
+
+        NamedLocks.NamedLock lock = locks.newLock( Collections.singleton( name ), null );
+        lock.lock();
+        try
+        {
+            // simulates another process holding the lock file region for the other name
+            RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+            final AtomicInteger interrupted = new AtomicInteger();
+            Thread thread;
+            try
+            {
+                FileLock foreign = raf.getChannel().lock( NamedLocks.getIndex( other ), 1, false );
+                thread = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        NamedLocks.NamedLock lock = locks.newLock( Collections.singleton( other ), null );
+                        lock.lock();
+                        if ( isInterrupted() )
+                        {
+                            interrupted.incrementAndGet();
+                        }
+                        lock.unlock();
+                    }
+                };
+                thread.start();
+                Thread.sleep( 50 );
+                thread.interrupt();
+                Thread.sleep( 50 );
+                foreign.release();
+            }
+            finally
+            {
+                raf.close();
+            }
+            thread.join();
+
+            assertEquals( 1, interrupted.get() );
+            assertFalse( tryLock( index ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryLock( int index )
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            FileLock lock = raf.getChannel().tryLock( index, 1, false );
+            if ( lock == null )
+            {
+                return false;
+            }
+            lock.release();
+            return true;
+        }
+        catch ( OverlappingFileLockException e )
+        {
+            return false;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+}
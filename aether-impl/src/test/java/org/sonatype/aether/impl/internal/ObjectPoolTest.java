@@ -0,0 +1,90 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.sonatype.aether.Artifact;
+import org.sonatype.aether.DefaultArtifact;
+
+public class ObjectPoolTest
+{
+
+    @Test
+    public void testInternReturnsPooledInstance()
+    {
+        ObjectPool<Artifact> pool = new ObjectPool<Artifact>();
+
+        Artifact a1 = new DefaultArtifact( "gid:aid:1" );
+        Artifact a2 = new DefaultArtifact( "gid:aid:1" );
+        Artifact b = new DefaultArtifact( "gid:aid:2" );
+
+        assertSame( a1, pool.intern( a1 ) );
+        assertSame( a1, pool.intern( a2 ) );
+        assertSame( b, pool.intern( b ) );
+        assertEquals( 2, pool.size() );
+    }
+
+    @Test
+    public void testGarbageCollectedObjectsArePurged()
+        throws Exception
+    {
+        ObjectPool<String> pool = new ObjectPool<String>();
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            pool.intern( new String( "object-" + i ) );
+        }
+
+        for ( int i = 0; i < 20 && pool.size() > 1; i++ )
+        {
+            System.gc();
+            Thread.sleep( 50 );
+            pool.intern( "object" );
+        }
+
+        assertEquals( 1, pool.size() );
+    }
+
+    @Test
+    public void testConcurrentInterningYieldsSingleInstance()
+        throws Exception
+    {
+        final ObjectPool<Artifact> pool = new ObjectPool<Artifact>();
+
+        final Artifact[] pooled = new Artifact[100];
+        for ( int i = 0; i < pooled.length; i++ )
+        {
+            pooled[i] = pool.intern( new DefaultArtifact( "gid:aid:" + i ) );
+        }
+
+        ConcurrentRunner.start( 8, new ConcurrentRunner.Task()
+        {
+            public void run()
+            {
+                for ( int n = 0; n < 100; n++ )
+                {
+                    for ( int i = 0; i < pooled.length; i++ )
+                    {
+                        assertSame( pooled[i], pool.intern( new DefaultArtifact( "gid:aid:" + i ) ) );
+                    }
+                }
+            }
+        } ).join();
+
+        assertEquals( pooled.length, pool.size() );
+    }
+
+}
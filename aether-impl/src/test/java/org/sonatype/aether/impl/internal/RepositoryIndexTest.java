@@ -0,0 +1,198 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.test.util.FileUtil;
+
+public class RepositoryIndexTest
+{
+
+    private File dir;
+
+    private File file;
+
+    private final Logger logger = NullLogger.INSTANCE;
+
+    @Before
+    public void setup()
+    {
+        dir = new File( "target/repository-index" );
+        file = new File( dir, "_maven.index" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtil.deleteDir( dir );
+    }
+
+    @Test
+    public void testUpdatesArePersisted()
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        index.add( "gid/aid/1/aid-1.jar", Arrays.asList( "", "central" ), logger );
+        index.add( "gid/aid/1/aid-1.pom", Arrays.asList( "central" ), logger );
+        index.remove( "gid/aid/1/aid-1.pom", logger );
+
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertEquals( new HashSet<String>( Arrays.asList( "", "central" ) ),
+                      other.get( "gid/aid/1/aid-1.jar", logger ) );
+        assertTrue( other.get( "gid/aid/1/aid-1.pom", logger ).isEmpty() );
+        assertTrue( other.get( "gid/aid/2/aid-2.jar", logger ).isEmpty() );
+    }
+
+    @Test
+    public void testUpdatesByOtherInstanceArePickedUp()
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertTrue( index.get( "a.jar", logger ).isEmpty() );
+
+        other.add( "a.jar", Collections.singleton( "central" ), logger );
+        file.setLastModified( file.lastModified() - 10000 );
+        assertEquals( Collections.singleton( "central" ), index.get( "a.jar", logger ) );
+
+        index.add( "a.jar", Collections.singleton( "central" ), logger );
+        assertEquals( 1, index.getRecordCount() );
+    }
+
+    @Test
+    public void testCompaction()
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            index.add( "a.jar", Collections.singleton( "repo-" + i ), logger );
+            index.remove( "a.jar", logger );
+        }
+        index.add( "b.jar", Collections.singleton( "central" ), logger );
+        assertTrue( index.getRecordCount() < 1024 );
+
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertTrue( other.get( "a.jar", logger ).isEmpty() );
+        assertEquals( Collections.singleton( "central" ), other.get( "b.jar", logger ) );
+        assertEquals( index.getRecordCount(), other.getRecordCount() );
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnored()
+        throws IOException
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        index.add( "a.jar", Collections.singleton( "central" ), logger );
+
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.seek( raf.length() );
+            raf.write( new byte[] { 1, 0, 0, 0, 100, 'x' } );
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertEquals( Collections.singleton( "central" ), other.get( "a.jar", logger ) );
+
+        other.add( "b.jar", Collections.singleton( "central" ), logger );
+        assertEquals( Collections.singleton( "central" ), new RepositoryIndex( file ).get( "b.jar", logger ) );
+    }
+
+    @Test
+    public void testStaleBytesAfterInterruptedCompactionAreIgnored()
+        throws IOException
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            index.add( "a.jar", Collections.singleton( "repo-" + i ), logger );
+            index.remove( "a.jar", logger );
+        }
+        index.add( "b.jar", Collections.singleton( "central" ), logger );
+        int records = index.getRecordCount();
+        assertTrue( records < 1024 );
+
+        // simulate the remainder of the old file which a crashed compaction failed to truncate
+        byte[] payload = "stale.jar>central".getBytes( "UTF-8" );
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.seek( raf.length() );
+            raf.write( 1 );
+            raf.writeInt( payload.length );
+            raf.write( payload );
+            raf.writeInt( 0x12345678 );
+            raf.write( new byte[] { 1, 0, 0, 0, 5, 'c', '.', 'j', 'a', 'r', 0, 0, 0, 0 } );
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertTrue( other.get( "stale.jar", logger ).isEmpty() );
+        assertEquals( Collections.singleton( "central" ), other.get( "b.jar", logger ) );
+        assertEquals( records, other.getRecordCount() );
+
+        other.add( "c.jar", Collections.singleton( "central" ), logger );
+        RepositoryIndex third = new RepositoryIndex( file );
+        assertEquals( Collections.singleton( "central" ), third.get( "c.jar", logger ) );
+        assertTrue( third.get( "stale.jar", logger ).isEmpty() );
+    }
+
+    @Test
+    public void testParsingStopsAtCorruptRecord()
+        throws IOException
+    {
+        RepositoryIndex index = new RepositoryIndex( file );
+        index.add( "a.jar", Collections.singleton( "central" ), logger );
+        index.add( "b.jar", Collections.singleton( "central" ), logger );
+        index.add( "c.jar", Collections.singleton( "central" ), logger );
+
+        // header (16 bytes) followed by the record for a.jar (9 + 13 bytes), corrupt the payload of b.jar
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.seek( 16 + 22 + 5 );
+            raf.write( 'x' );
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        RepositoryIndex other = new RepositoryIndex( file );
+        assertEquals( Collections.singleton( "central" ), other.get( "a.jar", logger ) );
+        assertTrue( other.get( "b.jar", logger ).isEmpty() );
+        assertTrue( other.get( "x.jar", logger ).isEmpty() );
+        assertTrue( other.get( "c.jar", logger ).isEmpty() );
+        assertEquals( 1, other.getRecordCount() );
+    }
+
+}
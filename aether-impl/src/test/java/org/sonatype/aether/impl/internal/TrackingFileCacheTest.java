@@ -0,0 +1,123 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.test.util.FileUtil;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class TrackingFileCacheTest
+{
+
+    private File file;
+
+    private CountingTrackingFileManager manager;
+
+    private TrackingFileCache index;
+
+    @Before
+    public void setup()
+        throws IOException
+    {
+        file = FileUtil.createTempFile( "key=value\n" );
+        manager = new CountingTrackingFileManager();
+        index = new TrackingFileCache();
+    }
+
+    @After
+    public void teardown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testUnchangedFileIsReadOnce()
+    {
+        Properties props = index.read( file, manager );
+        assertEquals( "value", props.getProperty( "key" ) );
+
+        props = index.read( file, manager );
+        assertEquals( "value", props.getProperty( "key" ) );
+
+        assertEquals( 1, manager.reads );
+    }
+
+    @Test
+    public void testModifiedFileIsReadAgain()
+        throws IOException
+    {
+        index.read( file, manager );
+
+        FileUtil.copy( FileUtil.createTempFile( "key=other-value\n" ), file );
+        file.setLastModified( file.lastModified() - 10000 );
+
+        Properties props = index.read( file, manager );
+        assertEquals( "other-value", props.getProperty( "key" ) );
+        assertEquals( 2, manager.reads );
+
+        file.delete();
+
+        props = index.read( file, manager );
+        assertTrue( props.isEmpty() );
+        props = index.read( file, manager );
+        assertTrue( props.isEmpty() );
+        assertEquals( 3, manager.reads );
+    }
+
+    @Test
+    public void testUpdateIsIndexed()
+    {
+        index.update( file, Collections.singletonMap( "key", "updated" ), manager );
+
+        Properties props = index.read( file, manager );
+        assertEquals( "updated", props.getProperty( "key" ) );
+        assertEquals( 0, manager.reads );
+    }
+
+    @Test
+    public void testIndexIsSharedViaSessionCache()
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        assertNotSame( TrackingFileCache.getIndex( session ), TrackingFileCache.getIndex( session ) );
+
+        session.setCache( new DefaultRepositoryCache() );
+        assertSame( TrackingFileCache.getIndex( session ), TrackingFileCache.getIndex( session ) );
+    }
+
+    static class CountingTrackingFileManager
+        extends TrackingFileManager
+    {
+
+        int reads;
+
+        @Override
+        public Properties read( File file )
+        {
+            reads++;
+            return super.read( file );
+        }
+
+    }
+
+}
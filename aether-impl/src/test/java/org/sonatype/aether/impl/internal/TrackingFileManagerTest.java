@@ -0,0 +1,135 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.test.util.FileUtil;
+
+public class TrackingFileManagerTest
+{
+
+    private File file;
+
+    private TrackingFileManager manager;
+
+    @Before
+    public void setup()
+        throws IOException
+    {
+        file = FileUtil.createTempFile( "key=value\n" );
+        manager = new TrackingFileManager();
+    }
+
+    @After
+    public void teardown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testReadAndUpdate()
+    {
+        assertEquals( "value", manager.read( file ).getProperty( "key" ) );
+
+        Properties props = manager.update( file, Collections.singletonMap( "other", "updated" ) );
+        assertEquals( "value", props.getProperty( "key" ) );
+        assertEquals( "updated", props.getProperty( "other" ) );
+
+        props = manager.update( file, Collections.<String, String> singletonMap( "key", null ) );
+        assertNull( props.getProperty( "key" ) );
+
+        props = manager.read( file );
+        assertNull( props.getProperty( "key" ) );
+        assertEquals( "updated", props.getProperty( "other" ) );
+
+        assertNull( manager.read( new File( file.getPath() + ".missing" ) ) );
+    }
+
+    @Test
+    public void testWriteReportsStampOfWrittenFile()
+    {
+        TrackingFileManager.Contents contents = manager.write( file, Collections.singletonMap( "other", "updated" ) );
+        assertEquals( "updated", contents.props.getProperty( "other" ) );
+        assertEquals( file.length(), contents.length );
+        assertEquals( file.lastModified(), contents.lastModified );
+
+        contents = manager.write( new File( file, "unwritable" ), Collections.singletonMap( "key", "value" ) );
+        assertEquals( -1, contents.length );
+    }
+
+    @Test
+    public void testConcurrentReadsOfSameFile()
+        throws Exception
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List<Properties> results = Collections.synchronizedList( new ArrayList<Properties>() );
+
+        long locks = TrackingFileStatistics.getLockCount();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for ( int j = 0; j < 50; j++ )
+                        {
+                            results.add( manager.read( file ) );
+                        }
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        // bail out
+                    }
+                }
+            };
+            thread.start();
+            threads.add( thread );
+        }
+
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( 400, results.size() );
+        for ( Properties props : results )
+        {
+            assertNotNull( props );
+            assertEquals( "value", props.getProperty( "key" ) );
+        }
+
+        assertTrue( TrackingFileStatistics.getLockCount() >= locks + 400 );
+        assertTrue( TrackingFileStatistics.getContentionCount() <= TrackingFileStatistics.getLockCount() );
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.sonatype.aether.spi.connector;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+/**
+ * An algorithm to calculate checksums of transferred files. Repository connectors use the algorithms to verify
+ * downloads against the checksum files from the remote repository and to deploy checksum files along with uploads.
+ * 
+ * @see ChecksumAlgorithmSelector
+ */
+public interface ChecksumAlgorithm
+{
+
+    /**
+     * Gets the name of this algorithm, e.g. "SHA-1".
+     * 
+     * @return The name of this algorithm, never {@code null}.
+     */
+    String getName();
+
+    /**
+     * Gets the extension of the checksum files for this algorithm, e.g. "sha1". The extension is appended to the path
+     * of the checksummed file, separated by a dot.
+     * 
+     * @return The file extension without leading dot, never {@code null}.
+     */
+    String getFileExtension();
+
+    /**
+     * Creates a new calculator for this algorithm. A calculator is used by a single thread and for a single file.
+     * 
+     * @return The new checksum calculator, never {@code null}.
+     */
+    ChecksumCalculator newCalculator();
+
+}
@@ -0,0 +1,40 @@
+package org.sonatype.aether.spi.connector;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.List;
+
+import org.sonatype.aether.RemoteRepository;
+import org.sonatype.aether.RepositorySystemSession;
+
+/**
+ * Selects the checksum algorithms that a repository connector uses for a remote repository. All selected algorithms
+ * are calculated in a single pass over the transferred data. Uploads deploy a checksum file for each algorithm,
+ * downloads are verified against the first algorithm for which the repository provides a checksum file. An empty
+ * selection disables checksum verification for the repository.
+ */
+public interface ChecksumAlgorithmSelector
+{
+
+    /**
+     * Gets the checksum algorithms to use for the specified repository.
+     * 
+     * @param session The repository system session during which the algorithms are used, must not be {@code null}.
+     * @param repository The remote repository whose files are checksummed, must not be {@code null}.
+     * @return The checksum algorithms in order of preference, never {@code null}. The list may be empty to disable
+     *         checksums.
+     */
+    List<ChecksumAlgorithm> getChecksumAlgorithms( RepositorySystemSession session, RemoteRepository repository );
+
+}
@@ -0,0 +1,46 @@
+package org.sonatype.aether.spi.connector;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+/**
+ * Incrementally calculates the checksum of a stream of bytes.
+ * 
+ * @see ChecksumAlgorithm#newCalculator()
+ */
+public interface ChecksumCalculator
+{
+
+    /**
+     * Discards the bytes seen so far, e.g. to restart a failed transfer.
+     */
+    void reset();
+
+    /**
+     * Updates the checksum with the specified bytes.
+     * 
+     * @param buffer The buffer holding the bytes, must not be {@code null}.
+     * @param offset The offset of the first byte to process.
+     * @param length The number of bytes to process.
+     */
+    void update( byte[] buffer, int offset, int length );
+
+    /**
+     * Completes the calculation and gets the checksum of the bytes seen since the last reset. Afterwards, the
+     * calculator is reset.
+     * 
+     * @return The checksum in lower case hexadecimal notation, never {@code null}.
+     */
+    String getChecksum();
+
+}
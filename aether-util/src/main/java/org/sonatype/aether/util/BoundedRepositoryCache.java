@@ -0,0 +1,367 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sonatype.aether.RepositoryCache;
+import org.sonatype.aether.RepositorySystemSession;
+
+/**
+ * A repository cache that limits the number and the total weight of its entries by evicting the least recently used
+ * entries. Entries can additionally expire after a time-to-live that is configured per namespace, where the namespace
+ * of a key is the fully qualified name of its class or, for a string key, the string itself. Unlike the
+ * {@link DefaultRepositoryCache}, this cache is suitable for long-lived repository system sessions.
+ */
+public class BoundedRepositoryCache
+    implements RepositoryCache
+{
+
+    /**
+     * Estimates the weight of a cache entry, i.e. the amount of memory retained by the entry in some unit.
+     */
+    public interface Weigher
+    {
+
+        /**
+         * Gets the weight of the specified cache entry.
+         * 
+         * @param key The key of the entry, never {@code null}.
+         * @param data The data of the entry, never {@code null}.
+         * @return The weight of the entry, should be positive.
+         */
+        int getWeight( Object key, Object data );
+
+    }
+
+    /**
+     * Cached data that can estimate its own weight, e.g. an index or pool that is neither a map nor a collection.
+     */
+    public interface Weighable
+    {
+
+        /**
+         * Gets the current weight of this data.
+         * 
+         * @return The weight of this data, should be positive.
+         */
+        int getWeight();
+
+    }
+
+    /**
+     * The default weigher, using the weight reported by {@link Weighable} data, the number of elements for maps and
+     * collections and a weight of 1 for anything else.
+     */
+    public static final Weigher DEFAULT_WEIGHER = new Weigher()
+    {
+
+        public int getWeight( Object key, Object data )
+        {
+            int weight = 1;
+            if ( data instanceof Weighable )
+            {
+                weight = ( (Weighable) data ).getWeight();
+            }
+            else if ( data instanceof Map<?, ?> )
+            {
+                weight = ( (Map<?, ?>) data ).size();
+            }
+            else if ( data instanceof Collection<?> )
+            {
+                weight = ( (Collection<?>) data ).size();
+            }
+            return Math.max( weight, 1 );
+        }
+
+    };
+
+    private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>( 256, 0.75f, true );
+
+    private final Map<String, Long> timeToLives = new HashMap<String, Long>();
+
+    private int maxEntries = Integer.MAX_VALUE;
+
+    private long maxWeight = Long.MAX_VALUE;
+
+    private Weigher weigher = DEFAULT_WEIGHER;
+
+    private long weight;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long expirations;
+
+    /**
+     * Creates a new cache without any bounds.
+     */
+    public BoundedRepositoryCache()
+    {
+        // enables default constructor
+    }
+
+    /**
+     * Creates a new cache with the specified maximum number of entries.
+     * 
+     * @param maxEntries The maximum number of entries, must be positive.
+     */
+    public BoundedRepositoryCache( int maxEntries )
+    {
+        setMaxEntries( maxEntries );
+    }
+
+    /**
+     * Sets the maximum number of entries in this cache.
+     * 
+     * @param maxEntries The maximum number of entries, must be positive.
+     * @return This cache for chaining, never {@code null}.
+     */
+    public synchronized BoundedRepositoryCache setMaxEntries( int maxEntries )
+    {
+        if ( maxEntries <= 0 )
+        {
+            throw new IllegalArgumentException( "maximum number of entries must be positive: " + maxEntries );
+        }
+        this.maxEntries = maxEntries;
+        trim();
+        return this;
+    }
+
+    /**
+     * Sets the maximum total weight of the entries in this cache.
+     * 
+     * @param maxWeight The maximum weight, must be positive.
+     * @return This cache for chaining, never {@code null}.
+     * @see #setWeigher(Weigher)
+     */
+    public synchronized BoundedRepositoryCache setMaxWeight( long maxWeight )
+    {
+        if ( maxWeight <= 0 )
+        {
+            throw new IllegalArgumentException( "maximum weight must be positive: " + maxWeight );
+        }
+        this.maxWeight = maxWeight;
+        trim();
+        return this;
+    }
+
+    /**
+     * Sets the weigher used to estimate the weight of cache entries. As the cached data is usually mutable, the weight
+     * of an entry is re-estimated whenever the entry is accessed.
+     * 
+     * @param weigher The weigher to use, may be {@code null} to use the default weigher.
+     * @return This cache for chaining, never {@code null}.
+     */
+    public synchronized BoundedRepositoryCache setWeigher( Weigher weigher )
+    {
+        this.weigher = ( weigher != null ) ? weigher : DEFAULT_WEIGHER;
+        return this;
+    }
+
+    /**
+     * Sets the time after which entries of the specified namespace expire.
+     * 
+     * @param namespace The namespace of the keys, i.e. a fully qualified class name or a string key, must not be
+     *            {@code null}.
+     * @param timeToLive The time (in milliseconds) after its creation an entry expires, a non-positive value disables
+     *            expiration.
+     * @return This cache for chaining, never {@code null}.
+     */
+    public synchronized BoundedRepositoryCache setTimeToLive( String namespace, long timeToLive )
+    {
+        if ( namespace == null )
+        {
+            throw new IllegalArgumentException( "namespace has not been specified" );
+        }
+        if ( timeToLive > 0 )
+        {
+            timeToLives.put( namespace, Long.valueOf( timeToLive ) );
+        }
+        else
+        {
+            timeToLives.remove( namespace );
+        }
+        return this;
+    }
+
+    public synchronized Object get( RepositorySystemSession session, Object key )
+    {
+        Entry entry = entries.get( key );
+
+        if ( entry != null && entry.expiry <= System.currentTimeMillis() )
+        {
+            remove( key );
+            expirations++;
+            entry = null;
+        }
+
+        if ( entry == null )
+        {
+            misses++;
+            return null;
+        }
+
+        hits++;
+
+        int oldWeight = entry.weight;
+        entry.weight = weigher.getWeight( key, entry.data );
+        weight += entry.weight - oldWeight;
+        trim();
+
+        return entry.data;
+    }
+
+    public synchronized void put( RepositorySystemSession session, Object key, Object data )
+    {
+        if ( data != null )
+        {
+            remove( key );
+
+            Entry entry = new Entry( data, weigher.getWeight( key, data ), getExpiry( key ) );
+            entries.put( key, entry );
+            weight += entry.weight;
+
+            trim();
+        }
+    }
+
+    private long getExpiry( Object key )
+    {
+        String namespace = ( key instanceof String ) ? (String) key : key.getClass().getName();
+        Long timeToLive = timeToLives.get( namespace );
+        if ( timeToLive == null )
+        {
+            return Long.MAX_VALUE;
+        }
+        return System.currentTimeMillis() + timeToLive.longValue();
+    }
+
+    private void remove( Object key )
+    {
+        Entry entry = entries.remove( key );
+        if ( entry != null )
+        {
+            weight -= entry.weight;
+        }
+    }
+
+    private void trim()
+    {
+        for ( Iterator<Entry> it = entries.values().iterator(); it.hasNext(); )
+        {
+            if ( entries.size() <= maxEntries && weight <= maxWeight )
+            {
+                break;
+            }
+            Entry entry = it.next();
+            it.remove();
+            weight -= entry.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Gets the number of entries in this cache.
+     * 
+     * @return The number of entries.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the total weight of the entries in this cache, as estimated during their last access.
+     * 
+     * @return The total weight.
+     */
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Gets the number of lookups that found data in this cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no data in this cache.
+     * 
+     * @return The number of cache misses.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries that were removed from this cache to satisfy its bounds.
+     * 
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of entries that were removed from this cache because they exceeded their time-to-live.
+     * 
+     * @return The number of expirations.
+     */
+    public synchronized long getExpirationCount()
+    {
+        return expirations;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "entries: " + entries.size() + ", weight: " + weight + ", hits: " + hits + ", misses: " + misses
+            + ", evictions: " + evictions + ", expirations: " + expirations;
+    }
+
+    static final class Entry
+    {
+
+        final Object data;
+
+        final long expiry;
+
+        int weight;
+
+        public Entry( Object data, int weight, long expiry )
+        {
+            this.data = data;
+            this.weight = weight;
+            this.expiry = expiry;
+        }
+
+    }
+
+}
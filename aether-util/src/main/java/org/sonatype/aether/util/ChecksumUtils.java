@@ -17,6 +17,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -44,26 +45,10 @@ public class ChecksumUtils
     public static String read( File checksumFile )
         throws IOException
     {
-        String checksum = "";
-
         FileInputStream fis = new FileInputStream( checksumFile );
         try
         {
-            BufferedReader br = new BufferedReader( new InputStreamReader( fis, "UTF-8" ) );
-            while ( true )
-            {
-                String line = br.readLine();
-                if ( line == null )
-                {
-                    break;
-                }
-                line = line.trim();
-                if ( line.length() > 0 )
-                {
-                    checksum = line;
-                    break;
-                }
-            }
+            return read( fis );
         }
         finally
         {
@@ -76,6 +61,35 @@ public class ChecksumUtils
                 // ignored
             }
         }
+    }
+
+    /**
+     * Extracts the checksum from the specified stream. The stream is not closed by this method.
+     * 
+     * @param checksumStream The contents of the checksum file, must not be {@code null}.
+     * @return The checksum stored in the stream, never {@code null}.
+     * @throws IOException If the checksum could not be read.
+     */
+    public static String read( InputStream checksumStream )
+        throws IOException
+    {
+        String checksum = "";
+
+        BufferedReader br = new BufferedReader( new InputStreamReader( checksumStream, "UTF-8" ) );
+        while ( true )
+        {
+            String line = br.readLine();
+            if ( line == null )
+            {
+                break;
+            }
+            line = line.trim();
+            if ( line.length() > 0 )
+            {
+                checksum = line;
+                break;
+            }
+        }
 
         if ( checksum.matches( ".+= [0-9A-Fa-f]+" ) )
         {
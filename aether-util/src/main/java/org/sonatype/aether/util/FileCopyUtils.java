@@ -0,0 +1,172 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A utility class to copy and move files. Copies are performed via {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel)} which allows the operating system to transfer the bytes without passing them
+ * through user space. Targets are written to a temporary file first and then renamed such that concurrent readers never
+ * observe a partially written target. Where possible, moves are performed by renaming the file.
+ */
+public class FileCopyUtils
+{
+
+    private static final long MAX_CHUNK = 64 * 1024 * 1024;
+
+    /**
+     * Copies the specified source file to the given target file, overwriting any existing target. Missing parent
+     * directories of the target are created.
+     * 
+     * @param source The file to copy from, must not be {@code null}.
+     * @param target The file to copy to, must not be {@code null}.
+     * @return The number of bytes copied.
+     * @throws IOException If the file could not be copied, e.g. because the source was truncated while being copied.
+     *             The target is left untouched in this case.
+     */
+    public static long copy( File source, File target )
+        throws IOException
+    {
+        File tmp = newTempFile( target );
+        try
+        {
+            long copied = transfer( source, tmp );
+            replace( tmp, target );
+            return copied;
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Moves the specified source file to the given target file, overwriting any existing target. Missing parent
+     * directories of the target are created. If the file cannot be renamed, e.g. because source and target reside on
+     * different file systems, the file is copied and the source deleted.
+     * 
+     * @param source The file to move, must not be {@code null}.
+     * @param target The file to move to, must not be {@code null}.
+     * @throws IOException If the file could not be moved.
+     */
+    public static void move( File source, File target )
+        throws IOException
+    {
+        mkdirs( target.getParentFile() );
+
+        if ( !source.renameTo( target ) )
+        {
+            copy( source, target );
+            source.delete();
+        }
+    }
+
+    private static File newTempFile( File target )
+        throws IOException
+    {
+        File directory = target.getAbsoluteFile().getParentFile();
+        mkdirs( directory );
+        return File.createTempFile( target.getName() + '.', ".tmp", directory );
+    }
+
+    private static void mkdirs( File directory )
+        throws IOException
+    {
+        if ( directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+        {
+            throw new IOException( "Could not create directory " + directory );
+        }
+    }
+
+    private static long transfer( File source, File target )
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream( source );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( target );
+            try
+            {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+
+                long size = inChannel.size();
+                long position = 0;
+
+                while ( position < size )
+                {
+                    long count = Math.min( size - position, MAX_CHUNK );
+                    long transferred = inChannel.transferTo( position, count, outChannel );
+                    if ( transferred <= 0 )
+                    {
+                        // source was truncated concurrently
+                        break;
+                    }
+                    position += transferred;
+                }
+
+                if ( position != size )
+                {
+                    throw new IOException( "Failed to copy full contents from " + source + " to " + target
+                        + ", copied " + position + " of " + size + " bytes" );
+                }
+
+                out.close();
+
+                return position;
+            }
+            finally
+            {
+                close( out );
+            }
+        }
+        finally
+        {
+            close( in );
+        }
+    }
+
+    private static void replace( File tmp, File target )
+        throws IOException
+    {
+        if ( !tmp.renameTo( target ) )
+        {
+            // some platforms refuse to rename onto an existing file
+            target.delete();
+            if ( !tmp.renameTo( target ) )
+            {
+                throw new IOException( "Could not rename " + tmp + " to " + target );
+            }
+        }
+    }
+
+    private static void close( Closeable closeable )
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch ( IOException e )
+        {
+            // ignored
+        }
+    }
+
+}
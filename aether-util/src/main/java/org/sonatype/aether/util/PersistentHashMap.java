@@ -0,0 +1,553 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable hash map that supports efficient derivation of modified copies. The map is organized as a hash array
+ * mapped trie such that a copy with an added or replaced entry merely copies the path from the root to the affected
+ * entry and shares all other nodes with the original map. The hash code of the map is maintained incrementally and
+ * comparing two maps first checks their size and hash code, then skips all nodes they share. Besides the usual read
+ * operations, this map only supports {@link #plus(Object, Object)} and {@link #plusAll(Map)}; the mutators inherited
+ * from {@link Map} throw an {@link UnsupportedOperationException}. Keys must not be {@code null}, values may be.
+ * 
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class PersistentHashMap<K, V>
+    extends AbstractMap<K, V>
+{
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>( null, 0, 0 );
+
+    private final Node root;
+
+    private final int size;
+
+    private final int hash;
+
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    private PersistentHashMap( Node root, int size, int hash )
+    {
+        this.root = root;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * Gets an empty map.
+     * 
+     * @return The empty map, never {@code null}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <K, V> PersistentHashMap<K, V> emptyMap()
+    {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Gets a map with the entries of the specified map.
+     * 
+     * @param map The map whose entries to copy, may be {@code null}.
+     * @return The map, never {@code null}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <K, V> PersistentHashMap<K, V> copyOf( Map<? extends K, ? extends V> map )
+    {
+        if ( map instanceof PersistentHashMap<?, ?> )
+        {
+            return (PersistentHashMap<K, V>) map;
+        }
+        return PersistentHashMap.<K, V> emptyMap().plusAll( map );
+    }
+
+    /**
+     * Gets a map that additionally contains the specified entry. If this map already contains an entry for the key, its
+     * value is replaced.
+     * 
+     * @param key The key of the entry, must not be {@code null}.
+     * @param value The value of the entry, may be {@code null}.
+     * @return The updated map or this map if it already contains the specified entry, never {@code null}.
+     */
+    public PersistentHashMap<K, V> plus( K key, V value )
+    {
+        if ( key == null )
+        {
+            throw new IllegalArgumentException( "key must not be null" );
+        }
+
+        Delta delta = new Delta();
+        Node node = put( root, 0, new Leaf( key, value ), delta );
+        if ( node == root )
+        {
+            return this;
+        }
+        return new PersistentHashMap<K, V>( node, size + delta.size, hash + delta.hash );
+    }
+
+    /**
+     * Gets a map that additionally contains the entries of the specified map.
+     * 
+     * @param map The map whose entries to add, may be {@code null}.
+     * @return The updated map, never {@code null}.
+     */
+    public PersistentHashMap<K, V> plusAll( Map<? extends K, ? extends V> map )
+    {
+        PersistentHashMap<K, V> result = this;
+        if ( map != null )
+        {
+            for ( Map.Entry<? extends K, ? extends V> entry : map.entrySet() )
+            {
+                result = result.plus( entry.getKey(), entry.getValue() );
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return find( key ) != null;
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public V get( Object key )
+    {
+        Leaf leaf = find( key );
+        return ( leaf != null ) ? (V) leaf.value : null;
+    }
+
+    private Leaf find( Object key )
+    {
+        if ( key == null || root == null )
+        {
+            return null;
+        }
+
+        int h = spread( key.hashCode() );
+        Object slot = root;
+        for ( int shift = 0;; shift += 5 )
+        {
+            if ( slot instanceof Node )
+            {
+                Node node = (Node) slot;
+                int bit = 1 << ( ( h >>> shift ) & 31 );
+                if ( ( node.bitmap & bit ) == 0 )
+                {
+                    return null;
+                }
+                slot = node.slots[Integer.bitCount( node.bitmap & ( bit - 1 ) )];
+            }
+            else if ( slot instanceof Leaf )
+            {
+                Leaf leaf = (Leaf) slot;
+                return ( leaf.hash == h && leaf.key.equals( key ) ) ? leaf : null;
+            }
+            else
+            {
+                return ( (Collision) slot ).find( h, key );
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        if ( entrySet == null )
+        {
+            entrySet = new AbstractSet<Map.Entry<K, V>>()
+            {
+
+                @Override
+                @SuppressWarnings( "unchecked" )
+                public Iterator<Map.Entry<K, V>> iterator()
+                {
+                    List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>( size );
+                    collect( root, (List<Object>) (List<?>) entries );
+                    return Collections.unmodifiableList( entries ).iterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+
+            };
+        }
+        return entrySet;
+    }
+
+    private static void collect( Object slot, Collection<Object> entries )
+    {
+        if ( slot instanceof Node )
+        {
+            for ( Object child : ( (Node) slot ).slots )
+            {
+                collect( child, entries );
+            }
+        }
+        else if ( slot instanceof Leaf )
+        {
+            entries.add( slot );
+        }
+        else if ( slot instanceof Collision )
+        {
+            for ( Leaf leaf : ( (Collision) slot ).leaves )
+            {
+                entries.add( leaf );
+            }
+        }
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        else if ( obj instanceof PersistentHashMap<?, ?> )
+        {
+            PersistentHashMap<?, ?> that = (PersistentHashMap<?, ?>) obj;
+            // the shape of the trie only depends on the keys, not on the order in which they were added
+            return size == that.size && hash == that.hash && eq( root, that.root );
+        }
+        return super.equals( obj );
+    }
+
+    private static boolean eq( Object slot1, Object slot2 )
+    {
+        if ( slot1 == slot2 )
+        {
+            return true;
+        }
+        else if ( slot1 == null || slot2 == null || !slot1.getClass().equals( slot2.getClass() ) )
+        {
+            return false;
+        }
+        else if ( slot1 instanceof Node )
+        {
+            Node node1 = (Node) slot1;
+            Node node2 = (Node) slot2;
+            if ( node1.bitmap != node2.bitmap )
+            {
+                return false;
+            }
+            for ( int i = 0; i < node1.slots.length; i++ )
+            {
+                if ( !eq( node1.slots[i], node2.slots[i] ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        else if ( slot1 instanceof Leaf )
+        {
+            return slot1.equals( slot2 );
+        }
+        else
+        {
+            Leaf[] leaves1 = ( (Collision) slot1 ).leaves;
+            Leaf[] leaves2 = ( (Collision) slot2 ).leaves;
+            if ( leaves1.length != leaves2.length )
+            {
+                return false;
+            }
+            for ( Leaf leaf : leaves1 )
+            {
+                if ( !leaf.equals( ( (Collision) slot2 ).find( leaf.hash, leaf.key ) ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    private static int spread( int h )
+    {
+        h ^= ( h >>> 20 ) ^ ( h >>> 12 );
+        return h ^ ( h >>> 7 ) ^ ( h >>> 4 );
+    }
+
+    private static Node put( Node node, int shift, Leaf leaf, Delta delta )
+    {
+        if ( node == null )
+        {
+            delta.add( leaf );
+            return new Node( 1 << ( ( leaf.hash >>> shift ) & 31 ), new Object[] { leaf } );
+        }
+
+        int bit = 1 << ( ( leaf.hash >>> shift ) & 31 );
+        int index = Integer.bitCount( node.bitmap & ( bit - 1 ) );
+
+        if ( ( node.bitmap & bit ) == 0 )
+        {
+            delta.add( leaf );
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy( node.slots, 0, slots, 0, index );
+            slots[index] = leaf;
+            System.arraycopy( node.slots, index, slots, index + 1, node.slots.length - index );
+            return new Node( node.bitmap | bit, slots );
+        }
+
+        Object slot = node.slots[index];
+        Object updated;
+        if ( slot instanceof Node )
+        {
+            updated = put( (Node) slot, shift + 5, leaf, delta );
+        }
+        else if ( slot instanceof Leaf )
+        {
+            Leaf existing = (Leaf) slot;
+            if ( existing.hash == leaf.hash && existing.key.equals( leaf.key ) )
+            {
+                updated = existing.replace( leaf, delta );
+            }
+            else if ( existing.hash == leaf.hash )
+            {
+                delta.add( leaf );
+                updated = new Collision( leaf.hash, new Leaf[] { existing, leaf } );
+            }
+            else
+            {
+                delta.add( leaf );
+                updated = merge( existing, existing.hash, leaf, shift + 5 );
+            }
+        }
+        else
+        {
+            Collision collision = (Collision) slot;
+            if ( collision.hash == leaf.hash )
+            {
+                updated = collision.put( leaf, delta );
+            }
+            else
+            {
+                delta.add( leaf );
+                updated = merge( collision, collision.hash, leaf, shift + 5 );
+            }
+        }
+
+        if ( updated == slot )
+        {
+            return node;
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = updated;
+        return new Node( node.bitmap, slots );
+    }
+
+    private static Node merge( Object slot, int hash, Leaf leaf, int shift )
+    {
+        int index1 = ( hash >>> shift ) & 31;
+        int index2 = ( leaf.hash >>> shift ) & 31;
+        if ( index1 == index2 )
+        {
+            return new Node( 1 << index1, new Object[] { merge( slot, hash, leaf, shift + 5 ) } );
+        }
+        Object[] slots = ( index1 < index2 ) ? new Object[] { slot, leaf } : new Object[] { leaf, slot };
+        return new Node( ( 1 << index1 ) | ( 1 << index2 ), slots );
+    }
+
+    static final class Delta
+    {
+
+        int size;
+
+        int hash;
+
+        void add( Leaf leaf )
+        {
+            size++;
+            hash += leaf.hashCode();
+        }
+
+    }
+
+    static final class Node
+    {
+
+        final int bitmap;
+
+        final Object[] slots;
+
+        Node( int bitmap, Object[] slots )
+        {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+    }
+
+    static final class Collision
+    {
+
+        final int hash;
+
+        final Leaf[] leaves;
+
+        Collision( int hash, Leaf[] leaves )
+        {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        Leaf find( int h, Object key )
+        {
+            if ( h == hash )
+            {
+                for ( Leaf leaf : leaves )
+                {
+                    if ( leaf.key.equals( key ) )
+                    {
+                        return leaf;
+                    }
+                }
+            }
+            return null;
+        }
+
+        Collision put( Leaf leaf, Delta delta )
+        {
+            for ( int i = 0; i < leaves.length; i++ )
+            {
+                if ( leaves[i].key.equals( leaf.key ) )
+                {
+                    Leaf updated = leaves[i].replace( leaf, delta );
+                    if ( updated == leaves[i] )
+                    {
+                        return this;
+                    }
+                    Leaf[] copy = leaves.clone();
+                    copy[i] = updated;
+                    return new Collision( hash, copy );
+                }
+            }
+            delta.add( leaf );
+            Leaf[] copy = new Leaf[leaves.length + 1];
+            System.arraycopy( leaves, 0, copy, 0, leaves.length );
+            copy[leaves.length] = leaf;
+            return new Collision( hash, copy );
+        }
+
+    }
+
+    static final class Leaf
+        implements Map.Entry<Object, Object>
+    {
+
+        final Object key;
+
+        final Object value;
+
+        final int hash;
+
+        private final int hashCode;
+
+        Leaf( Object key, Object value )
+        {
+            this.key = key;
+            this.value = value;
+            hash = spread( key.hashCode() );
+            hashCode = key.hashCode() ^ ( ( value != null ) ? value.hashCode() : 0 );
+        }
+
+        Leaf replace( Leaf leaf, Delta delta )
+        {
+            if ( value == leaf.value || ( value != null && value.equals( leaf.value ) ) )
+            {
+                return this;
+            }
+            delta.hash += leaf.hashCode - hashCode;
+            return leaf;
+        }
+
+        public Object getKey()
+        {
+            return key;
+        }
+
+        public Object getValue()
+        {
+            return value;
+        }
+
+        public Object setValue( Object value )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof Map.Entry<?, ?> ) )
+            {
+                return false;
+            }
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+            return key.equals( that.getKey() )
+                && ( value == null ? that.getValue() == null : value.equals( that.getValue() ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+
+    }
+
+}
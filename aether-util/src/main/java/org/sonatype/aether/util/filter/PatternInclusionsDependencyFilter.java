@@ -13,10 +13,13 @@ package org.sonatype.aether.util.filter;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.sonatype.aether.Artifact;
 import org.sonatype.aether.Dependency;
@@ -41,6 +44,10 @@ import org.sonatype.aether.VersionScheme;
  * For example, <code>org.apache.*</code> would match all artifacts whose group id started with <code>org.apache.</code>
  * , and <code>:::*-SNAPSHOT</code> would match all snapshot artifacts.
  * </p>
+ * <p>
+ * The patterns are compiled once when the filter is created, patterns with an exact group id are looked up by the
+ * group id of an artifact such that large pattern lists do not need to be scanned for every dependency node.
+ * </p>
  * 
  * @author Alin Dreghiciu
  */
@@ -52,6 +59,10 @@ public class PatternInclusionsDependencyFilter
 
     private final VersionScheme versionScheme;
 
+    private final Map<String, List<Pattern>> groupPatterns = new HashMap<String, List<Pattern>>();
+
+    private final List<Pattern> otherPatterns = new ArrayList<Pattern>();
+
     /**
      * Creates a new filter using the specified patterns.
      * 
@@ -98,6 +109,11 @@ public class PatternInclusionsDependencyFilter
             this.patterns.addAll( patterns );
         }
         this.versionScheme = versionScheme;
+
+        for ( final String pattern : this.patterns )
+        {
+            compile( pattern, versionScheme, groupPatterns, otherPatterns );
+        }
     }
 
     public boolean accept( final DependencyNode node, List<DependencyNode> parents )
@@ -108,10 +124,20 @@ public class PatternInclusionsDependencyFilter
             return true;
         }
         final Artifact artifact = dependency.getArtifact();
-        for ( final String pattern : patterns )
+
+        final List<Pattern> candidates = groupPatterns.get( artifact.getGroupId() );
+        if ( candidates != null && accept( artifact, candidates ) )
         {
-            final boolean matched = accept( artifact, pattern );
-            if ( matched )
+            return true;
+        }
+        return accept( artifact, otherPatterns );
+    }
+
+    private boolean accept( final Artifact artifact, final List<Pattern> patterns )
+    {
+        for ( int i = 0, n = patterns.size(); i < n; i++ )
+        {
+            if ( patterns.get( i ).matches( artifact ) )
             {
                 return true;
             }
@@ -119,89 +145,208 @@ public class PatternInclusionsDependencyFilter
         return false;
     }
 
-    private boolean accept( final Artifact artifact, final String pattern )
+    private static void compile( final String pattern, final VersionScheme versionScheme,
+                                 final Map<String, List<Pattern>> groupPatterns, final List<Pattern> otherPatterns )
     {
-        final String[] tokens =
-            new String[] { artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
-                artifact.getBaseVersion() };
-
+        // NOTE: String.split() drops trailing empty tokens, i.e. "g:a::" is effectively "g:a"
         final String[] patternTokens = pattern.split( ":" );
 
-        // fail immediately if pattern tokens outnumber tokens to match
-        boolean matched = ( patternTokens.length <= tokens.length );
+        // patterns with more tokens than an artifact has fields can never match
+        if ( patternTokens.length > 4 )
+        {
+            return;
+        }
 
-        for ( int i = 0; matched && i < patternTokens.length; i++ )
+        final TokenMatcher[] matchers = new TokenMatcher[patternTokens.length];
+        for ( int i = 0; i < patternTokens.length; i++ )
         {
-            matched = matches( tokens[i], patternTokens[i] );
+            matchers[i] = TokenMatcher.compile( patternTokens[i], versionScheme );
+            if ( matchers[i].kind == TokenMatcher.NONE )
+            {
+                return;
+            }
         }
 
-        return matched;
+        if ( matchers.length > 0 && matchers[0].kind == TokenMatcher.EXACT )
+        {
+            List<Pattern> patterns = groupPatterns.get( matchers[0].text );
+            if ( patterns == null )
+            {
+                patterns = new ArrayList<Pattern>( 4 );
+                groupPatterns.put( matchers[0].text, patterns );
+            }
+            // the group id has already been matched by the lookup
+            matchers[0] = TokenMatcher.ANYTHING;
+            patterns.add( new Pattern( matchers, versionScheme ) );
+        }
+        else
+        {
+            otherPatterns.add( new Pattern( matchers, versionScheme ) );
+        }
     }
 
-    private boolean matches( final String token, final String pattern )
+    /**
+     * A pattern that has been split into its per-field matchers.
+     */
+    static final class Pattern
     {
-        boolean matches;
 
-        // support full wildcard and implied wildcard
-        if ( "*".equals( pattern ) || pattern.length() == 0 )
-        {
-            matches = true;
-        }
-        // support contains wildcard
-        else if ( pattern.startsWith( "*" ) && pattern.endsWith( "*" ) )
-        {
-            final String contains = pattern.substring( 1, pattern.length() - 1 );
+        private final TokenMatcher[] matchers;
 
-            matches = ( token.indexOf( contains ) != -1 );
-        }
-        // support leading wildcard
-        else if ( pattern.startsWith( "*" ) )
-        {
-            final String suffix = pattern.substring( 1, pattern.length() );
+        private final VersionScheme versionScheme;
 
-            matches = token.endsWith( suffix );
-        }
-        // support trailing wildcard
-        else if ( pattern.endsWith( "*" ) )
+        Pattern( final TokenMatcher[] matchers, final VersionScheme versionScheme )
         {
-            final String prefix = pattern.substring( 0, pattern.length() - 1 );
-
-            matches = token.startsWith( prefix );
+            this.matchers = matchers;
+            this.versionScheme = versionScheme;
         }
-        // support versions range
-        else if ( pattern.startsWith( "[" ) || pattern.startsWith( "(" ) )
+
+        boolean matches( final Artifact artifact )
         {
-            matches = isVersionIncludedInRange( token, pattern );
+            for ( int i = 0; i < matchers.length; i++ )
+            {
+                if ( !matchers[i].matches( getToken( artifact, i ), versionScheme ) )
+                {
+                    return false;
+                }
+            }
+            return true;
         }
-        // support exact match
-        else
+
+        private static String getToken( final Artifact artifact, final int index )
         {
-            matches = token.equals( pattern );
+            switch ( index )
+            {
+                case 0:
+                    return artifact.getGroupId();
+                case 1:
+                    return artifact.getArtifactId();
+                case 2:
+                    return artifact.getExtension();
+                default:
+                    return artifact.getBaseVersion();
+            }
         }
 
-        return matches;
     }
 
-    private boolean isVersionIncludedInRange( final String version, final String range )
+    /**
+     * Matches a single field of an artifact against a precompiled pattern token.
+     */
+    static final class TokenMatcher
     {
-        if ( versionScheme == null )
+
+        static final int ANY = 0;
+
+        static final int EXACT = 1;
+
+        static final int PREFIX = 2;
+
+        static final int SUFFIX = 3;
+
+        static final int CONTAINS = 4;
+
+        static final int RANGE = 5;
+
+        static final int NONE = 6;
+
+        static final TokenMatcher ANYTHING = new TokenMatcher( ANY, null, null );
+
+        private static final TokenMatcher NOTHING = new TokenMatcher( NONE, null, null );
+
+        final int kind;
+
+        final String text;
+
+        private final VersionRange range;
+
+        private TokenMatcher( final int kind, final String text, final VersionRange range )
         {
-            return false;
+            this.kind = kind;
+            this.text = text;
+            this.range = range;
         }
-        else
+
+        static TokenMatcher compile( final String pattern, final VersionScheme versionScheme )
+        {
+            // support full wildcard and implied wildcard
+            if ( "*".equals( pattern ) || pattern.length() == 0 )
+            {
+                return ANYTHING;
+            }
+            // support contains wildcard
+            else if ( pattern.startsWith( "*" ) && pattern.endsWith( "*" ) )
+            {
+                return new TokenMatcher( CONTAINS, pattern.substring( 1, pattern.length() - 1 ), null );
+            }
+            // support leading wildcard
+            else if ( pattern.startsWith( "*" ) )
+            {
+                return new TokenMatcher( SUFFIX, pattern.substring( 1 ), null );
+            }
+            // support trailing wildcard
+            else if ( pattern.endsWith( "*" ) )
+            {
+                return new TokenMatcher( PREFIX, pattern.substring( 0, pattern.length() - 1 ), null );
+            }
+            // support versions range
+            else if ( pattern.startsWith( "[" ) || pattern.startsWith( "(" ) )
+            {
+                if ( versionScheme == null )
+                {
+                    return NOTHING;
+                }
+                try
+                {
+                    return new TokenMatcher( RANGE, pattern, versionScheme.parseVersionRange( pattern ) );
+                }
+                catch ( final InvalidVersionSpecificationException e )
+                {
+                    return NOTHING;
+                }
+            }
+            // support exact match
+            else
+            {
+                return new TokenMatcher( EXACT, pattern, null );
+            }
+        }
+
+        boolean matches( final String token, final VersionScheme versionScheme )
+        {
+            switch ( kind )
+            {
+                case ANY:
+                    return true;
+                case EXACT:
+                    return token.equals( text );
+                case PREFIX:
+                    return token.startsWith( text );
+                case SUFFIX:
+                    return token.endsWith( text );
+                case CONTAINS:
+                    return token.indexOf( text ) != -1;
+                case RANGE:
+                    return isVersionIncludedInRange( token, versionScheme );
+                default:
+                    return false;
+            }
+        }
+
+        private boolean isVersionIncludedInRange( final String version, final VersionScheme versionScheme )
         {
             try
             {
                 final Version parsedVersion = versionScheme.parseVersion( version );
-                final VersionRange parsedRange = versionScheme.parseVersionRange( range );
 
-                return parsedRange.containsVersion( parsedVersion );
+                return range.containsVersion( parsedVersion );
             }
             catch ( final InvalidVersionSpecificationException e )
             {
                 return false;
             }
         }
+
     }
 
     @Override
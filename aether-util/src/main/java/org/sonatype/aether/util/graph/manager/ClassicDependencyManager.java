@@ -15,9 +15,8 @@ package org.sonatype.aether.util.graph.manager;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.Map;
+import java.util.Set;
 
 import org.sonatype.aether.Artifact;
 import org.sonatype.aether.Dependency;
@@ -25,9 +24,12 @@ import org.sonatype.aether.DependencyCollectionContext;
 import org.sonatype.aether.DependencyManagement;
 import org.sonatype.aether.DependencyManager;
 import org.sonatype.aether.Exclusion;
+import org.sonatype.aether.util.PersistentHashMap;
 
 /**
- * A dependency manager that mimics the way Maven 2.x works.
+ * A dependency manager that mimics the way Maven 2.x works. The management information is kept in persistent maps such
+ * that deriving a child manager and calculating its hash code only costs in proportion to the number of changed
+ * entries and not the overall number of managed dependencies.
  * 
  * @author Benjamin Bentmann
  */
@@ -37,29 +39,38 @@ public class ClassicDependencyManager
 
     private final int depth;
 
-    private final Map<Object, String> managedVersions;
+    private final PersistentHashMap<Object, String> managedVersions;
 
-    private final Map<Object, String> managedScopes;
+    private final PersistentHashMap<Object, String> managedScopes;
 
-    private final Map<Object, Collection<Exclusion>> managedExclusions;
+    private final PersistentHashMap<Object, Collection<Exclusion>> managedExclusions;
+
+    private final int hashCode;
 
     /**
      * Creates a new dependency manager without any management information.
      */
     public ClassicDependencyManager()
     {
-        this( 0, Collections.<Object, String> emptyMap(), Collections.<Object, String> emptyMap(),
-              Collections.<Object, Collection<Exclusion>> emptyMap() );
+        this( 0, PersistentHashMap.<Object, String> emptyMap(), PersistentHashMap.<Object, String> emptyMap(),
+              PersistentHashMap.<Object, Collection<Exclusion>> emptyMap() );
     }
 
-    private ClassicDependencyManager( int depth, Map<Object, String> managedVersions,
-                                      Map<Object, String> managedScopes,
-                                      Map<Object, Collection<Exclusion>> managedExclusions )
+    private ClassicDependencyManager( int depth, PersistentHashMap<Object, String> managedVersions,
+                                      PersistentHashMap<Object, String> managedScopes,
+                                      PersistentHashMap<Object, Collection<Exclusion>> managedExclusions )
     {
         this.depth = depth;
         this.managedVersions = managedVersions;
         this.managedScopes = managedScopes;
         this.managedExclusions = managedExclusions;
+
+        int hash = 17;
+        hash = hash * 31 + depth;
+        hash = hash * 31 + managedVersions.hashCode();
+        hash = hash * 31 + managedScopes.hashCode();
+        hash = hash * 31 + managedExclusions.hashCode();
+        hashCode = hash;
     }
 
     public DependencyManager deriveChildManager( DependencyCollectionContext context )
@@ -73,9 +84,9 @@ public class ClassicDependencyManager
             return new ClassicDependencyManager( depth + 1, managedVersions, managedScopes, managedExclusions );
         }
 
-        Map<Object, String> managedVersions = this.managedVersions;
-        Map<Object, String> managedScopes = this.managedScopes;
-        Map<Object, Collection<Exclusion>> managedExclusions = this.managedExclusions;
+        PersistentHashMap<Object, String> managedVersions = this.managedVersions;
+        PersistentHashMap<Object, String> managedScopes = this.managedScopes;
+        PersistentHashMap<Object, Collection<Exclusion>> managedExclusions = this.managedExclusions;
 
         for ( Dependency managedDependency : context.getManagedDependencies() )
         {
@@ -85,37 +96,27 @@ public class ClassicDependencyManager
             String version = artifact.getVersion();
             if ( version.length() > 0 && !managedVersions.containsKey( key ) )
             {
-                if ( managedVersions == this.managedVersions )
-                {
-                    managedVersions = new HashMap<Object, String>( this.managedVersions );
-                }
-                managedVersions.put( key, version );
+                managedVersions = managedVersions.plus( key, version );
             }
 
             String scope = managedDependency.getScope();
             if ( scope.length() > 0 && !managedScopes.containsKey( key ) )
             {
-                if ( managedScopes == this.managedScopes )
-                {
-                    managedScopes = new HashMap<Object, String>( this.managedScopes );
-                }
-                managedScopes.put( key, scope );
+                managedScopes = managedScopes.plus( key, scope );
             }
 
             Collection<Exclusion> exclusions = managedDependency.getExclusions();
             if ( !exclusions.isEmpty() )
             {
-                if ( managedExclusions == this.managedExclusions )
-                {
-                    managedExclusions = new HashMap<Object, Collection<Exclusion>>( this.managedExclusions );
-                }
                 Collection<Exclusion> managed = managedExclusions.get( key );
-                if ( managed == null )
+                if ( managed == null || !managed.containsAll( exclusions ) )
                 {
-                    managed = new LinkedHashSet<Exclusion>();
-                    managedExclusions.put( key, managed );
+                    // the collections are shared with other managers and hence must not be modified
+                    Set<Exclusion> merged =
+                        ( managed != null ) ? new LinkedHashSet<Exclusion>( managed ) : new LinkedHashSet<Exclusion>();
+                    merged.addAll( exclusions );
+                    managedExclusions = managedExclusions.plus( key, Collections.unmodifiableSet( merged ) );
                 }
-                managed.addAll( exclusions );
             }
         }
 
@@ -184,19 +185,14 @@ public class ClassicDependencyManager
         }
 
         ClassicDependencyManager that = (ClassicDependencyManager) obj;
-        return depth == that.depth && managedVersions.equals( that.managedVersions )
+        return depth == that.depth && hashCode == that.hashCode && managedVersions.equals( that.managedVersions )
             && managedScopes.equals( that.managedScopes ) && managedExclusions.equals( that.managedExclusions );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + depth;
-        hash = hash * 31 + managedVersions.hashCode();
-        hash = hash * 31 + managedScopes.hashCode();
-        hash = hash * 31 + managedExclusions.hashCode();
-        return hash;
+        return hashCode;
     }
 
     static class Key
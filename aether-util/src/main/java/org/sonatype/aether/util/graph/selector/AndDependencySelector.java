@@ -33,6 +33,8 @@ public class AndDependencySelector
 
     private final Collection<DependencySelector> selectors;
 
+    private int hashCode;
+
     /**
      * Creates a new selector from the specified selectors.
      * 
@@ -150,15 +152,19 @@ public class AndDependencySelector
         }
 
         AndDependencySelector that = (AndDependencySelector) obj;
-        return selectors.equals( that.selectors );
+        return hashCode() == that.hashCode() && selectors.equals( that.selectors );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = getClass().hashCode();
-        hash = hash * 31 + selectors.hashCode();
-        return hash;
+        if ( hashCode == 0 )
+        {
+            int hash = getClass().hashCode();
+            hash = hash * 31 + selectors.hashCode();
+            hashCode = hash;
+        }
+        return hashCode;
     }
 
 }
@@ -36,6 +36,8 @@ public class ExclusionDependencySelector
 
     private final Collection<Exclusion> exclusions;
 
+    private final int hashCode;
+
     /**
      * Creates a new selector without any exclusions.
      */
@@ -59,6 +61,10 @@ public class ExclusionDependencySelector
         {
             this.exclusions = Collections.emptySet();
         }
+
+        int hash = getClass().hashCode();
+        hash = hash * 31 + this.exclusions.hashCode();
+        hashCode = hash;
     }
 
     public boolean selectDependency( Dependency dependency )
@@ -104,7 +110,7 @@ public class ExclusionDependencySelector
     {
         Dependency dependency = context.getDependency();
         Collection<Exclusion> exclusions = ( dependency != null ) ? dependency.getExclusions() : null;
-        if ( exclusions == null || exclusions.isEmpty() )
+        if ( exclusions == null || exclusions.isEmpty() || this.exclusions.containsAll( exclusions ) )
         {
             return this;
         }
@@ -129,15 +135,13 @@ public class ExclusionDependencySelector
         }
 
         ExclusionDependencySelector that = (ExclusionDependencySelector) obj;
-        return exclusions.equals( that.exclusions );
+        return hashCode == that.hashCode && exclusions.equals( that.exclusions );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = getClass().hashCode();
-        hash = hash * 31 + exclusions.hashCode();
-        return hash;
+        return hashCode;
     }
 
 }
@@ -40,6 +40,8 @@ public class ScopeDependencySelector
 
     private final Collection<String> excluded;
 
+    private int hashCode;
+
     /**
      * Creates a new selector using the specified includes and excludes.
      * 
@@ -121,17 +123,22 @@ public class ScopeDependencySelector
         }
 
         ScopeDependencySelector that = (ScopeDependencySelector) obj;
-        return transitive == that.transitive && included.equals( that.included ) && excluded.equals( that.excluded );
+        return transitive == that.transitive && hashCode() == that.hashCode() && included.equals( that.included )
+            && excluded.equals( that.excluded );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + ( transitive ? 1 : 0 );
-        hash = hash * 31 + included.hashCode();
-        hash = hash * 31 + excluded.hashCode();
-        return hash;
+        if ( hashCode == 0 )
+        {
+            int hash = 17;
+            hash = hash * 31 + ( transitive ? 1 : 0 );
+            hash = hash * 31 + included.hashCode();
+            hash = hash * 31 + excluded.hashCode();
+            hashCode = hash;
+        }
+        return hashCode;
     }
 
 }
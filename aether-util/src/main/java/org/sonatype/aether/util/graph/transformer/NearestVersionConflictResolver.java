@@ -14,17 +14,15 @@ package org.sonatype.aether.util.graph.transformer;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
 import org.sonatype.aether.DependencyGraphTransformationContext;
@@ -56,152 +54,38 @@ public class NearestVersionConflictResolver
             throw new RepositoryException( "conflict groups have not been identified" );
         }
 
-        Map<Object, ConflictId> ids = new LinkedHashMap<Object, ConflictId>();
+        ConflictIdGraph graph = new ConflictIdGraph( conflictIds.size() );
+        graph.build( node, conflictIds );
 
-        {
-            ConflictId id = null;
-            Object key = conflictIds.get( node );
-            if ( key != null )
-            {
-                id = new ConflictId( key );
-                ids.put( key, id );
-            }
-
-            Map<DependencyNode, Object> visited = new IdentityHashMap<DependencyNode, Object>( conflictIds.size() );
+        int[] sorted = graph.topsort();
 
-            buildConflitIdDAG( ids, node, id, visited, conflictIds );
-        }
-
-        List<ConflictId> sorted = topsortConflictIds( ids.values() );
-
-        Map<DependencyNode, Integer> depths = new IdentityHashMap<DependencyNode, Integer>( conflictIds.size() );
-        for ( ConflictId id : sorted )
+        int[] depths = new int[graph.getNodeCount()];
+        for ( int id : sorted )
         {
-            ConflictGroup group = new ConflictGroup( id );
-            depths.clear();
-            selectVersion( node, null, 0, depths, group, conflictIds, ids );
-            pruneNonSelectedVersions( group, conflictIds );
+            ConflictGroup group = new ConflictGroup( graph.getKey( id ), id );
+            Arrays.fill( depths, Integer.MAX_VALUE );
+            selectVersion( node, null, 0, depths, group, graph );
+            pruneNonSelectedVersions( group, graph );
         }
 
         return node;
     }
 
-    private void buildConflitIdDAG( Map<Object, ConflictId> ids, DependencyNode node, ConflictId id,
-                                    Map<DependencyNode, Object> visited, Map<?, ?> conflictIds )
-    {
-        if ( visited.put( node, Boolean.TRUE ) != null )
-        {
-            return;
-        }
-
-        ConflictId parentId = id;
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            Object key = conflictIds.get( child );
-            ConflictId childId = ids.get( key );
-            if ( childId == null )
-            {
-                childId = new ConflictId( key );
-                ids.put( key, childId );
-            }
-
-            if ( parentId != null )
-            {
-                parentId.add( childId );
-            }
-
-            buildConflitIdDAG( ids, child, childId, visited, conflictIds );
-        }
-    }
-
-    private List<ConflictId> topsortConflictIds( Collection<ConflictId> conflictIds )
-    {
-        List<ConflictId> sorted = new ArrayList<ConflictId>( conflictIds.size() );
-
-        Queue<ConflictId> roots = new LinkedList<ConflictId>();
-        for ( ConflictId id : conflictIds )
-        {
-            if ( id.inDegree <= 0 )
-            {
-                roots.add( id );
-            }
-        }
-
-        while ( !roots.isEmpty() )
-        {
-            ConflictId root = roots.remove();
-
-            sorted.add( root );
-
-            for ( ConflictId child : root.children )
-            {
-                child.inDegree--;
-                if ( child.inDegree == 0 )
-                {
-                    roots.add( child );
-                }
-            }
-        }
-
-        while ( sorted.size() < conflictIds.size() )
-        {
-            // cycle -> deal gracefully with nodes still having positive in-degree
-            roots.clear();
-
-            ConflictId nearest = null;
-            for ( ConflictId id : conflictIds )
-            {
-                if ( id.inDegree <= 0 )
-                {
-                    continue;
-                }
-                if ( nearest == null || id.inDegree < nearest.inDegree )
-                {
-                    nearest = id;
-                }
-            }
-
-            nearest.inDegree = 0;
-            roots.add( nearest );
-
-            while ( !roots.isEmpty() )
-            {
-                ConflictId root = roots.remove();
-
-                sorted.add( root );
-
-                for ( ConflictId child : root.children )
-                {
-                    child.inDegree--;
-                    if ( child.inDegree == 0 )
-                    {
-                        roots.add( child );
-                    }
-                }
-            }
-        }
-
-        return sorted;
-    }
-
-    private void selectVersion( DependencyNode node, DependencyNode parent, int depth,
-                                Map<DependencyNode, Integer> depths, ConflictGroup group, Map<?, ?> conflictIds,
-                                Map<?, ConflictId> ids )
+    private void selectVersion( DependencyNode node, DependencyNode parent, int depth, int[] depths,
+                                ConflictGroup group, ConflictIdGraph graph )
         throws RepositoryException
     {
-        Integer smallestDepth = depths.get( node );
-        if ( smallestDepth == null || smallestDepth.intValue() > depth )
+        int index = graph.getNode( node );
+        if ( depths[index] > depth )
         {
-            depths.put( node, Integer.valueOf( depth ) );
+            depths[index] = depth;
         }
         else
         {
             return;
         }
 
-        Object key = conflictIds.get( node );
-        if ( group.id.key.equals( key ) )
+        if ( graph.getGroup( index ) == group.index )
         {
             Position pos = new Position( parent, depth );
             if ( parent != null )
@@ -255,7 +139,7 @@ public class NearestVersionConflictResolver
                     {
                         versions.add( constraint.toString() );
                     }
-                    throw new UnsolvableVersionConflictException( group.id.key, versions );
+                    throw new UnsolvableVersionConflictException( group.key, versions );
                 }
             }
         }
@@ -264,7 +148,7 @@ public class NearestVersionConflictResolver
 
         for ( DependencyNode child : node.getChildren() )
         {
-            selectVersion( child, node, depth, depths, group, conflictIds, ids );
+            selectVersion( child, node, depth, depths, group, graph );
         }
     }
 
@@ -281,7 +165,7 @@ public class NearestVersionConflictResolver
         return false;
     }
 
-    private void pruneNonSelectedVersions( ConflictGroup group, Map<?, ?> conflictIds )
+    private void pruneNonSelectedVersions( ConflictGroup group, ConflictIdGraph graph )
     {
         for ( Position pos : group.positions )
         {
@@ -289,9 +173,7 @@ public class NearestVersionConflictResolver
             {
                 DependencyNode child = it.next();
 
-                Object key = conflictIds.get( child );
-
-                if ( group.id.key.equals( key ) )
+                if ( graph.getGroup( graph.getNode( child ) ) == group.index )
                 {
                     if ( !group.pruned && group.position.depth == pos.depth
                         && group.version.equals( child.getVersion() ) )
@@ -307,32 +189,387 @@ public class NearestVersionConflictResolver
         }
     }
 
-    static final class ConflictId
+    /**
+     * The graph of conflict groups, i.e. the group of a node has an edge to the groups of the node's children. Nodes
+     * and groups are identified by dense indices (in order of their discovery) such that per-node state can be kept in
+     * plain arrays.
+     */
+    static final class ConflictIdGraph
     {
 
-        final Object key;
+        private Object[] nodes;
+
+        private int[] nodeIndices;
+
+        private int[] nodeGroups;
+
+        private int nodeCount;
+
+        private final Map<Object, Integer> groupIndices = new HashMap<Object, Integer>( 256 );
 
-        Collection<ConflictId> children = Collections.emptySet();
+        private final List<Object> groupKeys = new ArrayList<Object>( 256 );
 
-        int inDegree;
+        private long[] edges = new long[256];
 
-        public ConflictId( Object key )
+        private int edgeCount;
+
+        private long[] discoveredEdges;
+
+        private boolean hashOrdered;
+
+        private int[] childOffsets;
+
+        private int[] children;
+
+        private int[] inDegrees;
+
+        public ConflictIdGraph( int expectedNodes )
         {
-            this.key = key;
+            int capacity = 16;
+            while ( capacity < expectedNodes * 2 )
+            {
+                capacity <<= 1;
+            }
+            nodes = new Object[capacity];
+            nodeIndices = new int[capacity];
+            nodeGroups = new int[Math.max( expectedNodes, 16 )];
+        }
+
+        public void build( DependencyNode root, Map<?, ?> conflictIds )
+        {
+            Object key = conflictIds.get( root );
+            int id = ( key != null ) ? getGroupIndex( key ) : -1;
+
+            build( root, id, conflictIds );
+
+            link();
         }
 
-        public void add( ConflictId child )
+        private void build( DependencyNode node, int id, Map<?, ?> conflictIds )
         {
-            if ( children.isEmpty() )
+            if ( !addNode( node, id ) )
             {
-                children = new HashSet<ConflictId>();
+                return;
             }
-            if ( children.add( child ) )
+
+            for ( DependencyNode child : node.getChildren() )
             {
-                child.inDegree++;
+                int childId = getGroupIndex( conflictIds.get( child ) );
+
+                if ( id >= 0 )
+                {
+                    addEdge( id, childId );
+                }
+
+                build( child, childId, conflictIds );
             }
         }
 
+        private int getGroupIndex( Object key )
+        {
+            Integer index = groupIndices.get( key );
+            if ( index == null )
+            {
+                index = Integer.valueOf( groupKeys.size() );
+                groupIndices.put( key, index );
+                groupKeys.add( key );
+            }
+            return index.intValue();
+        }
+
+        private static int hash( Object node, int mask )
+        {
+            int h = System.identityHashCode( node ) * 0x9E3779B9;
+            return ( h ^ ( h >>> 16 ) ) & mask;
+        }
+
+        private boolean addNode( DependencyNode node, int group )
+        {
+            int mask = nodes.length - 1;
+            int slot = hash( node, mask );
+            for ( ; nodes[slot] != null; slot = ( slot + 1 ) & mask )
+            {
+                if ( nodes[slot] == node )
+                {
+                    return false;
+                }
+            }
+
+            if ( nodeCount >= nodeGroups.length )
+            {
+                int[] tmp = new int[nodeGroups.length * 2];
+                System.arraycopy( nodeGroups, 0, tmp, 0, nodeCount );
+                nodeGroups = tmp;
+            }
+
+            nodes[slot] = node;
+            nodeIndices[slot] = nodeCount;
+            nodeGroups[nodeCount] = group;
+            nodeCount++;
+
+            if ( nodeCount * 2 > nodes.length )
+            {
+                rehash();
+            }
+
+            return true;
+        }
+
+        private void rehash()
+        {
+            Object[] oldNodes = nodes;
+            int[] oldIndices = nodeIndices;
+
+            nodes = new Object[oldNodes.length * 2];
+            nodeIndices = new int[nodes.length];
+
+            int mask = nodes.length - 1;
+            for ( int i = 0; i < oldNodes.length; i++ )
+            {
+                if ( oldNodes[i] != null )
+                {
+                    int slot = hash( oldNodes[i], mask );
+                    while ( nodes[slot] != null )
+                    {
+                        slot = ( slot + 1 ) & mask;
+                    }
+                    nodes[slot] = oldNodes[i];
+                    nodeIndices[slot] = oldIndices[i];
+                }
+            }
+        }
+
+        private void addEdge( int parent, int child )
+        {
+            if ( edgeCount >= edges.length )
+            {
+                long[] tmp = new long[edges.length * 2];
+                System.arraycopy( edges, 0, tmp, 0, edgeCount );
+                edges = tmp;
+            }
+            edges[edgeCount++] = ( (long) parent << 32 ) | child;
+        }
+
+        /**
+         * Turns the collected edges into an adjacency array without duplicate edges.
+         */
+        private void link()
+        {
+            int groupCount = groupKeys.size();
+
+            childOffsets = new int[groupCount + 1];
+            inDegrees = new int[groupCount];
+
+            discoveredEdges = new long[edgeCount];
+            System.arraycopy( edges, 0, discoveredEdges, 0, edgeCount );
+
+            Arrays.sort( edges, 0, edgeCount );
+
+            int unique = 0;
+            for ( int i = 0; i < edgeCount; i++ )
+            {
+                if ( unique <= 0 || edges[unique - 1] != edges[i] )
+                {
+                    edges[unique++] = edges[i];
+                }
+            }
+
+            children = new int[unique];
+            for ( int i = 0; i < unique; i++ )
+            {
+                int parent = (int) ( edges[i] >>> 32 );
+                int child = (int) edges[i];
+                children[i] = child;
+                childOffsets[parent + 1]++;
+                inDegrees[child]++;
+            }
+            for ( int i = 0; i < groupCount; i++ )
+            {
+                childOffsets[i + 1] += childOffsets[i];
+            }
+
+            edges = null;
+        }
+
+        /**
+         * Sorts the conflict groups topologically, cycles are broken by starting with the group that has the smallest
+         * number of remaining incoming edges. In the presence of a cycle, the order in which the children of a group
+         * are visited affects the result. Hence the sort is then redone with the children in the iteration order of a
+         * hash set of their keys, which is the order used by former versions of this resolver.
+         * 
+         * @return The indices of the conflict groups in topological order, never {@code null}.
+         */
+        public int[] topsort()
+        {
+            int groupCount = groupKeys.size();
+
+            int[] sorted = new int[groupCount];
+            int count = 0;
+
+            for ( int id = 0; id < groupCount; id++ )
+            {
+                if ( inDegrees[id] <= 0 )
+                {
+                    sorted[count++] = id;
+                }
+            }
+
+            count = drain( sorted, 0, count );
+
+            if ( count < groupCount && !hashOrdered )
+            {
+                orderChildrenByHash();
+                return topsort();
+            }
+
+            while ( count < groupCount )
+            {
+                // cycle -> deal gracefully with nodes still having positive in-degree
+                int nearest = -1;
+                for ( int id = 0; id < groupCount; id++ )
+                {
+                    if ( inDegrees[id] <= 0 )
+                    {
+                        continue;
+                    }
+                    if ( nearest < 0 || inDegrees[id] < inDegrees[nearest] )
+                    {
+                        nearest = id;
+                    }
+                }
+
+                inDegrees[nearest] = 0;
+                sorted[count] = nearest;
+
+                count = drain( sorted, count, count + 1 );
+            }
+
+            return sorted;
+        }
+
+        private void orderChildrenByHash()
+        {
+            int groupCount = groupKeys.size();
+
+            GroupKey[] keys = new GroupKey[groupCount];
+            for ( int i = 0; i < groupCount; i++ )
+            {
+                keys[i] = new GroupKey( i, groupKeys.get( i ) );
+            }
+
+            List<Set<GroupKey>> sets = new ArrayList<Set<GroupKey>>( groupCount );
+            for ( int i = 0; i < groupCount; i++ )
+            {
+                sets.add( null );
+            }
+            for ( long edge : discoveredEdges )
+            {
+                int parent = (int) ( edge >>> 32 );
+                Set<GroupKey> set = sets.get( parent );
+                if ( set == null )
+                {
+                    set = new HashSet<GroupKey>();
+                    sets.set( parent, set );
+                }
+                set.add( keys[(int) edge] );
+            }
+
+            Arrays.fill( inDegrees, 0 );
+            for ( int parent = 0; parent < groupCount; parent++ )
+            {
+                Set<GroupKey> set = sets.get( parent );
+                if ( set != null )
+                {
+                    int i = childOffsets[parent];
+                    for ( GroupKey key : set )
+                    {
+                        children[i++] = key.index;
+                        inDegrees[key.index]++;
+                    }
+                }
+            }
+
+            discoveredEdges = null;
+            hashOrdered = true;
+        }
+
+        private int drain( int[] queue, int head, int tail )
+        {
+            while ( head < tail )
+            {
+                int root = queue[head++];
+
+                for ( int i = childOffsets[root], n = childOffsets[root + 1]; i < n; i++ )
+                {
+                    int child = children[i];
+                    inDegrees[child]--;
+                    if ( inDegrees[child] == 0 )
+                    {
+                        queue[tail++] = child;
+                    }
+                }
+            }
+            return tail;
+        }
+
+        public int getNodeCount()
+        {
+            return nodeCount;
+        }
+
+        /**
+         * Gets the index of the specified node.
+         * 
+         * @param node The node to look up, must not be {@code null}.
+         * @return The index of the node or {@code -1} if the node is not part of the graph.
+         */
+        public int getNode( DependencyNode node )
+        {
+            int mask = nodes.length - 1;
+            for ( int slot = hash( node, mask ); nodes[slot] != null; slot = ( slot + 1 ) & mask )
+            {
+                if ( nodes[slot] == node )
+                {
+                    return nodeIndices[slot];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Gets the conflict group of the specified node.
+         * 
+         * @param node The index of the node.
+         * @return The index of the node's conflict group or {@code -1} if the node has no conflict id.
+         */
+        public int getGroup( int node )
+        {
+            return ( node >= 0 ) ? nodeGroups[node] : -1;
+        }
+
+        public Object getKey( int group )
+        {
+            return groupKeys.get( group );
+        }
+
+    }
+
+    /**
+     * A conflict group as an element of a hash set, hashed like the conflict ids of former versions of this resolver.
+     */
+    static final class GroupKey
+    {
+
+        final int index;
+
+        final Object key;
+
+        public GroupKey( int index, Object key )
+        {
+            this.index = index;
+            this.key = key;
+        }
+
         @Override
         public boolean equals( Object obj )
         {
@@ -340,24 +577,17 @@ public class NearestVersionConflictResolver
             {
                 return true;
             }
-            else if ( !( obj instanceof ConflictId ) )
+            else if ( !( obj instanceof GroupKey ) )
             {
                 return false;
             }
-            ConflictId that = (ConflictId) obj;
-            return this.key.equals( that.key );
+            return index == ( (GroupKey) obj ).index;
         }
 
         @Override
         public int hashCode()
         {
-            return key.hashCode();
-        }
-
-        @Override
-        public String toString()
-        {
-            return key + " <" + inDegree;
+            return ( key != null ) ? key.hashCode() : 0;
         }
 
     }
@@ -365,7 +595,9 @@ public class NearestVersionConflictResolver
     static final class ConflictGroup
     {
 
-        final ConflictId id;
+        final Object key;
+
+        final int index;
 
         final Collection<VersionConstraint> constraints = new HashSet<VersionConstraint>();
 
@@ -379,9 +611,10 @@ public class NearestVersionConflictResolver
 
         boolean pruned;
 
-        public ConflictGroup( ConflictId id )
+        public ConflictGroup( Object key, int index )
         {
-            this.id = id;
+            this.key = key;
+            this.index = index;
             this.position = new Position( null, Integer.MAX_VALUE );
         }
 
@@ -400,7 +633,7 @@ public class NearestVersionConflictResolver
         @Override
         public String toString()
         {
-            return id + " > " + version;
+            return key + " > " + version;
         }
 
     }
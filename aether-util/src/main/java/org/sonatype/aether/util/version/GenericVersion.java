@@ -14,13 +14,8 @@ package org.sonatype.aether.util.version;
  */
 
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.ListIterator;
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Stack;
 
 import org.sonatype.aether.Version;
 
@@ -55,292 +50,53 @@ final class GenericVersion
     implements Version
 {
 
-    private final String value;
-
-    private final String canonical;
-
-    private final ListItem items;
-
-    private interface Item
-    {
-        public static final int INTEGER_ITEM = 0;
+    private static final byte INTEGER = 0;
 
-        public static final int STRING_ITEM = 1;
+    private static final byte BIG_INTEGER = 1;
 
-        public static final int LIST_ITEM = 2;
+    private static final byte QUALIFIER = 2;
 
-        public int compareTo( Item item );
-
-        public int getType();
-
-        public boolean isNull();
-    }
+    private static final byte LIST = 3;
 
     /**
-     * Represents a numeric item in the version item list.
+     * The ordinal of unknown qualifiers, these are ordered after all well-known qualifiers and among each other by
+     * their lexical order.
      */
-    private static class IntegerItem
-        implements Item
-    {
-
-        private final BigInteger value;
-
-        public static final IntegerItem ZERO = new IntegerItem();
-
-        private IntegerItem()
-        {
-            this.value = BigInteger.ZERO;
-        }
-
-        public IntegerItem( String str )
-        {
-            this.value = new BigInteger( str );
-        }
-
-        public int getType()
-        {
-            return INTEGER_ITEM;
-        }
-
-        public boolean isNull()
-        {
-            return BigInteger.ZERO.equals( value );
-        }
-
-        public int compareTo( Item item )
-        {
-            if ( item == null )
-            {
-                return BigInteger.ZERO.equals( value ) ? 0 : 1; // 1.0 == 1, 1.1 > 1
-            }
-
-            switch ( item.getType() )
-            {
-                case INTEGER_ITEM:
-                    return value.compareTo( ( (IntegerItem) item ).value );
-
-                case STRING_ITEM:
-                    return 1; // 1.1 > 1-sp
-
-                case LIST_ITEM:
-                    return 1; // 1.1 > 1-1
-
-                default:
-                    throw new RuntimeException( "invalid item: " + item.getClass() );
-            }
-        }
-
-        public String toString()
-        {
-            return value.toString();
-        }
-    }
+    private static final int UNKNOWN_QUALIFIER = 7;
 
     /**
-     * Represents a string in the version item list, usually a qualifier.
+     * The ordinal of the empty-string qualifier. This one is used to determine if a given qualifier makes the version
+     * older than one without a qualifier, or more recent.
      */
-    private static class StringItem
-        implements Item
-    {
-        private final static Map<String, String> QUALIFIERS = new HashMap<String, String>();
-
-        private final static Map<String, String> ALIASES = new HashMap<String, String>();
-
-        static
-        {
-            String[] qualifiers = { "alpha", "beta", "milestone", "rc", "snapshot", "", "sp" };
-            for ( int i = 0; i < qualifiers.length; i++ )
-            {
-                QUALIFIERS.put( qualifiers[i], String.valueOf( i ) );
-            }
+    private static final int RELEASE_QUALIFIER = 5;
 
-            ALIASES.put( "ga", "" );
-            ALIASES.put( "final", "" );
-            ALIASES.put( "cr", "rc" );
-        }
+    private static final String[] QUALIFIER_NAMES =
+        { "alpha", "beta", "milestone", "rc", "snapshot", "", "sp", "ga", "final", "cr" };
 
-        /**
-         * A comparable value for the empty-string qualifier. This one is used to determine if a given qualifier makes
-         * the version older than one without a qualifier, or more recent.
-         */
-        private static final String RELEASE_VERSION_INDEX = QUALIFIERS.get( "" );
+    private static final int[] QUALIFIER_ORDINALS = { 0, 1, 2, 3, 4, 5, 6, 5, 5, 3 };
 
-        private static final String LEXICAL_PREFIX = String.valueOf( QUALIFIERS.size() );
+    private static final int MAX_LONG_DIGITS = 18;
 
-        private final String value;
-
-        public StringItem( String value, boolean followedByDigit )
-        {
-            if ( followedByDigit && value.length() == 1 )
-            {
-                // a1 = alpha-1, b1 = beta-1, m1 = milestone-1
-                switch ( value.charAt( 0 ) )
-                {
-                    case 'a':
-                        value = "alpha";
-                        break;
-                    case 'b':
-                        value = "beta";
-                        break;
-                    case 'm':
-                        value = "milestone";
-                        break;
-                }
-            }
-            String alias = ALIASES.get( value );
-            this.value = ( alias != null ) ? alias : value;
-        }
-
-        public int getType()
-        {
-            return STRING_ITEM;
-        }
-
-        public boolean isNull()
-        {
-            return value.length() <= 0;
-        }
-
-        /**
-         * Returns a comparable value for a qualifier. This method both takes into account the ordering of known
-         * qualifiers as well as lexical ordering for unknown qualifiers. just returning an Integer with the index here
-         * is faster, but requires a lot of if/then/else to check for -1 or QUALIFIERS.size and then resort to lexical
-         * ordering. Most comparisons are decided by the first character, so this is still fast. If more characters are
-         * needed then it requires a lexical sort anyway.
-         * 
-         * @param qualifier
-         * @return an equivalent value that can be used with lexical comparison
-         */
-        private static String comparableQualifier( String qualifier )
-        {
-            String i = QUALIFIERS.get( qualifier );
-
-            return i != null ? i : LEXICAL_PREFIX + qualifier;
-        }
-
-        public int compareTo( Item item )
-        {
-            if ( item == null )
-            {
-                // 1-rc < 1, 1-ga > 1
-                return comparableQualifier( value ).compareTo( RELEASE_VERSION_INDEX );
-            }
-            switch ( item.getType() )
-            {
-                case INTEGER_ITEM:
-                    return -1; // 1.any < 1.1 ?
-
-                case STRING_ITEM:
-                    return comparableQualifier( value ).compareTo( comparableQualifier( ( (StringItem) item ).value ) );
-
-                case LIST_ITEM:
-                    return -1; // 1.any < 1-1
-
-                default:
-                    throw new IllegalStateException( "invalid item: " + item.getClass() );
-            }
-        }
-
-        public String toString()
-        {
-            return value;
-        }
-    }
+    private final String value;
 
     /**
-     * Represents a version list item. This class is used both for the global item list and for sub-lists (which start
-     * with '-(number)' in the version specification).
+     * The version items in depth-first order. Each item is either a number, a qualifier or the start of a sub list
+     * (which starts with '-(number)' in the version specification). A sub list is always the last item of its parent
+     * list, i.e. all items following a list marker belong to that sub list.
      */
-    private static class ListItem
-        extends ArrayList<Item>
-        implements Item
-    {
-        public int getType()
-        {
-            return LIST_ITEM;
-        }
-
-        public boolean isNull()
-        {
-            return ( size() == 0 );
-        }
-
-        void normalize()
-        {
-            for ( ListIterator<Item> iterator = listIterator( size() ); iterator.hasPrevious(); )
-            {
-                Item item = iterator.previous();
-                if ( item.isNull() )
-                {
-                    iterator.remove(); // remove null trailing items: 0, "", empty list
-                }
-                else
-                {
-                    break;
-                }
-            }
-        }
-
-        public int compareTo( Item item )
-        {
-            if ( item == null )
-            {
-                if ( size() == 0 )
-                {
-                    return 0; // 1-0 = 1- (normalize) = 1
-                }
-                Item first = (Item) get( 0 );
-                return first.compareTo( null );
-            }
-            switch ( item.getType() )
-            {
-                case INTEGER_ITEM:
-                    return -1; // 1-1 < 1.0.x
-
-                case STRING_ITEM:
-                    return 1; // 1-1 > 1-sp
-
-                case LIST_ITEM:
-                    Iterator<Item> left = iterator();
-                    Iterator<Item> right = ( (ListItem) item ).iterator();
-
-                    while ( left.hasNext() || right.hasNext() )
-                    {
-                        Item l = left.hasNext() ? left.next() : null;
-                        Item r = right.hasNext() ? right.next() : null;
-
-                        // if this is shorter, then invert the compare and mul with -1
-                        int result = l == null ? -r.compareTo( l ) : l.compareTo( r );
+    private final byte[] kinds;
 
-                        if ( result != 0 )
-                        {
-                            return result;
-                        }
-                    }
-
-                    return 0;
+    /**
+     * The value of a number item or the ordinal of a qualifier item.
+     */
+    private final long[] values;
 
-                default:
-                    throw new RuntimeException( "invalid item: " + item.getClass() );
-            }
-        }
+    /**
+     * The values of numbers which do not fit into a long and of unknown qualifiers, {@code null} if there are none.
+     */
+    private final Object[] objects;
 
-        public String toString()
-        {
-            StringBuilder buffer = new StringBuilder( 128 );
-            buffer.append( '(' );
-            for ( Iterator<Item> iter = iterator(); iter.hasNext(); )
-            {
-                buffer.append( iter.next() );
-                if ( iter.hasNext() )
-                {
-                    buffer.append( ',' );
-                }
-            }
-            buffer.append( ')' );
-            return buffer.toString();
-        }
-    }
+    private final int hash;
 
     /**
      * Creates a Maven version from the specified string.
@@ -351,15 +107,10 @@ final class GenericVersion
     {
         this.value = version;
 
-        items = new ListItem();
+        Items items = new Items( version.length() / 2 + 2 );
 
         version = version.toLowerCase( Locale.ENGLISH );
 
-        ListItem list = items;
-
-        Stack<Item> stack = new Stack<Item>();
-        stack.push( list );
-
         boolean isDigit = false;
 
         int startIndex = 0;
@@ -372,11 +123,11 @@ final class GenericVersion
             {
                 if ( i == startIndex )
                 {
-                    list.add( IntegerItem.ZERO );
+                    items.addInteger( 0 );
                 }
                 else
                 {
-                    list.add( parseItem( isDigit, version.substring( startIndex, i ) ) );
+                    items.addItem( isDigit, version, startIndex, i, false );
                 }
                 startIndex = i + 1;
             }
@@ -384,25 +135,23 @@ final class GenericVersion
             {
                 if ( i == startIndex )
                 {
-                    list.add( IntegerItem.ZERO );
+                    items.addInteger( 0 );
                 }
                 else
                 {
-                    list.add( parseItem( isDigit, version.substring( startIndex, i ) ) );
+                    items.addItem( isDigit, version, startIndex, i, false );
                 }
                 startIndex = i + 1;
 
                 if ( isDigit )
                 {
-                    list.normalize(); // 1.0-* = 1-*
+                    items.normalize(); // 1.0-* = 1-*
 
                     if ( ( i + 1 < version.length() ) && Character.isDigit( version.charAt( i + 1 ) ) )
                     {
-                        // new ListItem only if previous were digits and new char is a digit,
+                        // new list only if previous were digits and new char is a digit,
                         // ie need to differentiate only 1.1 from 1-1
-                        list.add( list = new ListItem() );
-
-                        stack.push( list );
+                        items.addList();
                     }
                 }
             }
@@ -410,7 +159,7 @@ final class GenericVersion
             {
                 if ( !isDigit && i > startIndex )
                 {
-                    list.add( new StringItem( version.substring( startIndex, i ), true ) );
+                    items.addItem( false, version, startIndex, i, true );
                     startIndex = i;
                 }
 
@@ -420,7 +169,7 @@ final class GenericVersion
             {
                 if ( isDigit && i > startIndex )
                 {
-                    list.add( parseItem( true, version.substring( startIndex, i ) ) );
+                    items.addItem( true, version, startIndex, i, false );
                     startIndex = i;
                 }
 
@@ -430,36 +179,155 @@ final class GenericVersion
 
         if ( version.length() > startIndex )
         {
-            list.add( parseItem( isDigit, version.substring( startIndex ) ) );
+            items.addItem( isDigit, version, startIndex, version.length(), false );
         }
 
-        while ( !stack.isEmpty() )
+        items.normalizeAll();
+
+        kinds = new byte[items.size];
+        System.arraycopy( items.kinds, 0, kinds, 0, items.size );
+        values = new long[items.size];
+        System.arraycopy( items.values, 0, values, 0, items.size );
+        if ( items.objects != null )
+        {
+            objects = new Object[items.size];
+            System.arraycopy( items.objects, 0, objects, 0, items.size );
+        }
+        else
         {
-            list = (ListItem) stack.pop();
-            list.normalize();
+            objects = null;
         }
 
-        canonical = items.toString();
+        hash = Arrays.hashCode( kinds ) * 31 * 31 + Arrays.hashCode( values ) * 31 + Arrays.hashCode( objects );
     }
 
-    private static Item parseItem( boolean isDigit, String buf )
+    public int compareTo( Version o )
     {
-        return isDigit ? new IntegerItem( buf ) : new StringItem( buf, false );
+        GenericVersion that = (GenericVersion) o;
+        return compareList( this, 0, that, 0 );
     }
 
-    public int compareTo( Version o )
+    private static int compareList( GenericVersion left, int l, GenericVersion right, int r )
+    {
+        int leftSize = left.kinds.length;
+        int rightSize = right.kinds.length;
+
+        for ( ; l < leftSize || r < rightSize; l++, r++ )
+        {
+            // if this is shorter, then invert the compare
+            int result =
+                ( l < leftSize ) ? compareItem( left, l, right, ( r < rightSize ) ? r : -1 ) : -compareItem( right, r,
+                                                                                                             left, -1 );
+
+            if ( result != 0 )
+            {
+                return result;
+            }
+
+            if ( ( l < leftSize && left.kinds[l] == LIST ) || ( r < rightSize && right.kinds[r] == LIST ) )
+            {
+                // a sub list is the last item of its parent and has been compared as a whole
+                break;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compares the item at the specified index of the left version with the item at the specified index of the right
+     * version. An index of {@code -1} denotes a missing item on the right side.
+     */
+    private static int compareItem( GenericVersion left, int l, GenericVersion right, int r )
     {
-        return items.compareTo( ( (GenericVersion) o ).items );
+        byte other = ( r < 0 ) ? -1 : right.kinds[r];
+
+        switch ( left.kinds[l] )
+        {
+            case INTEGER:
+                switch ( other )
+                {
+                    case INTEGER:
+                        long lv = left.values[l];
+                        long rv = right.values[r];
+                        return ( lv < rv ) ? -1 : ( ( lv == rv ) ? 0 : 1 );
+                    case BIG_INTEGER:
+                        return -1;
+                    case -1:
+                        return ( left.values[l] == 0 ) ? 0 : 1; // 1.0 == 1, 1.1 > 1
+                    default:
+                        return 1; // 1.1 > 1-sp, 1.1 > 1-1
+                }
+
+            case BIG_INTEGER:
+                switch ( other )
+                {
+                    case BIG_INTEGER:
+                        return ( (BigInteger) left.objects[l] ).compareTo( (BigInteger) right.objects[r] );
+                    default:
+                        return 1;
+                }
+
+            case QUALIFIER:
+                switch ( other )
+                {
+                    case QUALIFIER:
+                        long lv = left.values[l];
+                        long rv = right.values[r];
+                        if ( lv != rv )
+                        {
+                            return ( lv < rv ) ? -1 : 1;
+                        }
+                        if ( lv == UNKNOWN_QUALIFIER )
+                        {
+                            return ( (String) left.objects[l] ).compareTo( (String) right.objects[r] );
+                        }
+                        return 0;
+                    case -1:
+                        // 1-rc < 1, 1-ga > 1
+                        return ( left.values[l] < RELEASE_QUALIFIER ) ? -1
+                                        : ( ( left.values[l] == RELEASE_QUALIFIER ) ? 0 : 1 );
+                    default:
+                        return -1; // 1.any < 1.1, 1.any < 1-1
+                }
+
+            case LIST:
+                switch ( other )
+                {
+                    case LIST:
+                        return compareList( left, l + 1, right, r + 1 );
+                    case QUALIFIER:
+                        return 1; // 1-1 > 1-sp
+                    case -1:
+                        // 1-0 = 1- (normalize) = 1
+                        return ( l + 1 < left.kinds.length ) ? compareItem( left, l + 1, right, -1 ) : 0;
+                    default:
+                        return -1; // 1-1 < 1.0.x
+                }
+
+            default:
+                throw new IllegalStateException( "invalid item: " + left.kinds[l] );
+        }
     }
 
     public boolean equals( Object o )
     {
-        return ( o instanceof GenericVersion ) && canonical.equals( ( (GenericVersion) o ).canonical );
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof GenericVersion ) )
+        {
+            return false;
+        }
+        GenericVersion that = (GenericVersion) o;
+        return hash == that.hash && Arrays.equals( kinds, that.kinds ) && Arrays.equals( values, that.values )
+            && Arrays.equals( objects, that.objects );
     }
 
     public int hashCode()
     {
-        return canonical.hashCode();
+        return hash;
     }
 
     public String toString()
@@ -467,4 +335,192 @@ final class GenericVersion
         return value;
     }
 
+    /**
+     * Collects the items of a version during parsing.
+     */
+    private static final class Items
+    {
+
+        byte[] kinds;
+
+        long[] values;
+
+        Object[] objects;
+
+        int size;
+
+        /**
+         * The index of the first item of the current (innermost) list.
+         */
+        int listStart;
+
+        Items( int capacity )
+        {
+            kinds = new byte[capacity];
+            values = new long[capacity];
+        }
+
+        void addItem( boolean isDigit, String version, int start, int end, boolean followedByDigit )
+        {
+            if ( isDigit )
+            {
+                addNumber( version, start, end );
+            }
+            else
+            {
+                addQualifier( version, start, end, followedByDigit );
+            }
+        }
+
+        void addInteger( long value )
+        {
+            add( INTEGER, value, null );
+        }
+
+        private void addNumber( String version, int start, int end )
+        {
+            while ( start < end - 1 && Character.digit( version.charAt( start ), 10 ) == 0 )
+            {
+                start++;
+            }
+
+            if ( end - start <= MAX_LONG_DIGITS )
+            {
+                long value = 0;
+                for ( int i = start; i < end; i++ )
+                {
+                    value = value * 10 + Character.digit( version.charAt( i ), 10 );
+                }
+                add( INTEGER, value, null );
+            }
+            else
+            {
+                add( BIG_INTEGER, 0, new BigInteger( version.substring( start, end ) ) );
+            }
+        }
+
+        private void addQualifier( String version, int start, int end, boolean followedByDigit )
+        {
+            int length = end - start;
+
+            if ( followedByDigit && length == 1 )
+            {
+                // a1 = alpha-1, b1 = beta-1, m1 = milestone-1
+                switch ( version.charAt( start ) )
+                {
+                    case 'a':
+                        add( QUALIFIER, 0, null );
+                        return;
+                    case 'b':
+                        add( QUALIFIER, 1, null );
+                        return;
+                    case 'm':
+                        add( QUALIFIER, 2, null );
+                        return;
+                }
+            }
+
+            for ( int i = 0; i < QUALIFIER_NAMES.length; i++ )
+            {
+                String name = QUALIFIER_NAMES[i];
+                if ( name.length() == length && version.regionMatches( start, name, 0, length ) )
+                {
+                    add( QUALIFIER, QUALIFIER_ORDINALS[i], null );
+                    return;
+                }
+            }
+
+            add( QUALIFIER, UNKNOWN_QUALIFIER, version.substring( start, end ) );
+        }
+
+        void addList()
+        {
+            add( LIST, 0, null );
+            listStart = size;
+        }
+
+        private void add( byte kind, long value, Object object )
+        {
+            if ( size >= kinds.length )
+            {
+                int capacity = size * 2;
+                byte[] k = new byte[capacity];
+                System.arraycopy( kinds, 0, k, 0, size );
+                kinds = k;
+                long[] v = new long[capacity];
+                System.arraycopy( values, 0, v, 0, size );
+                values = v;
+                if ( objects != null )
+                {
+                    Object[] o = new Object[capacity];
+                    System.arraycopy( objects, 0, o, 0, size );
+                    objects = o;
+                }
+            }
+            if ( object != null && objects == null )
+            {
+                objects = new Object[kinds.length];
+            }
+            kinds[size] = kind;
+            values[size] = value;
+            if ( objects != null )
+            {
+                objects[size] = object;
+            }
+            size++;
+        }
+
+        private boolean isNull( int index )
+        {
+            switch ( kinds[index] )
+            {
+                case INTEGER:
+                    return values[index] == 0;
+                case QUALIFIER:
+                    return values[index] == RELEASE_QUALIFIER;
+                case LIST:
+                    return index == size - 1;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Removes null trailing items from the current list: 0, "", empty list.
+         */
+        void normalize()
+        {
+            while ( size > listStart && isNull( size - 1 ) )
+            {
+                size--;
+                if ( objects != null )
+                {
+                    objects[size] = null;
+                }
+            }
+        }
+
+        /**
+         * Normalizes all lists, starting with the innermost one.
+         */
+        void normalizeAll()
+        {
+            while ( true )
+            {
+                normalize();
+                if ( listStart <= 0 )
+                {
+                    break;
+                }
+                int parentStart = listStart - 1;
+                while ( parentStart > 0 && kinds[parentStart - 1] != LIST )
+                {
+                    parentStart--;
+                }
+                listStart = parentStart;
+            }
+        }
+
+    }
+
 }
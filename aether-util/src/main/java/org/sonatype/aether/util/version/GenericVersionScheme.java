@@ -13,6 +13,9 @@ package org.sonatype.aether.util.version;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.sonatype.aether.InvalidVersionSpecificationException;
 import org.sonatype.aether.Version;
 import org.sonatype.aether.VersionConstraint;
@@ -20,7 +23,10 @@ import org.sonatype.aether.VersionRange;
 import org.sonatype.aether.VersionScheme;
 
 /**
- * A version scheme using a generic version syntax.
+ * A version scheme using a generic version syntax. Parsed versions are immutable and interned in a bounded cache
+ * that is shared by all instances of this scheme, i.e. repeated occurrences of a version string are only parsed once.
+ * The cache is split into segments by the hash of the version string and each segment evicts its least recently used
+ * version once full.
  * 
  * @author Benjamin Bentmann
  * @author Alin Dreghiciu
@@ -29,10 +35,51 @@ public class GenericVersionScheme
     implements VersionScheme
 {
 
+    private static final int MAX_CACHED_VERSIONS = 4096;
+
+    private static final int SEGMENTS = 16;
+
+    private static final VersionSegment[] VERSIONS = new VersionSegment[SEGMENTS];
+
+    static
+    {
+        for ( int i = 0; i < VERSIONS.length; i++ )
+        {
+            VERSIONS[i] = new VersionSegment( MAX_CACHED_VERSIONS / SEGMENTS );
+        }
+    }
+
     public Version parseVersion( final String version )
         throws InvalidVersionSpecificationException
     {
-        return new GenericVersion( version );
+        int hash = version.hashCode();
+        VersionSegment segment = VERSIONS[( hash ^ ( hash >>> 16 ) ) & ( SEGMENTS - 1 )];
+
+        GenericVersion result;
+        synchronized ( segment )
+        {
+            result = segment.get( version );
+        }
+
+        if ( result == null )
+        {
+            result = new GenericVersion( version );
+
+            synchronized ( segment )
+            {
+                GenericVersion existing = segment.get( version );
+                if ( existing != null )
+                {
+                    result = existing;
+                }
+                else
+                {
+                    segment.put( version, result );
+                }
+            }
+        }
+
+        return result;
     }
 
     public VersionRange parseVersionRange( final String range )
@@ -106,4 +153,29 @@ public class GenericVersionScheme
         return getClass().hashCode();
     }
 
+    /**
+     * A segment of the version cache, ordered by access such that the least recently used version is evicted first.
+     */
+    private static final class VersionSegment
+        extends LinkedHashMap<String, GenericVersion>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        VersionSegment( int capacity )
+        {
+            super( 16, 0.75f, true );
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, GenericVersion> eldest )
+        {
+            return size() > capacity;
+        }
+
+    }
+
 }
@@ -0,0 +1,261 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sonatype.aether.RepositoryCache;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.Version;
+import org.sonatype.aether.VersionConstraint;
+import org.sonatype.aether.VersionRange;
+
+/**
+ * A sorted index of the available versions of an artifact that supports filtering by version ranges and constraints
+ * via binary search rather than a scan over all versions. Ranges produced by the {@link GenericVersionScheme} are
+ * answered with a slice of the index, other range implementations are evaluated against each indexed version. The
+ * index is immutable and may be shared by concurrent threads.
+ */
+public final class VersionIndex
+{
+
+    private static final String KEY = VersionIndex.class.getName();
+
+    private final Version[] versions;
+
+    /**
+     * Creates a new index from the specified versions.
+     * 
+     * @param versions The versions to index, may be {@code null} or empty. Duplicates are retained.
+     */
+    public VersionIndex( Collection<? extends Version> versions )
+    {
+        if ( versions == null || versions.isEmpty() )
+        {
+            this.versions = new Version[0];
+        }
+        else
+        {
+            this.versions = versions.toArray( new Version[versions.size()] );
+            Arrays.sort( this.versions );
+        }
+    }
+
+    /**
+     * Gets the index for the specified versions from the cache of the given session. The key must uniquely identify
+     * the collection of versions, e.g. by including the location and timestamp of the metadata that lists them.
+     * 
+     * @param session The repository system session, must not be {@code null}.
+     * @param key The key of the index, must not be {@code null}.
+     * @param versions The versions to index if the index is not yet cached, may be {@code null} or empty.
+     * @return The index, never {@code null}. If the session has no cache, a fresh index is returned.
+     */
+    public static VersionIndex getIndex( RepositorySystemSession session, Object key,
+                                         Collection<? extends Version> versions )
+    {
+        RepositoryCache cache = session.getCache();
+
+        Map<Object, VersionIndex> indices = null;
+        if ( cache != null )
+        {
+            @SuppressWarnings( "unchecked" )
+            Map<Object, VersionIndex> cached = (Map<Object, VersionIndex>) cache.get( session, KEY );
+            indices = cached;
+            if ( indices == null )
+            {
+                indices = new ConcurrentHashMap<Object, VersionIndex>( 256 );
+                cache.put( session, KEY, indices );
+            }
+        }
+
+        VersionIndex index = ( indices != null ) ? indices.get( key ) : null;
+        if ( index == null )
+        {
+            index = new VersionIndex( versions );
+            if ( indices != null )
+            {
+                indices.put( key, index );
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the number of indexed versions.
+     * 
+     * @return The number of indexed versions.
+     */
+    public int size()
+    {
+        return versions.length;
+    }
+
+    /**
+     * Gets all indexed versions.
+     * 
+     * @return The indexed versions in ascending order, never {@code null}.
+     */
+    public List<Version> getVersions()
+    {
+        return Collections.unmodifiableList( Arrays.asList( versions ) );
+    }
+
+    /**
+     * Gets the indexed versions that are contained in the specified range.
+     * 
+     * @param range The version range to match, must not be {@code null}.
+     * @return The matching versions in ascending order, never {@code null}.
+     */
+    public List<Version> getVersions( VersionRange range )
+    {
+        BitSet matches = new BitSet( versions.length );
+        match( range, matches );
+        return toList( matches );
+    }
+
+    /**
+     * Gets the indexed versions that satisfy the specified constraint. For a constraint with ranges, these are the
+     * versions that are contained in at least one of the ranges. For a constraint without ranges, these are the
+     * versions that equal the recommended version.
+     * 
+     * @param constraint The version constraint to match, must not be {@code null}.
+     * @return The matching versions in ascending order, never {@code null}.
+     */
+    public List<Version> getVersions( VersionConstraint constraint )
+    {
+        BitSet matches = new BitSet( versions.length );
+
+        Collection<VersionRange> ranges = constraint.getRanges();
+        if ( ranges.isEmpty() )
+        {
+            Version version = constraint.getVersion();
+            if ( version != null )
+            {
+                for ( int i = lowerIndex( version ), n = upperIndex( version ); i < n; i++ )
+                {
+                    if ( versions[i].equals( version ) )
+                    {
+                        matches.set( i );
+                    }
+                }
+            }
+        }
+        else
+        {
+            for ( VersionRange range : ranges )
+            {
+                match( range, matches );
+            }
+        }
+
+        return toList( matches );
+    }
+
+    private void match( VersionRange range, BitSet matches )
+    {
+        int from = 0;
+        int to = versions.length;
+
+        if ( range instanceof GenericVersionRange )
+        {
+            // versions equal to a bound need to be checked regardless of its inclusiveness due to snapshots
+            GenericVersionRange genericRange = (GenericVersionRange) range;
+            if ( genericRange.getLowerBound() != null )
+            {
+                from = lowerIndex( genericRange.getLowerBound() );
+            }
+            if ( genericRange.getUpperBound() != null )
+            {
+                to = upperIndex( genericRange.getUpperBound() );
+            }
+        }
+
+        for ( int i = from; i < to; i++ )
+        {
+            if ( !matches.get( i ) && range.containsVersion( versions[i] ) )
+            {
+                matches.set( i );
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the first version which is not less than the specified version.
+     */
+    private int lowerIndex( Version version )
+    {
+        int low = 0;
+        int high = versions.length;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( versions[mid].compareTo( version ) < 0 )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the index of the first version which is greater than the specified version.
+     */
+    private int upperIndex( Version version )
+    {
+        int low = 0;
+        int high = versions.length;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( versions[mid].compareTo( version ) <= 0 )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<Version> toList( BitSet matches )
+    {
+        List<Version> result = new ArrayList<Version>( matches.cardinality() );
+        for ( int i = matches.nextSetBit( 0 ); i >= 0; i = matches.nextSetBit( i + 1 ) )
+        {
+            result.add( versions[i] );
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.asList( versions ).toString();
+    }
+
+}
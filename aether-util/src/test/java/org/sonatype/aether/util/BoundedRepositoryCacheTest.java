@@ -0,0 +1,109 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+
+public class BoundedRepositoryCacheTest
+{
+
+    private RepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted()
+    {
+        BoundedRepositoryCache cache = new BoundedRepositoryCache( 2 );
+
+        cache.put( session, "a", "A" );
+        cache.put( session, "b", "B" );
+        assertEquals( "A", cache.get( session, "a" ) );
+        cache.put( session, "c", "C" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( "A", cache.get( session, "a" ) );
+        assertNull( cache.get( session, "b" ) );
+        assertEquals( "C", cache.get( session, "c" ) );
+
+        assertEquals( 3, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( 1, cache.getEvictionCount() );
+    }
+
+    @Test
+    public void testWeightIsReestimatedOnAccess()
+    {
+        BoundedRepositoryCache cache = new BoundedRepositoryCache().setMaxWeight( 5 );
+
+        List<String> list = new ArrayList<String>( Arrays.asList( "1", "2" ) );
+        cache.put( session, "list", list );
+        cache.put( session, "other", "X" );
+        assertEquals( 3, cache.getWeight() );
+
+        list.addAll( Arrays.asList( "3", "4", "5" ) );
+        assertSame( list, cache.get( session, "list" ) );
+
+        assertEquals( 1, cache.size() );
+        assertEquals( 5, cache.getWeight() );
+        assertNull( cache.get( session, "other" ) );
+    }
+
+    @Test
+    public void testWeighableDataReportsItsOwnWeight()
+    {
+        BoundedRepositoryCache cache = new BoundedRepositoryCache();
+
+        final int[] size = { 2 };
+        cache.put( session, "index", new BoundedRepositoryCache.Weighable()
+        {
+            public int getWeight()
+            {
+                return size[0];
+            }
+        } );
+        assertEquals( 2, cache.getWeight() );
+
+        size[0] = 7;
+        cache.get( session, "index" );
+        assertEquals( 7, cache.getWeight() );
+    }
+
+    @Test
+    public void testEntriesExpirePerNamespace()
+        throws Exception
+    {
+        BoundedRepositoryCache cache = new BoundedRepositoryCache();
+        cache.setTimeToLive( "short", 1 );
+        cache.setTimeToLive( Integer.class.getName(), 1 );
+
+        cache.put( session, "short", "S" );
+        cache.put( session, "long", "L" );
+        cache.put( session, Integer.valueOf( 1 ), "I" );
+
+        Thread.sleep( 20 );
+
+        assertNull( cache.get( session, "short" ) );
+        assertNull( cache.get( session, Integer.valueOf( 1 ) ) );
+        assertEquals( "L", cache.get( session, "long" ) );
+        assertEquals( 2, cache.getExpirationCount() );
+        assertEquals( 1, cache.size() );
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.test.util.FileUtil;
+
+public class FileCopyUtilsTest
+{
+
+    private File dir;
+
+    @Before
+    public void setup()
+    {
+        dir = new File( "target/test-file-copy" );
+        FileUtil.deleteDir( dir );
+    }
+
+    @After
+    public void teardown()
+    {
+        FileUtil.deleteDir( dir );
+    }
+
+    @Test
+    public void testCopyCreatesDirectoriesAndOverwrites()
+        throws IOException
+    {
+        File source = FileUtil.createTempFile( "source" );
+        File target = new File( dir, "sub/dir/target.txt" );
+
+        assertEquals( source.length(), FileCopyUtils.copy( source, target ) );
+        assertEquals( "source", read( target ) );
+        assertTrue( source.isFile() );
+
+        File other = FileUtil.createTempFile( "other content" );
+        FileCopyUtils.copy( other, target );
+        assertEquals( "other content", read( target ) );
+
+        assertEquals( 1, target.getParentFile().list().length );
+    }
+
+    @Test
+    public void testCopyOfLargeFile()
+        throws IOException
+    {
+        File source = FileUtil.createTempFile( "0123456789".getBytes( "UTF-8" ), 300 * 1024 );
+        File target = new File( dir, "large.bin" );
+
+        FileCopyUtils.copy( source, target );
+
+        assertEquals( source.length(), target.length() );
+        assertArrayEquals( content( source ), content( target ) );
+    }
+
+    @Test
+    public void testCopyOntoItself()
+        throws IOException
+    {
+        File file = new File( dir, "file.txt" );
+        FileCopyUtils.copy( FileUtil.createTempFile( "content" ), file );
+
+        FileCopyUtils.copy( file, file );
+
+        assertEquals( "content", read( file ) );
+    }
+
+    @Test
+    public void testMove()
+        throws IOException
+    {
+        File source = new File( dir, "source.txt" );
+        FileCopyUtils.copy( FileUtil.createTempFile( "moved" ), source );
+        File target = new File( dir, "other/target.txt" );
+        FileCopyUtils.copy( FileUtil.createTempFile( "existing" ), target );
+
+        FileCopyUtils.move( source, target );
+
+        assertFalse( source.exists() );
+        assertEquals( "moved", read( target ) );
+    }
+
+    private static byte[] content( File file )
+        throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream( new FileInputStream( file ) );
+        try
+        {
+            in.readFully( bytes );
+        }
+        finally
+        {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static String read( File file )
+        throws IOException
+    {
+        return new String( content( file ), "UTF-8" );
+    }
+
+}
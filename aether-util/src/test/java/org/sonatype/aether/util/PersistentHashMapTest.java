@@ -0,0 +1,113 @@
+package org.sonatype.aether.util;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentHashMapTest
+{
+
+    @Test
+    public void testPlusLeavesOriginalUnchanged()
+    {
+        PersistentHashMap<String, String> empty = PersistentHashMap.emptyMap();
+        PersistentHashMap<String, String> map = empty.plus( "a", "1" );
+        PersistentHashMap<String, String> map2 = map.plus( "a", "2" ).plus( "b", "3" );
+
+        assertTrue( empty.isEmpty() );
+        assertEquals( 1, map.size() );
+        assertEquals( "1", map.get( "a" ) );
+        assertEquals( 2, map2.size() );
+        assertEquals( "2", map2.get( "a" ) );
+        assertEquals( "3", map2.get( "b" ) );
+        assertNull( map2.get( "c" ) );
+        assertFalse( map2.containsKey( "c" ) );
+    }
+
+    @Test
+    public void testPlusExistingEntryReturnsSameMap()
+    {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String> emptyMap().plus( "a", "1" );
+        assertSame( map, map.plus( "a", "1" ) );
+        assertSame( map, map.plus( "a", new String( "1" ) ) );
+    }
+
+    @Test
+    public void testNullValues()
+    {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String> emptyMap().plus( "a", null );
+        assertTrue( map.containsKey( "a" ) );
+        assertNull( map.get( "a" ) );
+        assertEquals( "1", map.plus( "a", "1" ).get( "a" ) );
+    }
+
+    @Test
+    public void testHashCollisions()
+    {
+        // "Aa" and "BB" have the same hash code
+        PersistentHashMap<String, String> map =
+            PersistentHashMap.<String, String> emptyMap().plus( "Aa", "1" ).plus( "BB", "2" ).plus( "C", "3" );
+        assertEquals( 3, map.size() );
+        assertEquals( "1", map.get( "Aa" ) );
+        assertEquals( "2", map.get( "BB" ) );
+        assertEquals( "4", map.plus( "BB", "4" ).get( "BB" ) );
+
+        PersistentHashMap<String, String> other =
+            PersistentHashMap.<String, String> emptyMap().plus( "C", "3" ).plus( "BB", "2" ).plus( "Aa", "1" );
+        assertEquals( map, other );
+        assertEquals( map.hashCode(), other.hashCode() );
+    }
+
+    @Test
+    public void testConsistencyWithHashMap()
+    {
+        Random random = new Random( 42 );
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        PersistentHashMap<Integer, Integer> actual = PersistentHashMap.emptyMap();
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            Integer key = Integer.valueOf( random.nextInt( 2000 ) * ( random.nextBoolean() ? 65536 : 1 ) );
+            Integer value = Integer.valueOf( random.nextInt( 10 ) );
+            expected.put( key, value );
+            actual = actual.plus( key, value );
+        }
+
+        assertEquals( expected.size(), actual.size() );
+        assertEquals( expected.hashCode(), actual.hashCode() );
+        assertEquals( expected, actual );
+        assertEquals( actual, expected );
+        for ( Map.Entry<Integer, Integer> entry : expected.entrySet() )
+        {
+            assertEquals( entry.getValue(), actual.get( entry.getKey() ) );
+        }
+
+        PersistentHashMap<Integer, Integer> copy = PersistentHashMap.copyOf( expected );
+        assertEquals( actual, copy );
+        assertFalse( actual.equals( copy.plus( Integer.valueOf( -1 ), Integer.valueOf( 0 ) ) ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testMutatorsAreUnsupported()
+    {
+        PersistentHashMap.<String, String> emptyMap().plus( "a", "1" ).put( "b", "2" );
+    }
+
+}
@@ -16,6 +16,7 @@ package org.sonatype.aether.util.filter;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -188,4 +189,46 @@ public class PatternInclusionsDependencyFilterTest
                                                             prefix + "(1.0.3,)" ).accept( builder.build(), parents ) );
     }
 
+    @Test
+    public void acceptTestManyPatterns()
+    {
+        NodeBuilder builder = new NodeBuilder();
+        builder.groupId( "com.example.test" ).artifactId( "testArtifact" ).ext( "jar" ).version( "1.0.3" );
+        List<DependencyNode> parents = new LinkedList<DependencyNode>();
+
+        List<String> patterns = new ArrayList<String>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            patterns.add( "com.example.group" + i + ":testArtifact" );
+            patterns.add( "com.example.test:otherArtifact" + i );
+        }
+        PatternInclusionsDependencyFilter filter = new PatternInclusionsDependencyFilter( patterns );
+        assertFalse( filter.accept( builder.build(), parents ) );
+
+        patterns.add( "com.example.test:testArtifact:jar:1.0.*" );
+        filter = new PatternInclusionsDependencyFilter( patterns );
+        assertTrue( filter.accept( builder.build(), parents ) );
+
+        patterns.remove( patterns.size() - 1 );
+        patterns.add( "*.test:testArtifact" );
+        filter = new PatternInclusionsDependencyFilter( patterns );
+        assertTrue( filter.accept( builder.build(), parents ) );
+    }
+
+    @Test
+    public void acceptTestDegeneratePatterns()
+    {
+        NodeBuilder builder = new NodeBuilder();
+        builder.groupId( "com.example.test" ).artifactId( "testArtifact" ).ext( "jar" ).version( "1.0.3" );
+        List<DependencyNode> parents = new LinkedList<DependencyNode>();
+
+        assertTrue( new PatternInclusionsDependencyFilter( ":::" ).accept( builder.build(), parents ) );
+        assertTrue( new PatternInclusionsDependencyFilter( "**:testArtifact" ).accept( builder.build(), parents ) );
+        assertTrue( new PatternInclusionsDependencyFilter( "com.example.test:testArtifact::" ).accept( builder.build(),
+                                                                                                     parents ) );
+        assertFalse( new PatternInclusionsDependencyFilter( new GenericVersionScheme(),
+                                                            "com.example.test:testArtifact:jar:[1.0" ).accept( builder.build(),
+                                                                                                             parents ) );
+    }
+
 }
@@ -0,0 +1,143 @@
+package org.sonatype.aether.util.graph.manager;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.DependencyCollectionContext;
+import org.sonatype.aether.DependencyManagement;
+import org.sonatype.aether.DependencyManager;
+import org.sonatype.aether.Exclusion;
+import org.sonatype.aether.RepositorySystemSession;
+
+public class ClassicDependencyManagerTest
+{
+
+    private static Dependency newDependency( String coords, Exclusion... exclusions )
+    {
+        return new Dependency( new DefaultArtifact( coords ), "", false, Arrays.asList( exclusions ) );
+    }
+
+    private static Exclusion newExclusion( String artifactId )
+    {
+        return new Exclusion( "gid", artifactId, "*", "*" );
+    }
+
+    private static DependencyManager derive( DependencyManager manager, Dependency... managedDependencies )
+    {
+        return manager.deriveChildManager( new Context( Arrays.asList( managedDependencies ) ) );
+    }
+
+    private static Collection<Exclusion> getExclusions( DependencyManager manager, String coords )
+    {
+        DependencyManagement management = manager.manageDependency( newDependency( coords ) );
+        return ( management != null ) ? new HashSet<Exclusion>( management.getExclusions() ) : null;
+    }
+
+    @Test
+    public void testSiblingManagersDoNotShareExclusions()
+    {
+        DependencyManager root = new ClassicDependencyManager();
+        Exclusion first = newExclusion( "first" );
+        Exclusion second = newExclusion( "second" );
+
+        DependencyManager a = derive( root, newDependency( "gid:aid:1", first ) );
+        assertEquals( Collections.singleton( first ), getExclusions( a, "gid:aid:2" ) );
+
+        DependencyManager b = derive( root, newDependency( "gid:aid:1", second ) );
+        assertEquals( Collections.singleton( second ), getExclusions( b, "gid:aid:2" ) );
+
+        assertEquals( Collections.singleton( first ), getExclusions( a, "gid:aid:2" ) );
+        assertNull( getExclusions( root, "gid:aid:2" ) );
+    }
+
+    @Test
+    public void testExclusionsOfSameKeyAreMerged()
+    {
+        Exclusion first = newExclusion( "first" );
+        Exclusion second = newExclusion( "second" );
+
+        DependencyManager manager =
+            derive( new ClassicDependencyManager(), newDependency( "gid:aid:1", first ),
+                    newDependency( "gid:aid:1", second, first ) );
+
+        assertEquals( new HashSet<Exclusion>( Arrays.asList( first, second ) ), getExclusions( manager, "gid:aid:2" ) );
+    }
+
+    @Test
+    public void testEqualsAndHashCode()
+    {
+        Dependency managed = newDependency( "gid:aid:1", newExclusion( "excluded" ) );
+
+        DependencyManager root = new ClassicDependencyManager();
+        DependencyManager a = derive( root, managed, newDependency( "gid:other:2" ) );
+        DependencyManager b =
+            derive( new ClassicDependencyManager(), newDependency( "gid:aid:1", newExclusion( "excluded" ) ),
+                    newDependency( "gid:other:2" ) );
+        assertNotSame( a, b );
+        assertEquals( a, b );
+        assertEquals( a.hashCode(), b.hashCode() );
+
+        DependencyManager c = derive( root, managed, newDependency( "gid:other:3" ) );
+        assertFalse( a.equals( c ) );
+
+        DependencyManager d = derive( root, managed );
+        assertFalse( a.equals( d ) );
+
+        assertFalse( root.equals( derive( root ) ) );
+        DependencyManager grandchild = derive( a );
+        assertFalse( a.equals( grandchild ) );
+        assertEquals( grandchild, derive( b ) );
+        assertEquals( grandchild.hashCode(), derive( b ).hashCode() );
+        assertSame( grandchild, derive( grandchild ) );
+    }
+
+    static class Context
+        implements DependencyCollectionContext
+    {
+
+        private final List<Dependency> managedDependencies;
+
+        Context( List<Dependency> managedDependencies )
+        {
+            this.managedDependencies = managedDependencies;
+        }
+
+        public RepositorySystemSession getSession()
+        {
+            return null;
+        }
+
+        public Dependency getDependency()
+        {
+            return null;
+        }
+
+        public List<Dependency> getManagedDependencies()
+        {
+            return managedDependencies;
+        }
+
+    }
+
+}
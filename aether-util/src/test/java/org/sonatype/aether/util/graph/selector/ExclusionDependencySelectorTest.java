@@ -0,0 +1,103 @@
+package org.sonatype.aether.util.graph.selector;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.DefaultArtifact;
+import org.sonatype.aether.Dependency;
+import org.sonatype.aether.DependencyCollectionContext;
+import org.sonatype.aether.DependencySelector;
+import org.sonatype.aether.Exclusion;
+import org.sonatype.aether.RepositorySystemSession;
+
+public class ExclusionDependencySelectorTest
+{
+
+    private static Dependency newDependency( String coords, Exclusion... exclusions )
+    {
+        return new Dependency( new DefaultArtifact( coords ), "compile", false, Arrays.asList( exclusions ) );
+    }
+
+    private static DependencySelector derive( DependencySelector selector, Dependency dependency )
+    {
+        return selector.deriveChildSelector( new Context( dependency ) );
+    }
+
+    @Test
+    public void testDependencyWithoutNewExclusionsKeepsSelector()
+    {
+        Exclusion first = new Exclusion( "gid", "first", "*", "*" );
+        Exclusion second = new Exclusion( "gid", "second", "*", "*" );
+        DependencySelector selector =
+            new ExclusionDependencySelector( new HashSet<Exclusion>( Arrays.asList( first, second ) ) );
+
+        assertSame( selector, derive( selector, null ) );
+        assertSame( selector, derive( selector, newDependency( "gid:aid:1" ) ) );
+        assertSame( selector, derive( selector, newDependency( "gid:aid:1", second ) ) );
+        assertSame( selector, derive( selector, newDependency( "gid:aid:1", second, first ) ) );
+    }
+
+    @Test
+    public void testDependencyWithNewExclusionsDerivesSelector()
+    {
+        Exclusion first = new Exclusion( "gid", "first", "*", "*" );
+        Exclusion second = new Exclusion( "gid", "second", "*", "*" );
+        DependencySelector selector = new ExclusionDependencySelector( Collections.singleton( first ) );
+
+        DependencySelector child = derive( selector, newDependency( "gid:aid:1", first, second ) );
+        assertNotSame( selector, child );
+        assertEquals( new ExclusionDependencySelector( new HashSet<Exclusion>( Arrays.asList( first, second ) ) ),
+                      child );
+        assertFalse( child.selectDependency( newDependency( "gid:first:1" ) ) );
+        assertFalse( child.selectDependency( newDependency( "gid:second:1" ) ) );
+        assertTrue( child.selectDependency( newDependency( "gid:third:1" ) ) );
+        assertTrue( selector.selectDependency( newDependency( "gid:second:1" ) ) );
+    }
+
+    static class Context
+        implements DependencyCollectionContext
+    {
+
+        private final Dependency dependency;
+
+        Context( Dependency dependency )
+        {
+            this.dependency = dependency;
+        }
+
+        public RepositorySystemSession getSession()
+        {
+            return null;
+        }
+
+        public Dependency getDependency()
+        {
+            return dependency;
+        }
+
+        public List<Dependency> getManagedDependencies()
+        {
+            return Collections.emptyList();
+        }
+
+    }
+
+}
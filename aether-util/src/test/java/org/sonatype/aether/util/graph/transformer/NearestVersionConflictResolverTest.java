@@ -265,4 +265,111 @@ public class NearestVersionConflictResolverTest
         assertTrue( b2.getChildren().isEmpty() );
     }
 
+    @Test
+    public void testSelfReferencingConflictGroupWithSharedNodes()
+        throws Exception
+    {
+        // root
+        // +- a:1
+        // |  +- a:2
+        // |  \- b:1
+        // \- c
+        //    \- b:1          # same node instance as above, not a conflict
+
+        DependencyNode a1 = builder.artifactId( "a" ).version( "1" ).build();
+        DependencyNode a2 = builder.artifactId( "a" ).version( "2" ).build();
+        DependencyNode b1 = builder.artifactId( "b" ).version( "1" ).build();
+        DependencyNode c = builder.artifactId( "c" ).version( "1" ).build();
+
+        a1.getChildren().add( a2 );
+        a1.getChildren().add( b1 );
+        c.getChildren().add( b1 );
+
+        DependencyNode root = builder.artifactId( null ).build();
+        root.getChildren().add( a1 );
+        root.getChildren().add( c );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        conflictIds.put( a1, "a" );
+        conflictIds.put( a2, "a" );
+        conflictIds.put( b1, "b" );
+        conflictIds.put( c, "c" );
+        context.put( TransformationContextKeys.CONFLICT_IDS, conflictIds );
+
+        NearestVersionConflictResolver transformer = new NearestVersionConflictResolver();
+        root = transformer.transformGraph( root, context );
+
+        assertEquals( 2, root.getChildren().size() );
+        assertSame( a1, root.getChildren().get( 0 ) );
+        assertEquals( 1, a1.getChildren().size() );
+        assertSame( b1, a1.getChildren().get( 0 ) );
+        assertEquals( 1, c.getChildren().size() );
+        assertSame( b1, c.getChildren().get( 0 ) );
+    }
+
+    @Test
+    public void testCyclicConflictIdGraphVisitsChildGroupsInHashOrder()
+        throws Exception
+    {
+        // root
+        // +- g:1
+        // |  \- k:1
+        // |     \- f:5
+        // +- b:1
+        // |  \- f:1
+        // |     +- a:1
+        // |     \- b:3
+        // +- b:2
+        // \- h:1
+        //    \- m:1
+        //       \- a:2
+        //
+        // The groups f and b form a cycle which is broken at f, after which b and a are both ready. Which of them is
+        // processed first decides whether a:1 or a:2 survives. Child groups are visited in the order of a hash set of
+        // their keys, i.e. a before b, as done by previous versions of this resolver.
+
+        DependencyNode g1 = builder.artifactId( "g" ).version( "1" ).build();
+        DependencyNode k1 = builder.artifactId( "k" ).version( "1" ).build();
+        DependencyNode f5 = builder.artifactId( "f" ).version( "5" ).build();
+        DependencyNode b1 = builder.artifactId( "b" ).version( "1" ).build();
+        DependencyNode f1 = builder.artifactId( "f" ).version( "1" ).build();
+        DependencyNode a1 = builder.artifactId( "a" ).version( "1" ).build();
+        DependencyNode b3 = builder.artifactId( "b" ).version( "3" ).build();
+        DependencyNode b2 = builder.artifactId( "b" ).version( "2" ).build();
+        DependencyNode h1 = builder.artifactId( "h" ).version( "1" ).build();
+        DependencyNode m1 = builder.artifactId( "m" ).version( "1" ).build();
+        DependencyNode a2 = builder.artifactId( "a" ).version( "2" ).build();
+
+        g1.getChildren().add( k1 );
+        k1.getChildren().add( f5 );
+        b1.getChildren().add( f1 );
+        f1.getChildren().add( a1 );
+        f1.getChildren().add( b3 );
+        h1.getChildren().add( m1 );
+        m1.getChildren().add( a2 );
+
+        DependencyNode root = builder.artifactId( null ).build();
+        root.getChildren().add( g1 );
+        root.getChildren().add( b1 );
+        root.getChildren().add( b2 );
+        root.getChildren().add( h1 );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        for ( DependencyNode node : new DependencyNode[] { g1, k1, f5, b1, f1, a1, b3, b2, h1, m1, a2 } )
+        {
+            conflictIds.put( node, node.getDependency().getArtifact().getArtifactId() );
+        }
+        context.put( TransformationContextKeys.CONFLICT_IDS, conflictIds );
+
+        NearestVersionConflictResolver transformer = new NearestVersionConflictResolver();
+        root = transformer.transformGraph( root, context );
+
+        assertEquals( 3, root.getChildren().size() );
+        assertSame( g1, root.getChildren().get( 0 ) );
+        assertSame( b2, root.getChildren().get( 1 ) );
+        assertSame( h1, root.getChildren().get( 2 ) );
+        assertTrue( k1.getChildren().isEmpty() );
+        assertTrue( m1.getChildren().isEmpty() );
+    }
+
 }
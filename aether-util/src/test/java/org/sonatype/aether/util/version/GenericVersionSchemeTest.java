@@ -0,0 +1,71 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.sonatype.aether.Version;
+
+public class GenericVersionSchemeTest
+{
+
+    private final GenericVersionScheme scheme = new GenericVersionScheme();
+
+    @Test
+    public void testParsedVersionsAreInterned()
+        throws Exception
+    {
+        Version v1 = scheme.parseVersion( "1.2.3-SNAPSHOT" );
+        Version v2 = new GenericVersionScheme().parseVersion( "1.2.3-SNAPSHOT" );
+        assertSame( v1, v2 );
+        assertEquals( "1.2.3-SNAPSHOT", v1.toString() );
+
+        Version v3 = scheme.parseVersion( "1.2.3-snapshot" );
+        assertNotSame( v1, v3 );
+        assertEquals( v1, v3 );
+        assertEquals( "1.2.3-snapshot", v3.toString() );
+    }
+
+    @Test
+    public void testCacheIsBounded()
+        throws Exception
+    {
+        for ( int i = 0; i < 10000; i++ )
+        {
+            Version version = scheme.parseVersion( "1." + i );
+            assertEquals( "1." + i, version.toString() );
+        }
+        assertEquals( 0, scheme.parseVersion( "1.9999" ).compareTo( new GenericVersion( "1.9999.0" ) ) );
+    }
+
+    @Test
+    public void testRecentlyUsedVersionSurvivesEviction()
+        throws Exception
+    {
+        Version hot = scheme.parseVersion( "2.0-hot" );
+        Version cold = scheme.parseVersion( "2.0-cold" );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            scheme.parseVersion( "2." + i );
+            if ( i % 64 == 0 )
+            {
+                assertSame( hot, scheme.parseVersion( "2.0-hot" ) );
+            }
+        }
+        assertSame( hot, scheme.parseVersion( "2.0-hot" ) );
+        assertNotSame( cold, scheme.parseVersion( "2.0-cold" ) );
+    }
+
+}
@@ -179,6 +179,35 @@ public class GenericVersionTest
         checkVersionsOrder( "2.0.1-xyz", "2.0.1-123" );
     }
 
+    public void testBigNumbers()
+    {
+        checkVersionsOrder( "1.999999999999999999", "1.1000000000000000000" );
+        checkVersionsOrder( "1.1000000000000000000", "1.1000000000000000001" );
+        checkVersionsOrder( "9223372036854775807", "9223372036854775808" );
+        checkVersionsOrder( "1.99999999999999999999-rc", "1.99999999999999999999" );
+        checkVersionsEqual( "1.12345678901234567890", "1.12345678901234567890.0" );
+        checkVersionsEqual( "1.12345678901234567890", "1.0012345678901234567890" );
+    }
+
+    public void testLeadingZeros()
+    {
+        checkVersionsEqual( "1.01", "1.1" );
+        checkVersionsEqual( "1.00", "1" );
+        checkVersionsEqual( "1-001", "1-1" );
+        checkVersionsOrder( "1.09", "1.10" );
+    }
+
+    public void testSubLists()
+    {
+        checkVersionsEqual( "1-0", "1" );
+        checkVersionsEqual( "1-0-0", "1" );
+        checkVersionsEqual( "0-1", "0.0-1" );
+        checkVersionsOrder( "1-1", "1-1-1" );
+        checkVersionsOrder( "1-1-1", "1-1.1" );
+        checkVersionsOrder( "1-1-rc", "1-1" );
+        checkVersionsOrder( "1-1-sp", "1-1.1" );
+    }
+
     public void testLocaleIndependent()
     {
         Locale orig = Locale.getDefault();
@@ -0,0 +1,124 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.Version;
+import org.sonatype.aether.VersionConstraint;
+import org.sonatype.aether.VersionRange;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+public class VersionIndexTest
+{
+
+    private final GenericVersionScheme scheme = new GenericVersionScheme();
+
+    private List<Version> parseVersions( String... versions )
+        throws Exception
+    {
+        List<Version> result = new ArrayList<Version>();
+        for ( String version : versions )
+        {
+            result.add( scheme.parseVersion( version ) );
+        }
+        return result;
+    }
+
+    private List<Version> scan( List<Version> versions, VersionConstraint constraint )
+    {
+        List<Version> result = new ArrayList<Version>();
+        for ( Version version : versions )
+        {
+            if ( constraint.containsVersion( version ) )
+            {
+                result.add( version );
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testRangeSlicesMatchLinearScan()
+        throws Exception
+    {
+        List<Version> versions = new ArrayList<Version>();
+        for ( int major = 0; major < 5; major++ )
+        {
+            for ( int minor = 0; minor < 20; minor++ )
+            {
+                versions.addAll( parseVersions( major + "." + minor, major + "." + minor + "-SNAPSHOT", major + "."
+                    + minor + "-rc1" ) );
+            }
+        }
+        Collections.shuffle( versions );
+        Collections.sort( versions );
+
+        VersionIndex index = new VersionIndex( versions );
+        assertEquals( versions.size(), index.size() );
+
+        String[] constraints =
+            { "[1.0,2.0)", "(1.0,2.0]", "[1.5]", "[1.5-SNAPSHOT,1.7-SNAPSHOT]", "(,1.3]", "[3.17,)", "(,)",
+                "[7.0,8.0]", "[0.1,0.3),[2.4,2.6],(4.10,)", "[1.0,3.0),[2.0,4.0)", "2.5", "2.5.0", "9.0" };
+        for ( String spec : constraints )
+        {
+            VersionConstraint constraint = scheme.parseVersionConstraint( spec );
+            assertEquals( spec, scan( versions, constraint ), index.getVersions( constraint ) );
+        }
+    }
+
+    @Test
+    public void testSingleRange()
+        throws Exception
+    {
+        VersionIndex index = new VersionIndex( parseVersions( "1.2", "1.0", "1.1", "2.0" ) );
+        VersionRange range = scheme.parseVersionRange( "[1.0,1.2)" );
+        assertEquals( parseVersions( "1.0", "1.1" ), index.getVersions( range ) );
+        assertEquals( parseVersions( "1.0", "1.1", "1.2", "2.0" ), index.getVersions() );
+    }
+
+    @Test
+    public void testEmptyIndex()
+        throws Exception
+    {
+        VersionIndex index = new VersionIndex( null );
+        assertEquals( 0, index.size() );
+        assertTrue( index.getVersions( scheme.parseVersionConstraint( "[1,2]" ) ).isEmpty() );
+        assertTrue( index.getVersions( scheme.parseVersionConstraint( "1" ) ).isEmpty() );
+    }
+
+    @Test
+    public void testIndexIsSharedViaSessionCache()
+        throws Exception
+    {
+        List<Version> versions = parseVersions( "1.0", "2.0" );
+
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        assertNotSame( VersionIndex.getIndex( session, "key", versions ),
+                       VersionIndex.getIndex( session, "key", versions ) );
+
+        session.setCache( new DefaultRepositoryCache() );
+        VersionIndex index = VersionIndex.getIndex( session, "key", versions );
+        assertSame( index, VersionIndex.getIndex( session, "key", Arrays.<Version> asList() ) );
+        assertNotSame( index, VersionIndex.getIndex( session, "other", versions ) );
+    }
+
+}